@@ -0,0 +1,124 @@
+package nz.ac.auckland.concert.benchmarks;
+
+import nz.ac.auckland.concert.common.dto.ConcertDTO;
+import nz.ac.auckland.concert.common.dto.ReservationDTO;
+import nz.ac.auckland.concert.common.dto.ReservationRequestDTO;
+import nz.ac.auckland.concert.common.dto.SeatDTO;
+import nz.ac.auckland.concert.common.types.Genre;
+import nz.ac.auckland.concert.common.types.PriceBand;
+import nz.ac.auckland.concert.common.types.SeatNumber;
+import nz.ac.auckland.concert.common.types.SeatRow;
+import nz.ac.auckland.concert.service.domain.jpa.Concert;
+import nz.ac.auckland.concert.service.domain.jpa.Performer;
+import nz.ac.auckland.concert.service.domain.jpa.Reservation;
+import nz.ac.auckland.concert.service.domain.jpa.Seat;
+import nz.ac.auckland.concert.service.mappers.ConcertMapper;
+import nz.ac.auckland.concert.utility.TheatreLayout;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Builds in-memory test data for the benchmarks, shaped like the service's catalogue snapshot (25 concerts
+ * with a handful of dates each, 20 performers).
+ */
+public class Catalogue {
+
+    public static final int NUMBER_OF_CONCERTS = 25;
+
+    public static final int NUMBER_OF_PERFORMERS = 20;
+
+    private static final LocalDateTime FIRST_DATE = LocalDateTime.of(2018, 1, 1, 20, 0);
+
+    // This is utility class, so hide the constructor to prevent instantiation.
+    private Catalogue() {
+    }
+
+    public static List<Concert> concerts() {
+        List<Performer> performers = new ArrayList<>();
+
+        for (long id = 1; id <= NUMBER_OF_PERFORMERS; id++) {
+            performers.add(new Performer(id, "Performer " + id, "performer" + id + ".jpg",
+                    Genre.values()[(int) id % Genre.values().length], new HashSet<>()));
+        }
+
+        List<Concert> concerts = new ArrayList<>();
+
+        for (long id = 1; id <= NUMBER_OF_CONCERTS; id++) {
+            Set<LocalDateTime> dates = new HashSet<>();
+            for (int i = 0; i < 4; i++) {
+                dates.add(FIRST_DATE.plusDays(id * 7 + i));
+            }
+
+            Map<PriceBand, BigDecimal> tariff = new HashMap<>();
+            for (PriceBand priceBand : PriceBand.values()) {
+                tariff.put(priceBand, BigDecimal.valueOf(50 + 25 * priceBand.ordinal()));
+            }
+
+            Set<Performer> playing = new HashSet<>();
+            playing.add(performers.get((int) (id - 1) % NUMBER_OF_PERFORMERS));
+            playing.add(performers.get((int) id % NUMBER_OF_PERFORMERS));
+
+            concerts.add(new Concert(id, "Concert " + id, dates, tariff, playing));
+        }
+        return concerts;
+    }
+
+    public static List<Performer> performers() {
+        List<Concert> concerts = concerts();
+        List<Performer> performers = new ArrayList<>();
+
+        for (long id = 1; id <= NUMBER_OF_PERFORMERS; id++) {
+            Set<Concert> playing = new HashSet<>();
+            for (Concert concert : concerts) {
+                if (concert.getId() % NUMBER_OF_PERFORMERS == id - 1 || concert.getId() % NUMBER_OF_PERFORMERS == id) {
+                    playing.add(concert);
+                }
+            }
+            performers.add(new Performer(id, "Performer " + id, "performer" + id + ".jpg",
+                    Genre.values()[(int) id % Genre.values().length], playing));
+        }
+        return performers;
+    }
+
+    public static List<ConcertDTO> concertDTOs() {
+        return ConcertMapper.toDTOList(concerts());
+    }
+
+    /**
+     * Returns a reservation for the given number of seats, taken from the front of price band A.
+     */
+    public static Reservation reservation(int numberOfSeats) {
+        Set<Seat> seats = new HashSet<>();
+        Iterator<SeatRow> rows = new TreeSet<>(TheatreLayout.getRowsForPriceBand(PriceBand.PriceBandA)).iterator();
+        SeatRow row = rows.next();
+        int number = 1;
+
+        while (seats.size() < numberOfSeats) {
+            if (number > TheatreLayout.getNumberOfSeatsForRow(row)) {
+                row = rows.next();
+                number = 1;
+            }
+            Seat seat = new Seat(row, new SeatNumber(number++), 1L, FIRST_DATE);
+            seat.setSeatType(PriceBand.PriceBandA);
+            seats.add(seat);
+        }
+        return new Reservation(seats, "user", numberOfSeats, PriceBand.PriceBandA, 1L, FIRST_DATE);
+    }
+
+    public static List<ReservationDTO> reservationDTOs(int numberOfReservations, int numberOfSeats) {
+        List<ReservationDTO> reservations = new ArrayList<>();
+        Reservation reservation = reservation(numberOfSeats);
+
+        for (long id = 1; id <= numberOfReservations; id++) {
+            Set<SeatDTO> seats = new HashSet<>();
+            for (Seat seat : reservation.getSeats()) {
+                seats.add(new SeatDTO(seat.getRow(), seat.getNumber()));
+            }
+            reservations.add(new ReservationDTO(id, new ReservationRequestDTO(numberOfSeats, PriceBand.PriceBandA,
+                    id, FIRST_DATE.plusDays(id)), seats));
+        }
+        return reservations;
+    }
+}
@@ -0,0 +1,161 @@
+package nz.ac.auckland.concert.benchmarks;
+
+import nz.ac.auckland.concert.common.types.Genre;
+import nz.ac.auckland.concert.common.types.PriceBand;
+import nz.ac.auckland.concert.service.catalogue.CatalogueLoader;
+import nz.ac.auckland.concert.service.services.PersistenceManager;
+import nz.ac.auckland.concert.service.util.ServiceConfiguration;
+import org.h2.tools.Csv;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading a synthetic catalogue of thousands of concerts, each with four dates, a tariff for every
+ * price band and one or two performers, into emptied catalogue tables. CatalogueLoader's INSERT ... SELECT
+ * over CSVREAD is compared with sending an INSERT statement per row, the way the SQL load script that it
+ * replaced was run.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CatalogueLoadBenchmark {
+
+    private static final int DATES_PER_CONCERT = 4;
+
+    //concerts per performer
+    private static final int CONCERTS_PER_PERFORMER = 5;
+
+    private static final LocalDateTime FIRST_DATE = LocalDateTime.of(2030, 1, 1, 20, 0);
+
+    //the snapshot's files, in the order the tables are loaded
+    private static final String[][] TABLES = {
+            {"PERFORMERS", "performers.csv"},
+            {"CONCERTS", "concerts.csv"},
+            {"CONCERT_DATES", "concert_dates.csv"},
+            {"CONCERT_TARIFS", "concert_tariffs.csv"},
+            {"CONCERT_PERFORMER", "concert_performers.csv"}};
+
+    @Param({"file", "memory", "server"})
+    private String _profile;
+
+    @Param({"1000", "10000", "50000"})
+    private int _concerts;
+
+    private DataSource _dataSource;
+
+    private Path _snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        //each set of parameters runs in its own JVM, where nothing has created the PersistenceManager yet
+        System.setProperty(ServiceConfiguration.DATABASE_PROFILE, _profile);
+        System.setProperty(ServiceConfiguration.DATABASE_START_SERVER, "true");
+        _dataSource = PersistenceManager.instance().getDataSource();
+
+        _snapshot = Files.createTempDirectory("catalogue");
+        int performers = Math.max(1, _concerts / CONCERTS_PER_PERFORMER);
+        Genre[] genres = Genre.values();
+
+        try (PrintWriter out = writer("performers.csv")) {
+            out.println("performerId,genre,imageName,name");
+            for (int id = 1; id <= performers; id++) {
+                out.println(id + "," + genres[id % genres.length] + ",performer" + id + ".jpg,Performer " + id);
+            }
+        }
+        try (PrintWriter out = writer("concerts.csv")) {
+            out.println("id,title");
+            for (int id = 1; id <= _concerts; id++) {
+                out.println(id + ",Concert " + id);
+            }
+        }
+        try (PrintWriter out = writer("concert_dates.csv")) {
+            out.println("id,dates");
+            for (int id = 1; id <= _concerts; id++) {
+                for (int date = 0; date < DATES_PER_CONCERT; date++) {
+                    out.println(id + "," + Timestamp.valueOf(FIRST_DATE.plusDays(id + date * 7L)));
+                }
+            }
+        }
+        try (PrintWriter out = writer("concert_tariffs.csv")) {
+            out.println("concertId,tariff,priceBand");
+            for (int id = 1; id <= _concerts; id++) {
+                for (PriceBand priceBand : PriceBand.values()) {
+                    out.println(id + "," + (100 - 10 * priceBand.ordinal()) + ".00," + priceBand);
+                }
+            }
+        }
+        try (PrintWriter out = writer("concert_performers.csv")) {
+            out.println("concertId,performerId");
+            for (int id = 1; id <= _concerts; id++) {
+                out.println(id + "," + (id % performers + 1));
+                //every other concert has a support act
+                if (id % 2 == 0 && performers > 1) {
+                    out.println(id + "," + ((id + 1) % performers + 1));
+                }
+            }
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyTables() throws SQLException {
+        try (Connection connection = _dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (int i = TABLES.length - 1; i >= 0; i--) {
+                statement.executeUpdate("DELETE FROM " + TABLES[i][0]);
+            }
+        }
+    }
+
+    @Benchmark
+    public long csvRead() {
+        CatalogueLoader.instance().load(_dataSource, _snapshot.toString());
+        return CatalogueLoader.instance().getRowCount();
+    }
+
+    @Benchmark
+    public long insertPerRow() throws SQLException {
+        long rows = 0;
+
+        try (Connection connection = _dataSource.getConnection();
+             Statement insert = connection.createStatement()) {
+            connection.setAutoCommit(false);
+
+            for (String[] table : TABLES) {
+                try (ResultSet csv = new Csv().read(_snapshot.resolve(table[1]).toString(), null, "UTF-8")) {
+                    ResultSetMetaData columns = csv.getMetaData();
+
+                    while (csv.next()) {
+                        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table[0]).append(" (");
+                        StringBuilder values = new StringBuilder(") VALUES(");
+
+                        for (int column = 1; column <= columns.getColumnCount(); column++) {
+                            String separator = column == 1 ? "" : ",";
+                            sql.append(separator).append(columns.getColumnName(column));
+                            values.append(separator).append('\'')
+                                    .append(csv.getString(column).replace("'", "''")).append('\'');
+                        }
+                        rows += insert.executeUpdate(sql.append(values).append(')').toString());
+                    }
+                }
+            }
+            connection.commit();
+        }
+        return rows;
+    }
+
+    private PrintWriter writer(String file) throws IOException {
+        return new PrintWriter(Files.newBufferedWriter(_snapshot.resolve(file), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,116 @@
+package nz.ac.auckland.concert.benchmarks;
+
+import nz.ac.auckland.concert.common.types.PriceBand;
+import nz.ac.auckland.concert.service.domain.jpa.Reservation;
+import nz.ac.auckland.concert.service.inventory.SeatRowStore;
+import nz.ac.auckland.concert.service.services.PersistenceManager;
+import nz.ac.auckland.concert.service.util.ServiceConfiguration;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures creating the seats of a concert date and creating reservations with each entity's ids allocated
+ * one at a time (an allocation size of 1, a sequence call per row) and in pooled blocks. Every invocation is
+ * rolled back, so the tables don't grow, but the sequences still move on. The number of statements sent per
+ * invocation is reported alongside the timings, which is where the round trips saved show up.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdAllocationBenchmark {
+
+    //reservations made together, as the reservation writer does for a batch of queued requests
+    private static final int RESERVATIONS = 10;
+
+    //synthetic concerts are numbered from here, clear of the catalogue's
+    private static final long FIRST_CONCERT = 1000;
+
+    private static final LocalDateTime DATE = LocalDateTime.of(2030, 1, 1, 20, 0);
+
+    @Param({"file", "memory", "server"})
+    private String _profile;
+
+    @Param({"1", "50"})
+    private int _allocationSize;
+
+    private Statistics _statistics;
+
+    private long _next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        //each set of parameters runs in its own JVM, where nothing has created the PersistenceManager yet
+        System.setProperty(ServiceConfiguration.DATABASE_PROFILE, _profile);
+        System.setProperty(ServiceConfiguration.DATABASE_START_SERVER, "true");
+        System.setProperty(ServiceConfiguration.ID_ALLOCATION_SIZE, String.valueOf(_allocationSize));
+
+        _statistics = PersistenceManager.instance().getEntityManagerFactory().unwrap(SessionFactory.class)
+                .getStatistics();
+        _statistics.setStatisticsEnabled(true);
+    }
+
+    @Benchmark
+    public void initialiseSeats(Statements statements) {
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+
+        try {
+            em.getTransaction().begin();
+            SeatRowStore.instance().createSeats(em, FIRST_CONCERT + _next++, DATE);
+            em.getTransaction().rollback();
+        } finally {
+            em.close();
+        }
+        statements._invocations++;
+    }
+
+    @Benchmark
+    public void createReservations(Statements statements) {
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+
+        try {
+            em.getTransaction().begin();
+            for (int i = 0; i < RESERVATIONS; i++) {
+                em.persist(new Reservation(Collections.emptySet(), "Benchmark", 2, PriceBand.PriceBandA,
+                        FIRST_CONCERT, DATE));
+            }
+            em.flush();
+            em.getTransaction().rollback();
+        } finally {
+            em.close();
+        }
+        statements._invocations++;
+    }
+
+    /**
+     * Reports the statements sent per invocation over each iteration, which JMH records in the results as a
+     * secondary result of the benchmark.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Statements {
+
+        private Statistics _statistics;
+
+        private long _invocations;
+
+        @Setup(Level.Iteration)
+        public void clear(IdAllocationBenchmark benchmark) {
+            _statistics = benchmark._statistics;
+            _statistics.clear();
+            _invocations = 0;
+        }
+
+        public double statementsPerInvocation() {
+            return _invocations == 0 ? 0 : (double) _statistics.getPrepareStatementCount() / _invocations;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package nz.ac.auckland.concert.benchmarks;
+
+import nz.ac.auckland.concert.common.dto.ConcertDTO;
+import nz.ac.auckland.concert.common.dto.ReservationDTO;
+import org.openjdk.jmh.annotations.*;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures XML marshalling and unmarshalling of the concert catalogue and of a list of reservations, using a
+ * JAXBContext created once and a new marshaller for each message, as the JAX-RS providers do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JaxbBenchmark {
+
+    @Param({"10", "100"})
+    private int _numberOfReservations;
+
+    private JAXBContext _context;
+
+    private ConcertList _concerts;
+
+    private ReservationList _reservations;
+
+    private byte[] _concertsXml;
+
+    private byte[] _reservationsXml;
+
+    @Setup
+    public void setUp() throws JAXBException {
+        _context = JAXBContext.newInstance(ConcertList.class, ReservationList.class);
+
+        _concerts = new ConcertList();
+        _concerts._concerts.addAll(Catalogue.concertDTOs());
+
+        _reservations = new ReservationList();
+        _reservations._reservations.addAll(Catalogue.reservationDTOs(_numberOfReservations, 4));
+
+        _concertsXml = marshal(_concerts);
+        _reservationsXml = marshal(_reservations);
+    }
+
+    @Benchmark
+    public byte[] marshalConcerts() throws JAXBException {
+        return marshal(_concerts);
+    }
+
+    @Benchmark
+    public Object unmarshalConcerts() throws JAXBException {
+        return _context.createUnmarshaller().unmarshal(new ByteArrayInputStream(_concertsXml));
+    }
+
+    @Benchmark
+    public byte[] marshalReservations() throws JAXBException {
+        return marshal(_reservations);
+    }
+
+    @Benchmark
+    public Object unmarshalReservations() throws JAXBException {
+        return _context.createUnmarshaller().unmarshal(new ByteArrayInputStream(_reservationsXml));
+    }
+
+    private byte[] marshal(Object list) throws JAXBException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        _context.createMarshaller().marshal(list, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Root element for a list of concerts, standing in for the collection wrapper that RESTEasy writes.
+     */
+    @XmlRootElement(name = "concerts")
+    @XmlAccessorType(XmlAccessType.FIELD)
+    public static class ConcertList {
+
+        @XmlElement(name = "concertDTO")
+        private List<ConcertDTO> _concerts = new ArrayList<>();
+
+        public ConcertList() {
+        }
+
+        ConcertList(List<ConcertDTO> concerts) {
+            _concerts.addAll(concerts);
+        }
+
+        List<ConcertDTO> getConcerts() {
+            return _concerts;
+        }
+    }
+
+    @XmlRootElement(name = "reservations")
+    @XmlAccessorType(XmlAccessType.FIELD)
+    public static class ReservationList {
+
+        @XmlElement(name = "reservationDTO")
+        private List<ReservationDTO> _reservations = new ArrayList<>();
+
+        public ReservationList() {
+        }
+
+        ReservationList(List<ReservationDTO> reservations) {
+            _reservations.addAll(reservations);
+        }
+
+        List<ReservationDTO> getReservations() {
+            return _reservations;
+        }
+    }
+}
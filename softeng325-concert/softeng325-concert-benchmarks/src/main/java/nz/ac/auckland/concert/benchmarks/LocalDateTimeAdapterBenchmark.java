@@ -0,0 +1,47 @@
+package nz.ac.auckland.concert.benchmarks;
+
+import nz.ac.auckland.concert.common.jaxb.LocalDateTimeAdapter;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversion of concert dates to and from their XML form, which is done for every date of every
+ * concert in a catalogue response. LocalDateTime's own toString and parse, which the adapter falls back on
+ * for dates outside its fast path, are measured alongside for comparison.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LocalDateTimeAdapterBenchmark {
+
+    private final LocalDateTimeAdapter _adapter = new LocalDateTimeAdapter();
+
+    private final LocalDateTime _dateTime = LocalDateTime.of(2018, 2, 24, 17, 30);
+
+    private final String _dateTimeAsString = _dateTime.toString();
+
+    @Benchmark
+    public String marshal() throws Exception {
+        return _adapter.marshal(_dateTime);
+    }
+
+    @Benchmark
+    public LocalDateTime unmarshal() throws Exception {
+        return _adapter.unmarshal(_dateTimeAsString);
+    }
+
+    @Benchmark
+    public String toIsoString() {
+        return _dateTime.toString();
+    }
+
+    @Benchmark
+    public LocalDateTime parseIsoString() {
+        return LocalDateTime.parse(_dateTimeAsString);
+    }
+}
@@ -0,0 +1,65 @@
+package nz.ac.auckland.concert.benchmarks;
+
+import nz.ac.auckland.concert.common.dto.BookingDTO;
+import nz.ac.auckland.concert.common.dto.ConcertDTO;
+import nz.ac.auckland.concert.common.dto.PerformerDTO;
+import nz.ac.auckland.concert.common.dto.ReservationDTO;
+import nz.ac.auckland.concert.service.domain.jpa.Concert;
+import nz.ac.auckland.concert.service.domain.jpa.Performer;
+import nz.ac.auckland.concert.service.domain.jpa.Reservation;
+import nz.ac.auckland.concert.service.mappers.ConcertMapper;
+import nz.ac.auckland.concert.service.mappers.PerformerMapper;
+import nz.ac.auckland.concert.service.mappers.ReservationMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the domain to DTO conversions done for each response: the full concert and performer catalogues,
+ * and a single reservation or booking.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MapperBenchmark {
+
+    @Param({"4", "16"})
+    private int _numberOfSeats;
+
+    private List<Concert> _concerts;
+
+    private List<Performer> _performers;
+
+    private Reservation _reservation;
+
+    @Setup
+    public void setUp() {
+        _concerts = Catalogue.concerts();
+        _performers = Catalogue.performers();
+        _reservation = Catalogue.reservation(_numberOfSeats);
+    }
+
+    @Benchmark
+    public List<ConcertDTO> concerts() {
+        return ConcertMapper.toDTOList(_concerts);
+    }
+
+    @Benchmark
+    public List<PerformerDTO> performers() {
+        return PerformerMapper.toDTOList(_performers);
+    }
+
+    @Benchmark
+    public ReservationDTO reservation() {
+        return ReservationMapper.toReservationDTO(_reservation);
+    }
+
+    @Benchmark
+    public BookingDTO booking() {
+        return ReservationMapper.toBookingDTO(_reservation, "Concert 1");
+    }
+}
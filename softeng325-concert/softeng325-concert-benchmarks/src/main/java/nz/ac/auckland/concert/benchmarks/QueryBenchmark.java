@@ -0,0 +1,130 @@
+package nz.ac.auckland.concert.benchmarks;
+
+import nz.ac.auckland.concert.common.types.PriceBand;
+import nz.ac.auckland.concert.service.domain.jpa.Reservation;
+import nz.ac.auckland.concert.service.services.PersistenceManager;
+import org.openjdk.jmh.annotations.*;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the service's hot SEATS and Reservation lookups as the tables grow, with and without the composite
+ * indexes declared on Seat and Reservation. The tables are filled with synthetic concert dates of 374 seats
+ * each (the size of the theatre) and with reservations of 20 per user and 100 per concert date, so with the
+ * indexes every lookup reads the same number of rows however large the tables are.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+
+    private static final int SEATS_PER_DATE = 374;
+
+    private static final int RESERVATIONS_PER_DATE = 100;
+
+    private static final int RESERVATIONS_PER_USER = 20;
+
+    //synthetic concerts are numbered from here, clear of the catalogue's
+    private static final long FIRST_CONCERT = 1000;
+
+    private static final LocalDateTime DATE = LocalDateTime.of(2030, 1, 1, 20, 0);
+
+    //rows in SEATS; RESERVATION gets a quarter as many
+    @Param({"10000", "100000", "1000000"})
+    private int _rows;
+
+    @Param({"true", "false"})
+    private boolean _indexed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+
+        em.getTransaction().begin();
+        em.createNativeQuery("INSERT INTO SEATS " +
+                "(seatId, version, seatType, concertId, concertDateTime, row, number, seatStatus) " +
+                "SELECT 100000000 + X, 0, " +
+                "CASE MOD(X / 21, 3) WHEN 0 THEN 'PriceBandA' WHEN 1 THEN 'PriceBandB' ELSE 'PriceBandC' END, " +
+                FIRST_CONCERT + " + X / " + SEATS_PER_DATE + ", TIMESTAMP '2030-01-01 20:00:00', " +
+                "MOD(X, " + SEATS_PER_DATE + ") / 21, MOD(MOD(X, " + SEATS_PER_DATE + "), 21) + 1, " +
+                "CASE MOD(X, 7) WHEN 0 THEN 'AVAILABLE' WHEN 1 THEN 'RESERVED' ELSE 'CONFIRMED' END " +
+                "FROM SYSTEM_RANGE(0, " + (_rows - 1) + ")")
+                .executeUpdate();
+        em.createNativeQuery("INSERT INTO RESERVATION " +
+                "(reservationId, userName, numberOfSeats, seatType, concertId, concertDate, reservationTime, " +
+                "reservationStatus) " +
+                "SELECT 100000000 + X, 'user' || (X / " + RESERVATIONS_PER_USER + "), 2, MOD(X, 3), " +
+                FIRST_CONCERT + " + X / " + RESERVATIONS_PER_DATE + ", TIMESTAMP '2030-01-01 20:00:00', " +
+                "TIMESTAMP '2029-12-01 12:00:00', " +
+                "CASE MOD(X, 5) WHEN 0 THEN 'EXPIRED' ELSE 'CONFIRMED' END " +
+                "FROM SYSTEM_RANGE(0, " + (_rows / 4 - 1) + ")")
+                .executeUpdate();
+
+        if (!_indexed) {
+            em.createNativeQuery("DROP INDEX IDX_SEATS_BAND_STATUS").executeUpdate();
+            em.createNativeQuery("DROP INDEX IDX_RESERVATION_CONCERT_DATE").executeUpdate();
+            em.createNativeQuery("DROP INDEX IDX_RESERVATION_USER_STATUS").executeUpdate();
+        }
+        em.createNativeQuery("ANALYZE").executeUpdate();
+        em.getTransaction().commit();
+        em.close();
+    }
+
+    @Benchmark
+    public List<Object[]> seatsForPriceBand() {
+        long concertId = FIRST_CONCERT + ThreadLocalRandom.current().nextInt(_rows / SEATS_PER_DATE);
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+
+        try {
+            //the query that loads a seat inventory
+            return em.createQuery("SELECT s._seatId, s._row, s._number, s._seatStatus FROM Seat s " +
+                    "WHERE s._concertId = :concertId AND s._concertDateTime = :dateTime AND s._seatType = :seatType",
+                    Object[].class)
+                    .setParameter("concertId", concertId)
+                    .setParameter("dateTime", DATE)
+                    .setParameter("seatType", PriceBand.PriceBandB)
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public List<Long> reservationsForConcertDate() {
+        long concertId = FIRST_CONCERT + ThreadLocalRandom.current().nextInt(_rows / 4 / RESERVATIONS_PER_DATE);
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+
+        try {
+            return em.createQuery("SELECT r._reservationId FROM Reservation r " +
+                    "WHERE r._concertId = :concertId AND r._date = :date", Long.class)
+                    .setParameter("concertId", concertId)
+                    .setParameter("date", DATE)
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public List<Long> bookingsForUser() {
+        String userName = "user" + ThreadLocalRandom.current().nextInt(_rows / 4 / RESERVATIONS_PER_USER);
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+
+        try {
+            return em.createQuery("SELECT r._reservationId FROM Reservation r " +
+                    "WHERE r._userName = :userName AND r._reservationStatus = :reservationStatus", Long.class)
+                    .setParameter("userName", userName)
+                    .setParameter("reservationStatus", Reservation.ReservationStatus.CONFIRMED)
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+}
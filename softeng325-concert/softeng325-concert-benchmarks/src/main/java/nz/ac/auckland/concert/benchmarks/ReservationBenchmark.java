@@ -0,0 +1,126 @@
+package nz.ac.auckland.concert.benchmarks;
+
+import nz.ac.auckland.concert.common.dto.CreditCardDTO;
+import nz.ac.auckland.concert.common.dto.ReservationDTO;
+import nz.ac.auckland.concert.common.dto.ReservationRequestDTO;
+import nz.ac.auckland.concert.common.dto.UserDTO;
+import nz.ac.auckland.concert.common.types.PriceBand;
+import nz.ac.auckland.concert.service.inventory.SeatInitialiser;
+import nz.ac.auckland.concert.service.inventory.SeatInventoryKey;
+import nz.ac.auckland.concert.service.inventory.SeatInventoryManager;
+import nz.ac.auckland.concert.service.services.PersistenceManager;
+import nz.ac.auckland.concert.service.services.ReservationResource;
+import nz.ac.auckland.concert.service.services.UserResource;
+import nz.ac.auckland.concert.service.util.SeatAllocator;
+import nz.ac.auckland.concert.service.util.ServiceConfiguration;
+import org.openjdk.jmh.annotations.*;
+
+import javax.persistence.EntityManager;
+import javax.ws.rs.core.Cookie;
+import javax.ws.rs.core.NewCookie;
+import javax.ws.rs.core.Response;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reserving and confirming seats end to end, calling the resources directly against the service's
+ * embedded H2 database. Each invocation reserves two seats for the next concert date and price band in turn
+ * and confirms them; the seats are all made available again before each iteration. The benchmark is run
+ * against each of the service's database profiles, with the seats stored in each of its formats.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReservationBenchmark {
+
+    @Param({"file", "memory", "server"})
+    private String _profile;
+
+    @Param({"rows", "bitmap"})
+    private String _format;
+
+    private ReservationResource _resource;
+
+    private Cookie _token;
+
+    private List<Object[]> _concertDates;
+
+    private int _next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        //each set of parameters runs in its own JVM, where nothing has created the PersistenceManager yet
+        System.setProperty(ServiceConfiguration.DATABASE_PROFILE, _profile);
+        System.setProperty(ServiceConfiguration.DATABASE_START_SERVER, "true");
+        System.setProperty(ServiceConfiguration.SEAT_FORMAT, _format);
+
+        UserResource userResource = new UserResource();
+
+        Response response = userResource.createUser(new UserDTO("Benchmark", "123", "Lovelace", "Ada"));
+        _token = new Cookie("token", ((NewCookie) response.getCookies().get("token")).getValue());
+        userResource.addCreditCard(new CreditCardDTO(
+                CreditCardDTO.Type.Visa, "Ada Lovelace", "4929-1500-0000-0000", LocalDate.of(2030, 1, 1)), _token);
+
+        SeatInitialiser.instance().initialiseAll();
+
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+        _concertDates = em.createQuery("SELECT c._id, d FROM Concert c JOIN c._dates d", Object[].class)
+                .getResultList();
+        em.close();
+
+        _resource = new ReservationResource();
+    }
+
+    @Setup(Level.Iteration)
+    public void releaseSeats() {
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+
+        em.getTransaction().begin();
+        em.createNativeQuery("DELETE FROM RESERVATION_SEATS").executeUpdate();
+        em.createNativeQuery("DELETE FROM RESERVATION").executeUpdate();
+        em.createNativeQuery("UPDATE SEATS SET seatStatus = 'AVAILABLE'").executeUpdate();
+
+        for (PriceBand priceBand : PriceBand.values()) {
+            int capacity = new SeatAllocator(priceBand).getCapacity();
+            BitSet free = new BitSet(capacity);
+            free.set(0, capacity);
+
+            em.createNativeQuery("UPDATE SEAT_MAPS SET freeSeats = ?, freeCount = capacity, " +
+                    "confirmedSeats = X'', confirmedCount = 0, version = version + 1 WHERE seatType = ?")
+                    .setParameter(1, free.toByteArray())
+                    .setParameter(2, priceBand.name())
+                    .executeUpdate();
+        }
+        em.getTransaction().commit();
+        em.close();
+
+        //the inventories are rebuilt from the freed seats on their next use
+        for (Object[] concertDate : _concertDates) {
+            for (PriceBand priceBand : PriceBand.values()) {
+                SeatInventoryManager.instance().evict(
+                        new SeatInventoryKey((Long) concertDate[0], (LocalDateTime) concertDate[1], priceBand));
+            }
+        }
+    }
+
+    @Benchmark
+    public int reserveAndConfirm() {
+        Object[] concertDate = _concertDates.get(_next % _concertDates.size());
+        PriceBand priceBand = PriceBand.values()[(_next / _concertDates.size()) % PriceBand.values().length];
+        _next++;
+
+        Response reservation = _resource.makeReservation(_token, new ReservationRequestDTO(
+                2, priceBand, (Long) concertDate[0], (LocalDateTime) concertDate[1]));
+
+        if (reservation.getStatus() != Response.Status.OK.getStatusCode()) {
+            return reservation.getStatus();
+        }
+        return _resource.confirmReservation(_token, (ReservationDTO) reservation.getEntity()).getStatus();
+    }
+}
@@ -0,0 +1,86 @@
+package nz.ac.auckland.concert.benchmarks;
+
+import nz.ac.auckland.concert.common.types.PriceBand;
+import nz.ac.auckland.concert.common.types.SeatNumber;
+import nz.ac.auckland.concert.common.types.SeatRow;
+import nz.ac.auckland.concert.service.domain.jpa.Seat;
+import nz.ac.auckland.concert.service.util.SeatAllocator;
+import nz.ac.auckland.concert.service.util.TheatreUtility;
+import nz.ac.auckland.concert.utility.TheatreLayout;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the original random seat search with the row-aware allocator, for a price band that is partly
+ * sold. The stateless searches are given the band's free seats, as the reservation code used to be; the
+ * stateful allocator is what the seat inventory now keeps for each band.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SeatAllocationBenchmark {
+
+    @Param({"PriceBandA", "PriceBandC"})
+    private PriceBand _priceBand;
+
+    @Param({"2", "8"})
+    private int _numberOfSeats;
+
+    //fraction of the band that is already sold
+    @Param({"0.5"})
+    private double _sold;
+
+    private Set<Seat> _availableSeats;
+
+    private SeatAllocator _allocator;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(325);
+        LocalDateTime date = LocalDateTime.of(2018, 1, 1, 20, 0);
+
+        SeatAllocator layout = new SeatAllocator(_priceBand);
+        BitSet free = new BitSet(layout.getCapacity());
+        _availableSeats = new HashSet<>();
+
+        for (SeatRow row : TheatreLayout.getRowsForPriceBand(_priceBand)) {
+            for (int number = 1; number <= TheatreLayout.getNumberOfSeatsForRow(row); number++) {
+                if (random.nextDouble() < _sold) {
+                    continue;
+                }
+                Seat seat = new Seat(row, new SeatNumber(number), 1L, date);
+                seat.setSeatType(_priceBand);
+                _availableSeats.add(seat);
+                free.set(layout.positionOf(row, number));
+            }
+        }
+        _allocator = new SeatAllocator(_priceBand, free);
+    }
+
+    @Benchmark
+    public Set<Seat> randomSearch() {
+        return TheatreUtility.findAvailableSeats(_numberOfSeats, _availableSeats);
+    }
+
+    @Benchmark
+    public Set<Seat> adjacentSearch() {
+        return TheatreUtility.findAdjacentSeats(_numberOfSeats, _availableSeats);
+    }
+
+    @Benchmark
+    public int[] allocator() {
+        //give the seats back so every invocation sees the same band
+        int[] positions = _allocator.allocate(_numberOfSeats);
+        _allocator.release(positions);
+        return positions;
+    }
+}
@@ -0,0 +1,158 @@
+package nz.ac.auckland.concert.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import nz.ac.auckland.concert.common.dto.ConcertDTO;
+import nz.ac.auckland.concert.common.dto.ReservationDTO;
+import nz.ac.auckland.concert.common.jackson.DtoMappers;
+import org.openjdk.jmh.annotations.*;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures encoding and decoding the concert catalogue and a list of reservations in each of the wire
+ * formats the service offers: XML through JAXB, as JaxbBenchmark does, and JSON and CBOR through the
+ * ObjectMappers that the JSON and CBOR providers use. The size of each payload is reported alongside the
+ * timings, and each format is checked to decode what it encoded.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WireFormatBenchmark {
+
+    @Param({"xml", "json", "cbor"})
+    private String _format;
+
+    @Param({"10", "100"})
+    private int _numberOfReservations;
+
+    private JAXBContext _context;
+
+    private ObjectWriter _concertsWriter;
+
+    private ObjectReader _concertsReader;
+
+    private ObjectWriter _reservationsWriter;
+
+    private ObjectReader _reservationsReader;
+
+    private List<ConcertDTO> _concerts;
+
+    private List<ReservationDTO> _reservations;
+
+    private byte[] _concertsPayload;
+
+    private byte[] _reservationsPayload;
+
+    @Setup
+    public void setUp() throws JAXBException, IOException {
+        _context = JAXBContext.newInstance(JaxbBenchmark.ConcertList.class, JaxbBenchmark.ReservationList.class);
+
+        ObjectMapper mapper = _format.equals("cbor") ? DtoMappers.cbor() : DtoMappers.json();
+        TypeReference<List<ConcertDTO>> concertsType = new TypeReference<List<ConcertDTO>>() {};
+        TypeReference<List<ReservationDTO>> reservationsType = new TypeReference<List<ReservationDTO>>() {};
+        _concertsWriter = mapper.writerFor(concertsType);
+        _concertsReader = mapper.readerFor(concertsType);
+        _reservationsWriter = mapper.writerFor(reservationsType);
+        _reservationsReader = mapper.readerFor(reservationsType);
+
+        _concerts = Catalogue.concertDTOs();
+        _reservations = Catalogue.reservationDTOs(_numberOfReservations, 4);
+
+        _concertsPayload = writeConcerts();
+        _reservationsPayload = writeReservations();
+
+        if (!readConcerts().equals(_concerts) || !readReservations().equals(_reservations)) {
+            throw new IllegalStateException(_format + " does not decode what it encodes");
+        }
+    }
+
+    @Benchmark
+    public byte[] encodeConcerts(PayloadSizes sizes) throws JAXBException, IOException {
+        return writeConcerts();
+    }
+
+    @Benchmark
+    public List<ConcertDTO> decodeConcerts(PayloadSizes sizes) throws JAXBException, IOException {
+        return readConcerts();
+    }
+
+    @Benchmark
+    public byte[] encodeReservations(PayloadSizes sizes) throws JAXBException, IOException {
+        return writeReservations();
+    }
+
+    @Benchmark
+    public List<ReservationDTO> decodeReservations(PayloadSizes sizes) throws JAXBException, IOException {
+        return readReservations();
+    }
+
+    private byte[] writeConcerts() throws JAXBException, IOException {
+        return _format.equals("xml")
+                ? marshal(new JaxbBenchmark.ConcertList(_concerts))
+                : _concertsWriter.writeValueAsBytes(_concerts);
+    }
+
+    private List<ConcertDTO> readConcerts() throws JAXBException, IOException {
+        return _format.equals("xml")
+                ? ((JaxbBenchmark.ConcertList) unmarshal(_concertsPayload)).getConcerts()
+                : _concertsReader.readValue(_concertsPayload);
+    }
+
+    private byte[] writeReservations() throws JAXBException, IOException {
+        return _format.equals("xml")
+                ? marshal(new JaxbBenchmark.ReservationList(_reservations))
+                : _reservationsWriter.writeValueAsBytes(_reservations);
+    }
+
+    private List<ReservationDTO> readReservations() throws JAXBException, IOException {
+        return _format.equals("xml")
+                ? ((JaxbBenchmark.ReservationList) unmarshal(_reservationsPayload)).getReservations()
+                : _reservationsReader.readValue(_reservationsPayload);
+    }
+
+    private byte[] marshal(Object list) throws JAXBException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        _context.createMarshaller().marshal(list, out);
+        return out.toByteArray();
+    }
+
+    private Object unmarshal(byte[] payload) throws JAXBException {
+        return _context.createUnmarshaller().unmarshal(new ByteArrayInputStream(payload));
+    }
+
+    /**
+     * Reports the size in bytes of each payload in the format being measured, which JMH records in the results
+     * as secondary results of every benchmark that takes it.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class PayloadSizes {
+
+        private WireFormatBenchmark _benchmark;
+
+        @Setup(Level.Trial)
+        public void setUp(WireFormatBenchmark benchmark) {
+            _benchmark = benchmark;
+        }
+
+        public long concertsBytes() {
+            return _benchmark._concertsPayload.length;
+        }
+
+        public long reservationsBytes() {
+            return _benchmark._reservationsPayload.length;
+        }
+    }
+}
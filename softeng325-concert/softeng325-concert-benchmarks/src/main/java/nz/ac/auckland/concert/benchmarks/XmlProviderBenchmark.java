@@ -0,0 +1,143 @@
+package nz.ac.auckland.concert.benchmarks;
+
+import nz.ac.auckland.concert.common.dto.ConcertDTO;
+import nz.ac.auckland.concert.common.dto.ReservationDTO;
+import nz.ac.auckland.concert.common.jaxb.DtoContextResolver;
+import nz.ac.auckland.concert.service.services.DtoContextFinder;
+import org.jboss.resteasy.plugins.providers.RegisterBuiltin;
+import org.jboss.resteasy.plugins.providers.jaxb.JaxbCollection;
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
+import org.openjdk.jmh.annotations.*;
+
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Providers;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures XML messages going through RESTEasy's JAXB providers as they do in the service and client: the
+ * concert catalogue written as the list the concerts resource returns and read back as the client's set,
+ * and a reservation written and read as a single entity. With pooled set, the DtoContextResolver and
+ * DtoContextFinder are registered, as ConcertApplication does; otherwise the providers find their own
+ * contexts and create a marshaller for every message. Run with -prof gc to see the allocation per message.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class XmlProviderBenchmark {
+
+    private static final Annotation[] NO_ANNOTATIONS = {};
+
+    private static final Type CONCERT_LIST = new GenericType<List<ConcertDTO>>() {}.getType();
+
+    private static final Type CONCERT_SET = new GenericType<Set<ConcertDTO>>() {}.getType();
+
+    @Param({"false", "true"})
+    private boolean _pooled;
+
+    private MessageBodyWriter<Object> _concertsWriter;
+
+    private MessageBodyReader<Object> _concertsReader;
+
+    private MessageBodyWriter<Object> _reservationWriter;
+
+    private MessageBodyReader<Object> _reservationReader;
+
+    private List<ConcertDTO> _concerts;
+
+    private ReservationDTO _reservation;
+
+    private byte[] _concertsXml;
+
+    private byte[] _reservationXml;
+
+    //reused, so that the stream's own buffers aren't counted as the providers' allocation
+    private final ByteArrayOutputStream _out = new ByteArrayOutputStream(64 * 1024);
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws IOException {
+        ResteasyProviderFactory factory = new ResteasyProviderFactory();
+        RegisterBuiltin.register(factory);
+        if (_pooled) {
+            factory.registerProviderInstance(new DtoContextResolver(JaxbCollection.class));
+            factory.registerProviderInstance(new DtoContextFinder());
+        }
+        //the providers look up the Providers of the request being processed
+        ResteasyProviderFactory.pushContext(Providers.class, factory);
+
+        MediaType xml = MediaType.APPLICATION_XML_TYPE;
+        _concertsWriter = (MessageBodyWriter<Object>) (MessageBodyWriter<?>)
+                factory.getMessageBodyWriter(List.class, CONCERT_LIST, NO_ANNOTATIONS, xml);
+        _concertsReader = (MessageBodyReader<Object>) (MessageBodyReader<?>)
+                factory.getMessageBodyReader(Set.class, CONCERT_SET, NO_ANNOTATIONS, xml);
+        _reservationWriter = (MessageBodyWriter<Object>) (MessageBodyWriter<?>)
+                factory.getMessageBodyWriter(ReservationDTO.class, ReservationDTO.class, NO_ANNOTATIONS, xml);
+        _reservationReader = (MessageBodyReader<Object>) (MessageBodyReader<?>)
+                factory.getMessageBodyReader(ReservationDTO.class, ReservationDTO.class, NO_ANNOTATIONS, xml);
+
+        _concerts = Catalogue.concertDTOs();
+        _reservation = Catalogue.reservationDTOs(1, 4).get(0);
+
+        writeConcerts();
+        _concertsXml = _out.toByteArray();
+        writeReservation();
+        _reservationXml = _out.toByteArray();
+
+        if (!new HashSet<>(_concerts).equals(readConcerts()) || !_reservation.equals(readReservation())) {
+            throw new IllegalStateException("XML does not decode what it encodes");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        ResteasyProviderFactory.clearContextData();
+    }
+
+    @Benchmark
+    public int writeConcerts() throws IOException {
+        _out.reset();
+        _concertsWriter.writeTo(_concerts, List.class, CONCERT_LIST, NO_ANNOTATIONS,
+                MediaType.APPLICATION_XML_TYPE, new MultivaluedHashMap<>(), _out);
+        return _out.size();
+    }
+
+    @Benchmark
+    public Object readConcerts() throws IOException {
+        return _concertsReader.readFrom(raw(Set.class), CONCERT_SET, NO_ANNOTATIONS, MediaType.APPLICATION_XML_TYPE,
+                new MultivaluedHashMap<>(), new ByteArrayInputStream(_concertsXml));
+    }
+
+    @Benchmark
+    public int writeReservation() throws IOException {
+        _out.reset();
+        _reservationWriter.writeTo(_reservation, ReservationDTO.class, ReservationDTO.class, NO_ANNOTATIONS,
+                MediaType.APPLICATION_XML_TYPE, new MultivaluedHashMap<>(), _out);
+        return _out.size();
+    }
+
+    @Benchmark
+    public Object readReservation() throws IOException {
+        return _reservationReader.readFrom(raw(ReservationDTO.class), ReservationDTO.class, NO_ANNOTATIONS,
+                MediaType.APPLICATION_XML_TYPE, new MultivaluedHashMap<>(), new ByteArrayInputStream(_reservationXml));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<Object> raw(Class<?> type) {
+        return (Class<Object>) type;
+    }
+}
@@ -2,6 +2,9 @@ package nz.ac.auckland.concert.client.service;
 
 import nz.ac.auckland.concert.client.util.AWSUtil;
 import nz.ac.auckland.concert.common.dto.*;
+import nz.ac.auckland.concert.common.jackson.CborProvider;
+import nz.ac.auckland.concert.common.jackson.JsonProvider;
+import nz.ac.auckland.concert.common.jaxb.DtoContextResolver;
 import nz.ac.auckland.concert.common.message.Messages;
 import nz.ac.auckland.concert.service.domain.jpa.NewsItem;
 
@@ -18,9 +21,14 @@ public class DefaultService implements ConcertService {
 
     private Set<PerformerDTO> _performerCache = new HashSet<>();
     private LocalDateTime _performerCacheExpiry = null;
+    private EntityTag _performerCacheTag = null;
 
     private Set<ConcertDTO> _concertCache = new HashSet<>();
     private LocalDateTime _concertCacheExpiry = null;
+    private EntityTag _concertCacheTag = null;
+
+    //shared by every client, so the DTOs' JAXBContext is built once
+    private final static DtoContextResolver JAXB_CONTEXTS = new DtoContextResolver();
 
     private final static Logger LOGGER = Logger.getLogger(DefaultService.class.getName());
 
@@ -33,6 +41,26 @@ public class DefaultService implements ConcertService {
 
     private Cookie _token;
 
+    /**
+     * System property naming the media type DTOs are exchanged in: application/xml (the default),
+     * application/json or application/cbor.
+     */
+    public static final String MEDIA_TYPE = "concert.client.mediaType";
+
+    private final String _mediaType;
+
+    public DefaultService() {
+        this(System.getProperty(MEDIA_TYPE, MediaType.APPLICATION_XML));
+    }
+
+    /**
+     * Creates a service that exchanges DTOs in the given media type, which must be one of those named by
+     * MEDIA_TYPE.
+     */
+    public DefaultService(String mediaType) {
+        _mediaType = mediaType;
+    }
+
     /**
      * Returns a Set of ConcertDTO objects, where each ConcertDTO instance
      * describes a concert.
@@ -43,18 +71,29 @@ public class DefaultService implements ConcertService {
     @Override
     public Set<ConcertDTO> getConcerts() throws ServiceException {
 
-        Client client = ClientBuilder.newClient();
+        Client client = newClient();
 
         try {
             //if the cache is out of date or has not been set, retrieve concerts from DB
             if (_concertCacheExpiry == null || _concertCacheExpiry.isBefore(LocalDateTime.now())) {
 
-                // Make an invocation on a Concert URI and specify XML as the data return type
+                // Make an invocation on a Concert URI and specify the configured media type as the data return type
                 Invocation.Builder builder = client.target(CONCERT_WEB_SERVICE_URI).request()
-                        .accept(MediaType.APPLICATION_XML);
+                        .accept(_mediaType);
+
+                //ask for the concerts only if they have changed since the cache was filled
+                if (_concertCacheTag != null) {
+                    builder.header(HttpHeaders.IF_NONE_MATCH, _concertCacheTag);
+                }
 
                 Response response = builder.get();
 
+                if (response.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode()) {
+                    _concertCacheExpiry = expiry(response);
+                    response.close();
+                    return _concertCache;
+                }
+
                 //check that request did not encounter errors
                 if (response.getStatus() != Response.Status.OK.getStatusCode()) {
                     throw new ServiceException(Messages.SERVICE_COMMUNICATION_ERROR);
@@ -64,13 +103,9 @@ public class DefaultService implements ConcertService {
                 });
 
                 //reset cache with new data from DB
-                CacheControl cacheControl = CacheControl.valueOf(response.getHeaderString(HttpHeaders.CACHE_CONTROL));
-
-                int cacheTime = cacheControl.getMaxAge();
-                LocalDateTime now = LocalDateTime.now();
-
                 _concertCache = concertDTOS;
-                _concertCacheExpiry = now.plus(Duration.ofSeconds(cacheTime));
+                _concertCacheExpiry = expiry(response);
+                _concertCacheTag = response.getEntityTag();
 
                 return concertDTOS;
             } else {
@@ -90,17 +125,28 @@ public class DefaultService implements ConcertService {
      */
     @Override
     public Set<PerformerDTO> getPerformers() throws ServiceException {
-        Client client = ClientBuilder.newClient();
+        Client client = newClient();
 
         try {
             //if the cache has not been set or is out of date, retrieve performers from DB
             if (_performerCacheExpiry == null || _performerCacheExpiry.isBefore(LocalDateTime.now())) {
-                // Make an invocation on a Concert URI and specify XML as the data return type
+                // Make an invocation on a Concert URI and specify the configured media type as the data return type
                 Invocation.Builder builder = client.target(PERFORMER_WEB_SERVICE_URI).request()
-                        .accept(MediaType.APPLICATION_XML);
+                        .accept(_mediaType);
+
+                //ask for the performers only if they have changed since the cache was filled
+                if (_performerCacheTag != null) {
+                    builder.header(HttpHeaders.IF_NONE_MATCH, _performerCacheTag);
+                }
 
                 Response response = builder.get();
 
+                if (response.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode()) {
+                    _performerCacheExpiry = expiry(response);
+                    response.close();
+                    return _performerCache;
+                }
+
                 if (response.getStatus() != Response.Status.OK.getStatusCode()) {
                     throw new ServiceException(Messages.SERVICE_COMMUNICATION_ERROR);
                 }
@@ -109,13 +155,9 @@ public class DefaultService implements ConcertService {
                 });
 
                 //reset cache data
-                CacheControl cacheControl = CacheControl.valueOf(response.getHeaderString(HttpHeaders.CACHE_CONTROL));
-
-                int cacheTime = cacheControl.getMaxAge();
-                LocalDateTime now = LocalDateTime.now();
-
                 _performerCache.addAll(performerDTOS);
-                _performerCacheExpiry = now.plus(Duration.ofSeconds(cacheTime));
+                _performerCacheExpiry = expiry(response);
+                _performerCacheTag = response.getEntityTag();
 
                 return performerDTOS;
             } else {
@@ -150,7 +192,7 @@ public class DefaultService implements ConcertService {
      */
     @Override
     public UserDTO createUser(UserDTO newUser) throws ServiceException {
-        Client client = ClientBuilder.newClient();
+        Client client = newClient();
 
         try {
             // a request is only made if all required fields are set
@@ -160,8 +202,8 @@ public class DefaultService implements ConcertService {
             }
 
             //send HTTP request to create new user
-            Invocation.Builder builder = client.target(USER_WEB_SERVICE_URI).request().accept(MediaType.APPLICATION_XML);
-            Response response = builder.post(Entity.entity(newUser, MediaType.APPLICATION_XML));
+            Invocation.Builder builder = client.target(USER_WEB_SERVICE_URI).request().accept(_mediaType);
+            Response response = builder.post(Entity.entity(newUser, _mediaType));
 
             //verify the status of the response
             if (response.getStatus() == Response.Status.CREATED.getStatusCode()) { //user successfully created
@@ -207,7 +249,7 @@ public class DefaultService implements ConcertService {
      */
     @Override
     public UserDTO authenticateUser(UserDTO userDTO) throws ServiceException {
-        Client client = ClientBuilder.newClient();
+        Client client = newClient();
         try {
 
             //request will only be generated if all required fields are set
@@ -219,7 +261,7 @@ public class DefaultService implements ConcertService {
             String uri = USER_WEB_SERVICE_URI + "/authenticate";
 
             Invocation.Builder builder = client.target(uri).request();
-            Response response = builder.post(Entity.entity(userDTO, MediaType.APPLICATION_XML));
+            Response response = builder.post(Entity.entity(userDTO, _mediaType));
 
             //verify the status of the response
             if (response.getStatus() == Response.Status.NOT_FOUND.getStatusCode()) {
@@ -255,14 +297,14 @@ public class DefaultService implements ConcertService {
      */
     @Override
     public Image getImageForPerformer(PerformerDTO performerDTO) throws ServiceException {
-        Client client = ClientBuilder.newClient();
+        Client client = newClient();
 
         try {
             String performerURI = PERFORMER_WEB_SERVICE_URI + "/" + performerDTO.getId();
 
             //retrieve the performer from the DB with the given ID
             Invocation.Builder builder = client.target(performerURI).request()
-                    .accept(MediaType.APPLICATION_XML);
+                    .accept(_mediaType);
 
             Response response = builder.get();
 
@@ -335,15 +377,15 @@ public class DefaultService implements ConcertService {
             throw new ServiceException(Messages.RESERVATION_REQUEST_WITH_MISSING_FIELDS);
         }
 
-        Client client = ClientBuilder.newClient();
+        Client client = newClient();
 
         try {
             String uri = RESERVATION_WEB_SERVICE_URI + "/reserve";
 
             Invocation.Builder builder = client.target(uri).request()
-                    .accept(MediaType.APPLICATION_XML).cookie(_token);
+                    .accept(_mediaType).cookie(_token);
 
-            Response response = builder.post(Entity.entity(reservationRequestDTO, MediaType.APPLICATION_XML));
+            Response response = builder.post(Entity.entity(reservationRequestDTO, _mediaType));
 
             //verify the status of the response
             if (response.getStatus() == Response.Status.OK.getStatusCode()) { //reservation has successfully been created
@@ -397,16 +439,16 @@ public class DefaultService implements ConcertService {
             throw new ServiceException(Messages.UNAUTHENTICATED_REQUEST);
         }
 
-        Client client = ClientBuilder.newClient();
+        Client client = newClient();
         try {
 
             String uri = RESERVATION_WEB_SERVICE_URI + "/confirm";
 
             //confirm the given requestDTO
             Invocation.Builder builder = client.target(uri).request()
-                    .accept(MediaType.APPLICATION_XML).cookie(_token);
+                    .accept(_mediaType).cookie(_token);
 
-            Response response = builder.post(Entity.entity(reservationDTO, MediaType.APPLICATION_XML));
+            Response response = builder.post(Entity.entity(reservationDTO, _mediaType));
 
             //verify the status of the response
             if (response.getStatus() == Response.Status.CREATED.getStatusCode()) {
@@ -449,17 +491,17 @@ public class DefaultService implements ConcertService {
             throw new ServiceException(Messages.UNAUTHENTICATED_REQUEST);
         }
 
-        Client client = ClientBuilder.newClient();
+        Client client = newClient();
 
         try {
 
             String userURI = USER_WEB_SERVICE_URI + "/registerCard";
 
-            Invocation.Builder builder = client.target(userURI).request(MediaType.APPLICATION_XML)
-                    .accept(MediaType.APPLICATION_XML).cookie(_token);
+            Invocation.Builder builder = client.target(userURI).request(_mediaType)
+                    .accept(_mediaType).cookie(_token);
 
             Response response = builder.put(Entity.entity(creditCard,
-                    MediaType.APPLICATION_XML));
+                    _mediaType));
 
             //verify the status of the response
             if (response.getStatus() == Response.Status.OK.getStatusCode()) {
@@ -503,11 +545,11 @@ public class DefaultService implements ConcertService {
             throw new ServiceException(Messages.UNAUTHENTICATED_REQUEST);
         }
 
-        Client client = ClientBuilder.newClient();
+        Client client = newClient();
         try {
-            // Make an invocation on a Concert URI and specify XML as the data return type
+            // Make an invocation on a Concert URI and specify the configured media type as the data return type
             Invocation.Builder builder = client.target(RESERVATION_WEB_SERVICE_URI).request()
-                    .accept(MediaType.APPLICATION_XML).cookie(_token);
+                    .accept(_mediaType).cookie(_token);
 
             Response response = builder.get();
 
@@ -534,7 +576,7 @@ public class DefaultService implements ConcertService {
             throw new ServiceException(Messages.UNAUTHENTICATED_REQUEST);
         }
 
-        Client client = ClientBuilder.newClient();
+        Client client = newClient();
 
         final WebTarget target = client.target(NEWS_ITEM_WEB_SERVICE_URI);
 
@@ -557,12 +599,12 @@ public class DefaultService implements ConcertService {
      * Unsubscribes the currently authenticated user from the news item subscription.
      */
     public void unsubscribe() {
-        Client client = ClientBuilder.newClient();
+        Client client = newClient();
 
         try {
             //posts the input news item to the server for server to notify clients.
             Invocation.Builder builder = client.target(NEWS_ITEM_WEB_SERVICE_URI).request()
-                    .accept(MediaType.APPLICATION_XML).cookie(_token);
+                    .accept(_mediaType).cookie(_token);
 
             Response response = builder.delete();
 
@@ -584,14 +626,14 @@ public class DefaultService implements ConcertService {
      * @param newsItem: to be sent to listeners
      */
     public void publishNewsItem(NewsItemDTO newsItem) {
-        Client client = ClientBuilder.newClient();
+        Client client = newClient();
 
         try {
             //posts the input news item to the server for server to notify clients.
             Invocation.Builder builder = client.target(NEWS_ITEM_WEB_SERVICE_URI).request()
-                    .accept(MediaType.APPLICATION_XML).cookie(_token);
+                    .accept(_mediaType).cookie(_token);
 
-            Response response = builder.post(Entity.entity(newsItem, MediaType.APPLICATION_XML));
+            Response response = builder.post(Entity.entity(newsItem, _mediaType));
 
             if (response.getStatus() != Response.Status.OK.getStatusCode()) {
                 throw new ServiceException(Messages.SERVICE_COMMUNICATION_ERROR);
@@ -601,4 +643,20 @@ public class DefaultService implements ConcertService {
         }
     }
 
+    //the time until which a catalogue response may be reused, going by its Cache-Control max-age. A response
+    //without one may not be reused at all
+    private static LocalDateTime expiry(Response response) {
+        String header = response.getHeaderString(HttpHeaders.CACHE_CONTROL);
+        if (header == null) {
+            return LocalDateTime.now();
+        }
+        CacheControl cacheControl = CacheControl.valueOf(header);
+        return LocalDateTime.now().plus(Duration.ofSeconds(Math.max(cacheControl.getMaxAge(), 0)));
+    }
+
+    private static Client newClient() {
+        return ClientBuilder.newClient().register(JAXB_CONTEXTS).register(JsonProvider.class)
+                .register(CborProvider.class);
+    }
+
 }
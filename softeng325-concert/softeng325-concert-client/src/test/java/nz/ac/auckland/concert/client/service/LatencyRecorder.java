@@ -0,0 +1,79 @@
+package nz.ac.auckland.concert.client.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects the latency of every call a load test makes, by operation name, and
+ * summarises each operation as its throughput and p50/p99/p999 latencies.
+ */
+public class LatencyRecorder {
+
+	private final Map<String, List<Long>> _latencies = new ConcurrentHashMap<>();
+
+	/**
+	 * Records one call of the named operation that took the given number of
+	 * nanoseconds.
+	 */
+	public void record(String operation, long nanos) {
+		List<Long> latencies = _latencies.computeIfAbsent(operation, name -> new ArrayList<>());
+
+		synchronized (latencies) {
+			latencies.add(nanos);
+		}
+	}
+
+	public int getCount(String operation) {
+		List<Long> latencies = _latencies.get(operation);
+
+		if (latencies == null) {
+			return 0;
+		}
+		synchronized (latencies) {
+			return latencies.size();
+		}
+	}
+
+	/**
+	 * Returns a table with a line for each operation, giving the number of
+	 * calls, the calls per second over the given run time and the latency
+	 * percentiles in milliseconds.
+	 */
+	public String report(long elapsedNanos) {
+		StringBuilder report = new StringBuilder(String.format("%-20s %8s %10s %10s %10s %10s%n",
+				"operation", "count", "ops/s", "p50 ms", "p99 ms", "p999 ms"));
+
+		for (Map.Entry<String, List<Long>> entry : _latencies.entrySet()) {
+			long[] sorted;
+
+			synchronized (entry.getValue()) {
+				sorted = new long[entry.getValue().size()];
+				for (int i = 0; i < sorted.length; i++) {
+					sorted[i] = entry.getValue().get(i);
+				}
+			}
+			Arrays.sort(sorted);
+
+			report.append(String.format("%-20s %8d %10.1f %10.2f %10.2f %10.2f%n",
+					entry.getKey(),
+					sorted.length,
+					sorted.length * 1e9 / elapsedNanos,
+					percentile(sorted, 0.50) / 1e6,
+					percentile(sorted, 0.99) / 1e6,
+					percentile(sorted, 0.999) / 1e6));
+		}
+		return report.toString();
+	}
+
+	// nearest-rank percentile of an ascending array
+	private static long percentile(long[] sorted, double fraction) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int rank = (int) Math.ceil(fraction * sorted.length);
+		return sorted[Math.max(rank, 1) - 1];
+	}
+}
@@ -0,0 +1,289 @@
+package nz.ac.auckland.concert.client.service;
+
+import nz.ac.auckland.concert.common.dto.*;
+import nz.ac.auckland.concert.common.message.Messages;
+import nz.ac.auckland.concert.common.types.PriceBand;
+import nz.ac.auckland.concert.service.domain.jpa.Reservation;
+import nz.ac.auckland.concert.service.domain.jpa.Seat;
+import nz.ac.auckland.concert.service.domain.jpa.SeatMap;
+import nz.ac.auckland.concert.service.inventory.SeatMapStore;
+import nz.ac.auckland.concert.service.inventory.SeatStore;
+import nz.ac.auckland.concert.service.reservation.ReservationReaper;
+import nz.ac.auckland.concert.service.reservation.SeatClaimStrategy;
+import nz.ac.auckland.concert.service.services.ConcertApplication;
+import nz.ac.auckland.concert.service.services.DatabaseProfile;
+import nz.ac.auckland.concert.service.services.PersistenceManager;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.jboss.resteasy.plugins.server.servlet.HttpServletDispatcher;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Load test that storms one concert date with simulated users. The Web service
+ * is hosted in an embedded servlet container, as in ConcertServiceTest, and
+ * each simulated user drives it through its own DefaultService: every cycle
+ * creates a user, registers a credit card, reserves a few seats and confirms
+ * them. Some users abandon their reservations instead of confirming them, so
+ * that holds expire while the storm is running.
+ *
+ * When the storm is over the test logs the throughput and p50/p99/p999 latency
+ * of each operation, and checks that
+ *
+ * - no seat has been sold twice, either in the confirmed reservations the
+ *   users were given or in the database, and
+ *
+ * - once the reservation expiry time has passed, no seats are still held, so
+ *   the seats of every abandoned reservation have been returned. The expiry
+ *   time is the service's concert.reservation.timeToLive.
+ *
+ * The storm takes a while, so it is skipped unless the load system property
+ * is set (e.g. mvn test -Dload=true -Dtest=ReservationLoadTest). Like
+ * ConcertServiceTest it serves on port 10000, where DefaultService expects
+ * the Web service, so the two can't run at the same time.
+ *
+ * The load is configured with system properties:
+ *
+ * - load.users     the number of simulated users (default 20).
+ * - load.rate      the cycles per second each user attempts (default 2).
+ * - load.duration  how long the storm lasts, in seconds (default 10).
+ * - load.abandon   the fraction of reservations that aren't confirmed
+ *                  (default 0.2).
+ * - load.priceBands the number of price bands the users reserve in, from
+ *                  PriceBandA (default 3). Fewer bands mean more users
+ *                  contend for the same seats.
+ *
+ * The storm runs against whichever database profile concert.database.profile
+ * selects, seat format concert.seats.format selects and seat claim strategy
+ * concert.seats.claim selects, so running it once per profile, format or
+ * strategy compares their throughput. Running it with more users or fewer
+ * price bands compares them at a higher level of contention; the number of
+ * claims that conflicted with another transaction is logged.
+ */
+public class ReservationLoadTest {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReservationLoadTest.class);
+
+	private static final int SERVER_PORT = 10000;
+	private static final String WEB_SERVICE_CLASS_NAME = ConcertApplication.class.getName();
+
+	private static final int USERS = Integer.getInteger("load.users", 20);
+	private static final int RATE = Integer.getInteger("load.rate", 2);
+	private static final int DURATION_IN_SECONDS = Integer.getInteger("load.duration", 10);
+	private static final double ABANDON = Double.parseDouble(System.getProperty("load.abandon", "0.2"));
+	private static final int PRICE_BANDS = Integer.getInteger("load.priceBands", PriceBand.values().length);
+
+	private static final Long CONCERT_ID = 1L;
+	private static final LocalDateTime CONCERT_DATE = LocalDateTime.of(2017, 2, 24, 17, 00);
+
+	private static Server _server;
+
+	private final LatencyRecorder _recorder = new LatencyRecorder();
+
+	// every seat any simulated user has booked, keyed on price band and seat
+	private final Set<String> _sold = Collections.synchronizedSet(new HashSet<>());
+	private final List<String> _soldTwice = Collections.synchronizedList(new ArrayList<>());
+
+	private final AtomicInteger _abandoned = new AtomicInteger();
+	private final AtomicInteger _soldOut = new AtomicInteger();
+	private final AtomicInteger _expired = new AtomicInteger();
+	private final List<Throwable> _errors = Collections.synchronizedList(new ArrayList<>());
+
+	@BeforeClass
+	public static void startServer() throws Exception {
+		Assume.assumeTrue("The reservation storm only runs with -Dload=true", Boolean.getBoolean("load"));
+
+		ServletHolder servletHolder = new ServletHolder(new HttpServletDispatcher());
+		servletHolder.setInitParameter("javax.ws.rs.Application", WEB_SERVICE_CLASS_NAME);
+		ServletContextHandler servletCtxHandler = new ServletContextHandler();
+		servletCtxHandler.setContextPath("/services");
+		servletCtxHandler.addServlet(servletHolder, "/");
+		_server = new Server(SERVER_PORT);
+		_server.setHandler(servletCtxHandler);
+		_server.start();
+	}
+
+	@AfterClass
+	public static void stopServer() throws Exception {
+		if (_server != null) {
+			_server.stop();
+		}
+	}
+
+	@Test
+	public void testReservationStorm() throws Exception {
+		ExecutorService users = Executors.newFixedThreadPool(USERS);
+		long start = System.nanoTime();
+		long end = start + TimeUnit.SECONDS.toNanos(DURATION_IN_SECONDS);
+
+		for (int user = 0; user < USERS; user++) {
+			final int userNumber = user;
+			users.submit(() -> runUser(userNumber, end));
+		}
+		users.shutdown();
+		assertTrue(users.awaitTermination(DURATION_IN_SECONDS + 60, TimeUnit.SECONDS));
+		long elapsed = System.nanoTime() - start;
+
+		LOGGER.info("Reservation storm with " + USERS + " users for " + DURATION_IN_SECONDS + "s on the " +
+				DatabaseProfile.current() + " database with " +
+				SeatStore.current().getClass().getSimpleName() + " and " +
+				SeatClaimStrategy.current().getClass().getSimpleName() + " (" +
+				SeatClaimStrategy.current().getConflictCount() + " conflicts): " +
+				_abandoned.get() + " reservations abandoned, " + _soldOut.get() + " rejected as sold out, " +
+				_expired.get() + " expired before confirmation\n" + _recorder.report(elapsed) +
+				"Connection pool: " + PersistenceManager.instance().getPoolMetrics());
+
+		assertTrue("Unexpected errors: " + _errors, _errors.isEmpty());
+		assertTrue("Seats sold twice: " + _soldTwice, _soldTwice.isEmpty());
+		assertTrue(_recorder.getCount("confirmReservation") > 0);
+
+		// Wait for the abandoned reservations to expire.
+		Thread.sleep(ReservationReaper.instance().getTimeToLive().toMillis() + 2000);
+
+		EntityManager em = PersistenceManager.instance().createEntityManager();
+		try {
+			if (SeatStore.current() == SeatMapStore.instance()) {
+				checkSeatMaps(em);
+			} else {
+				checkSeatRows(em);
+			}
+		} finally {
+			em.close();
+		}
+	}
+
+	private void checkSeatRows(EntityManager em) {
+		Object[] confirmed = em.createQuery("SELECT COUNT(s), COUNT(DISTINCT s) FROM Reservation r " +
+				"JOIN r._seats s WHERE r._reservationStatus = :confirmed", Object[].class)
+				.setParameter("confirmed", Reservation.ReservationStatus.CONFIRMED)
+				.getSingleResult();
+		assertEquals("Seats confirmed in more than one reservation", confirmed[0], confirmed[1]);
+
+		long held = em.createQuery("SELECT COUNT(s) FROM Seat s WHERE s._seatStatus = :reserved", Long.class)
+				.setParameter("reserved", Seat.SeatStatus.RESERVED)
+				.getSingleResult();
+		assertEquals("Seats still held after their reservations expired", 0, held);
+	}
+
+	private void checkSeatMaps(EntityManager em) {
+		List<Reservation> confirmed = em.createQuery("SELECT r FROM Reservation r " +
+				"WHERE r._reservationStatus = :confirmed", Reservation.class)
+				.setParameter("confirmed", Reservation.ReservationStatus.CONFIRMED)
+				.getResultList();
+
+		Map<String, BitSet> sold = new HashMap<>();
+		for (Reservation reservation : confirmed) {
+			BitSet band = sold.computeIfAbsent(reservation.getConcertId() + "@" + reservation.getDate() + "/" +
+					reservation.getSeatType(), key -> new BitSet());
+			assertFalse("Seats confirmed in more than one reservation",
+					band.intersects(reservation.getSeatPositions()));
+			band.or(reservation.getSeatPositions());
+		}
+
+		for (SeatMap seatMap : em.createQuery("SELECT m FROM SeatMap m", SeatMap.class).getResultList()) {
+			BitSet band = sold.getOrDefault(seatMap.getConcertId() + "@" + seatMap.getConcertDateTime() + "/" +
+					seatMap.getSeatType(), new BitSet());
+			assertEquals("Seats booked without a confirmed reservation", band, seatMap.getConfirmedSeats());
+			assertEquals("Seats still held after their reservations expired",
+					seatMap.getCapacity(), seatMap.getFreeCount() + seatMap.getConfirmedCount());
+		}
+	}
+
+	private void runUser(int userNumber, long end) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		long period = TimeUnit.SECONDS.toNanos(1) / RATE;
+		long next = System.nanoTime();
+
+		for (int cycle = 0; System.nanoTime() < end; cycle++) {
+			try {
+				runCycle("load-" + userNumber + "-" + cycle, random);
+			} catch (Throwable e) {
+				_errors.add(e);
+			}
+
+			// Pace the user to the configured rate rather than as fast as possible.
+			next += period;
+			long wait = next - System.nanoTime();
+			if (wait > 0) {
+				try {
+					TimeUnit.NANOSECONDS.sleep(wait);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}
+	}
+
+	private void runCycle(String userName, ThreadLocalRandom random) {
+		DefaultService service = new DefaultService();
+
+		long start = System.nanoTime();
+		service.createUser(new UserDTO(userName, "123", "Churchill", "Winston"));
+		_recorder.record("createUser", System.nanoTime() - start);
+
+		start = System.nanoTime();
+		service.registerCreditCard(new CreditCardDTO(
+				CreditCardDTO.Type.Visa, "Winston Churchill", "4929-1500-0000-0000", LocalDate.of(2030, 1, 1)));
+		_recorder.record("registerCreditCard", System.nanoTime() - start);
+
+		PriceBand priceBand = PriceBand.values()[random.nextInt(PRICE_BANDS)];
+		ReservationRequestDTO request = new ReservationRequestDTO(
+				1 + random.nextInt(4), priceBand, CONCERT_ID, CONCERT_DATE);
+
+		ReservationDTO reservation;
+		start = System.nanoTime();
+		try {
+			reservation = service.reserveSeats(request);
+		} catch (ServiceException e) {
+			if (!Messages.INSUFFICIENT_SEATS_AVAILABLE_FOR_RESERVATION.equals(e.getMessage())) {
+				throw e;
+			}
+			_soldOut.incrementAndGet();
+			return;
+		} finally {
+			_recorder.record("reserveSeats", System.nanoTime() - start);
+		}
+
+		if (random.nextDouble() < ABANDON) {
+			_abandoned.incrementAndGet();
+			return;
+		}
+
+		start = System.nanoTime();
+		try {
+			service.confirmReservation(reservation);
+		} catch (ServiceException e) {
+			if (!Messages.EXPIRED_RESERVATION.equals(e.getMessage())) {
+				throw e;
+			}
+			_expired.incrementAndGet();
+			return;
+		} finally {
+			_recorder.record("confirmReservation", System.nanoTime() - start);
+		}
+
+		for (SeatDTO seat : reservation.getSeats()) {
+			String key = priceBand + " " + seat;
+			if (!_sold.add(key)) {
+				_soldTwice.add(key);
+			}
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package nz.ac.auckland.concert.common.dto;
+
+import nz.ac.auckland.concert.common.types.PriceBand;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * DTO class to represent the availability of the seats in one price band of a concert on a given date.
+ *
+ * A SeatAvailabilityDTO describes the seats in terms of:
+ * _priceBand the price band.
+ * _free      the number of seats that can be reserved.
+ * _held      the number of seats held by reservations that haven't been confirmed yet, which become free
+ *            again if their reservations expire.
+ * _sold      the number of seats booked by confirmed reservations.
+ *
+ */
+@XmlRootElement
+public class SeatAvailabilityDTO {
+
+	@XmlElement(name="priceBand")
+	private PriceBand _priceBand;
+
+	@XmlElement(name="free")
+	private int _free;
+
+	@XmlElement(name="held")
+	private int _held;
+
+	@XmlElement(name="sold")
+	private int _sold;
+
+	public SeatAvailabilityDTO() {}
+
+	public SeatAvailabilityDTO(PriceBand priceBand, int free, int held, int sold) {
+		_priceBand = priceBand;
+		_free = free;
+		_held = held;
+		_sold = sold;
+	}
+
+	public PriceBand getPriceBand() {
+		return _priceBand;
+	}
+
+	public int getFree() {
+		return _free;
+	}
+
+	public int getHeld() {
+		return _held;
+	}
+
+	public int getSold() {
+		return _sold;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof SeatAvailabilityDTO))
+			return false;
+		if (obj == this)
+			return true;
+
+		SeatAvailabilityDTO rhs = (SeatAvailabilityDTO) obj;
+		return new EqualsBuilder().
+			append(_priceBand, rhs._priceBand).
+			append(_free, rhs._free).
+			append(_held, rhs._held).
+			append(_sold, rhs._sold).
+			isEquals();
+	}
+
+	@Override
+	public int hashCode() {
+		return new HashCodeBuilder(17, 31).
+			append(_priceBand).
+			append(_free).
+			append(_held).
+			append(_sold).
+			hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return _priceBand + ": " + _free + " free, " + _held + " held, " + _sold + " sold";
+	}
+}
@@ -0,0 +1,20 @@
+package nz.ac.auckland.concert.common.jackson;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Reads and writes the DTOs as CBOR, a compact binary encoding of the same properties as the JSON.
+ */
+@Provider
+@Consumes(CborProvider.APPLICATION_CBOR)
+@Produces(CborProvider.APPLICATION_CBOR)
+public class CborProvider extends DtoProvider {
+
+	public static final String APPLICATION_CBOR = "application/cbor";
+
+	public CborProvider() {
+		super(DtoMappers.cbor());
+	}
+}
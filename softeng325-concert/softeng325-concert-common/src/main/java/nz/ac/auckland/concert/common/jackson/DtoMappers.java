@@ -0,0 +1,93 @@
+package nz.ac.auckland.concert.common.jackson;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.FromStringDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import nz.ac.auckland.concert.common.types.SeatNumber;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Provides the ObjectMappers that encode the DTOs as JSON and as CBOR (RFC 7049, a binary encoding of the
+ * same data model). Both are configured to mirror the JAXB mapping: fields are read and written directly
+ * and named by JaxbNameIntrospector, dates are ISO-8601 strings as LocalDateAdapter and
+ * LocalDateTimeAdapter make them, null fields are omitted and unknown properties are ignored. Seat numbers
+ * are written as plain integers.
+ *
+ * ObjectMappers are thread-safe once configured, so each is created once and shared.
+ */
+public class DtoMappers {
+
+	private static final ObjectMapper JSON = configure(new ObjectMapper());
+
+	private static final ObjectMapper CBOR = configure(new ObjectMapper(new CBORFactory()));
+
+	/**
+	 * This is utility class and should not be instantiated.
+	 */
+	private DtoMappers() {
+	}
+
+	public static ObjectMapper json() {
+		return JSON;
+	}
+
+	public static ObjectMapper cbor() {
+		return CBOR;
+	}
+
+	private static ObjectMapper configure(ObjectMapper mapper) {
+		SimpleModule module = new SimpleModule("concert-dto");
+		module.addSerializer(LocalDateTime.class, ToStringSerializer.instance);
+		module.addDeserializer(LocalDateTime.class, new FromStringDeserializer<LocalDateTime>(LocalDateTime.class) {
+			@Override
+			protected LocalDateTime _deserialize(String value, DeserializationContext context) {
+				return LocalDateTime.parse(value);
+			}
+		});
+		module.addSerializer(LocalDate.class, ToStringSerializer.instance);
+		module.addDeserializer(LocalDate.class, new FromStringDeserializer<LocalDate>(LocalDate.class) {
+			@Override
+			protected LocalDate _deserialize(String value, DeserializationContext context) {
+				return LocalDate.parse(value);
+			}
+		});
+		module.addSerializer(SeatNumber.class, new JsonSerializer<SeatNumber>() {
+			@Override
+			public void serialize(SeatNumber value, JsonGenerator generator, SerializerProvider provider)
+					throws IOException {
+				generator.writeNumber(value.intValue());
+			}
+		});
+		module.addDeserializer(SeatNumber.class, new JsonDeserializer<SeatNumber>() {
+			@Override
+			public SeatNumber deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+				return new SeatNumber(parser.getIntValue());
+			}
+		});
+
+		return mapper.registerModule(module)
+				.setAnnotationIntrospector(new JaxbNameIntrospector())
+				.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+				.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+				.setDefaultPropertyInclusion(JsonInclude.Include.NON_NULL)
+				.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+				//the JAX-RS runtime owns the entity streams
+				.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+				.configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
+	}
+}
@@ -0,0 +1,82 @@
+package nz.ac.auckland.concert.common.jackson;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nz.ac.auckland.concert.common.dto.ConcertDTO;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+/**
+ * JAX-RS message body reader and writer for the DTOs, and collections of them, in an encoding provided by
+ * an ObjectMapper. Subclasses declare the media type they handle. Anything else, such as the plain text
+ * error messages the resources return, is left to the other providers.
+ */
+public abstract class DtoProvider implements MessageBodyReader<Object>, MessageBodyWriter<Object> {
+
+	private static final Package DTO_PACKAGE = ConcertDTO.class.getPackage();
+
+	private final ObjectMapper _mapper;
+
+	protected DtoProvider(ObjectMapper mapper) {
+		_mapper = mapper;
+	}
+
+	@Override
+	public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+		return isDto(type, genericType);
+	}
+
+	@Override
+	public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+						   MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
+		try {
+			return _mapper.readerFor(javaType(type, genericType)).readValue(entityStream);
+		} catch (JsonProcessingException e) {
+			throw new BadRequestException(e);
+		}
+	}
+
+	@Override
+	public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+		return isDto(type, genericType);
+	}
+
+	@Override
+	public long getSize(Object o, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+		return -1;
+	}
+
+	@Override
+	public void writeTo(Object o, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+						MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+		_mapper.writerFor(javaType(type, genericType)).writeValue(entityStream, o);
+	}
+
+	private JavaType javaType(Class<?> type, Type genericType) {
+		return _mapper.getTypeFactory().constructType(genericType != null ? genericType : type);
+	}
+
+	private static boolean isDto(Class<?> type, Type genericType) {
+		if (Collection.class.isAssignableFrom(type)) {
+			if (!(genericType instanceof ParameterizedType)) {
+				return false;
+			}
+			Type[] elementType = ((ParameterizedType) genericType).getActualTypeArguments();
+			return elementType.length == 1 && elementType[0] instanceof Class
+					&& DTO_PACKAGE.equals(((Class<?>) elementType[0]).getPackage());
+		}
+		return DTO_PACKAGE.equals(type.getPackage());
+	}
+}
@@ -0,0 +1,71 @@
+package nz.ac.auckland.concert.common.jackson;
+
+import com.fasterxml.jackson.databind.PropertyName;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.AnnotatedField;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlTransient;
+
+/**
+ * Jackson annotation introspector that names the DTOs' fields as their JAXB annotations do, so that a DTO's
+ * JSON and CBOR properties have the same names as its XML attributes and elements. A collection wrapped by
+ * an XmlElementWrapper takes the wrapper's name. Fields without a JAXB name lose their leading underscore,
+ * and XmlTransient fields are left out.
+ */
+public class JaxbNameIntrospector extends JacksonAnnotationIntrospector {
+
+	@Override
+	public PropertyName findNameForSerialization(Annotated a) {
+		PropertyName name = findXmlName(a);
+		return name != null ? name : super.findNameForSerialization(a);
+	}
+
+	@Override
+	public PropertyName findNameForDeserialization(Annotated a) {
+		PropertyName name = findXmlName(a);
+		return name != null ? name : super.findNameForDeserialization(a);
+	}
+
+	@Override
+	public String findImplicitPropertyName(AnnotatedMember m) {
+		if (m instanceof AnnotatedField && m.getName().startsWith("_")) {
+			return m.getName().substring(1);
+		}
+		return super.findImplicitPropertyName(m);
+	}
+
+	@Override
+	public boolean hasIgnoreMarker(AnnotatedMember m) {
+		return m.hasAnnotation(XmlTransient.class) || super.hasIgnoreMarker(m);
+	}
+
+	private PropertyName findXmlName(Annotated a) {
+		if (!(a instanceof AnnotatedField)) {
+			return null;
+		}
+
+		//JAXB's default name, ##default, means the field's own name
+		String name = null;
+		XmlElementWrapper wrapper = a.getAnnotation(XmlElementWrapper.class);
+		XmlElement element = a.getAnnotation(XmlElement.class);
+		XmlAttribute attribute = a.getAnnotation(XmlAttribute.class);
+
+		if (wrapper != null) {
+			name = wrapper.name();
+		} else if (element != null) {
+			name = element.name();
+		} else if (attribute != null) {
+			name = attribute.name();
+		}
+
+		if (name == null) {
+			return null;
+		}
+		return "##default".equals(name) ? PropertyName.USE_DEFAULT : PropertyName.construct(name);
+	}
+}
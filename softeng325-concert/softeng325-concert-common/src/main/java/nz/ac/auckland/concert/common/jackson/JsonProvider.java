@@ -0,0 +1,19 @@
+package nz.ac.auckland.concert.common.jackson;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Reads and writes the DTOs as JSON.
+ */
+@Provider
+@Consumes(MediaType.APPLICATION_JSON)
+@Produces(MediaType.APPLICATION_JSON)
+public class JsonProvider extends DtoProvider {
+
+	public JsonProvider() {
+		super(DtoMappers.json());
+	}
+}
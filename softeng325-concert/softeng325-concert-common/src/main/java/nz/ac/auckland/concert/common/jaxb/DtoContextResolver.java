@@ -0,0 +1,65 @@
+package nz.ac.auckland.concert.common.jaxb;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.Provider;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+
+import nz.ac.auckland.concert.common.dto.BookingDTO;
+import nz.ac.auckland.concert.common.dto.ConcertDTO;
+import nz.ac.auckland.concert.common.dto.CreditCardDTO;
+import nz.ac.auckland.concert.common.dto.NewsItemDTO;
+import nz.ac.auckland.concert.common.dto.PerformerDTO;
+import nz.ac.auckland.concert.common.dto.ReservationDTO;
+import nz.ac.auckland.concert.common.dto.ReservationRequestDTO;
+import nz.ac.auckland.concert.common.dto.SeatAvailabilityDTO;
+import nz.ac.auckland.concert.common.dto.SeatDTO;
+import nz.ac.auckland.concert.common.dto.UserDTO;
+
+/**
+ * JAX-RS context resolver that gives the XML providers one JAXBContext for all the DTOs, built when the
+ * resolver is created rather than looked up (and on first use, built) per type by the provider. The context
+ * is a PooledJAXBContext, so each thread reuses its marshaller and unmarshaller.
+ *
+ * Classes the runtime needs alongside the DTOs, such as its wrapper for collections, can be added to the
+ * context when the resolver is created. Other types are left to the provider's own contexts.
+ */
+@Provider
+@Produces({MediaType.APPLICATION_XML, MediaType.TEXT_XML})
+public class DtoContextResolver implements ContextResolver<JAXBContext> {
+
+	private static final Class<?>[] DTO_CLASSES = {
+			BookingDTO.class, ConcertDTO.class, CreditCardDTO.class, NewsItemDTO.class, PerformerDTO.class,
+			ReservationDTO.class, ReservationRequestDTO.class, SeatAvailabilityDTO.class, SeatDTO.class,
+			UserDTO.class};
+
+	private final Set<Class<?>> _classes;
+
+	private final JAXBContext _context;
+
+	public DtoContextResolver() {
+		this(new Class<?>[0]);
+	}
+
+	public DtoContextResolver(Class<?>... extraClasses) {
+		_classes = new HashSet<>(Arrays.asList(DTO_CLASSES));
+		_classes.addAll(Arrays.asList(extraClasses));
+
+		try {
+			_context = new PooledJAXBContext(JAXBContext.newInstance(_classes.toArray(new Class<?>[0])));
+		} catch (JAXBException e) {
+			throw new IllegalStateException("Could not create the JAXBContext for the DTOs", e);
+		}
+	}
+
+	@Override
+	public JAXBContext getContext(Class<?> type) {
+		return _classes.contains(type) ? _context : null;
+	}
+}
@@ -0,0 +1,39 @@
+package nz.ac.auckland.concert.common.jaxb;
+
+/**
+ * Reads and writes the fixed-width digit fields of ISO-8601 dates and times in place, for the adapters' fast
+ * paths.
+ */
+final class IsoDates {
+
+	/**
+	 * This is utility class and should not be instantiated.
+	 */
+	private IsoDates() {
+	}
+
+	/**
+	 * Writes value, zero-padded to width digits, into chars at offset.
+	 */
+	static void write(char[] chars, int offset, int value, int width) {
+		for (int i = offset + width - 1; i >= offset; i--) {
+			chars[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+	}
+
+	/**
+	 * Reads the width digits in text at offset, returning -1 if any of them isn't a digit.
+	 */
+	static int read(String text, int offset, int width) {
+		int value = 0;
+		for (int i = offset; i < offset + width; i++) {
+			int digit = text.charAt(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return -1;
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+}
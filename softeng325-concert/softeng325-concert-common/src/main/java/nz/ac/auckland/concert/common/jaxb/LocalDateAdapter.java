@@ -1,5 +1,6 @@
 package nz.ac.auckland.concert.common.jaxb;
 
+import java.time.DateTimeException;
 import java.time.LocalDate;
 
 import javax.xml.bind.annotation.adapters.XmlAdapter;
@@ -12,14 +13,33 @@ import javax.xml.bind.annotation.adapters.XmlAdapter;
  * yet been updated to support Java's new java.time classes (introduced in 
  * Java 8).
  *
+ * Dates in four-digit years are converted directly to and from their
+ * characters, as LocalDateTimeAdapter does.
  */
 public class LocalDateAdapter extends XmlAdapter<String, LocalDate> {
 
+	//yyyy-MM-dd
+	private static final int LENGTH = 10;
+
 	@Override
 	public LocalDate unmarshal(String dateAsString) throws Exception {
 		if(dateAsString == null) {
 			return null;
 		}
+
+		if (dateAsString.length() == LENGTH && dateAsString.charAt(4) == '-' && dateAsString.charAt(7) == '-') {
+			int year = IsoDates.read(dateAsString, 0, 4);
+			int month = IsoDates.read(dateAsString, 5, 2);
+			int day = IsoDates.read(dateAsString, 8, 2);
+
+			if ((year | month | day) >= 0) {
+				try {
+					return LocalDate.of(year, month, day);
+				} catch (DateTimeException e) {
+					//out of range, so let parse report it
+				}
+			}
+		}
 		return LocalDate.parse(dateAsString);
 	}
 
@@ -28,6 +48,18 @@ public class LocalDateAdapter extends XmlAdapter<String, LocalDate> {
 		if(date == null) {
 			return null;
 		}
-		return date.toString();
+
+		int year = date.getYear();
+		if (year < 0 || year > 9999) {
+			return date.toString();
+		}
+
+		char[] chars = new char[LENGTH];
+		IsoDates.write(chars, 0, year, 4);
+		chars[4] = '-';
+		IsoDates.write(chars, 5, date.getMonthValue(), 2);
+		chars[7] = '-';
+		IsoDates.write(chars, 8, date.getDayOfMonth(), 2);
+		return new String(chars);
 	}
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package nz.ac.auckland.concert.common.jaxb;
 
+import java.time.DateTimeException;
 import java.time.LocalDateTime;
 
 import javax.xml.bind.annotation.adapters.XmlAdapter;
@@ -14,14 +15,42 @@ import javax.xml.bind.annotation.adapters.XmlAdapter;
  * yet been updated to support Java's new java.time classes (introduced in Java 
  * 8).
  *
+ * Concert dates are whole minutes (or seconds) in four-digit years, and those
+ * are converted directly to and from their characters; anything else goes
+ * through LocalDateTime's own parse and toString, which allocate far more.
  */
 public class LocalDateTimeAdapter extends XmlAdapter<String, LocalDateTime> {
 
+	//yyyy-MM-ddTHH:mm and yyyy-MM-ddTHH:mm:ss
+	private static final int MINUTES_LENGTH = 16;
+	private static final int SECONDS_LENGTH = 19;
+
 	@Override
 	public LocalDateTime unmarshal(String dateTimeAsString) throws Exception {
 		if(dateTimeAsString == null) {
 			return null;
 		}
+
+		int length = dateTimeAsString.length();
+		if ((length == MINUTES_LENGTH || length == SECONDS_LENGTH)
+				&& dateTimeAsString.charAt(4) == '-' && dateTimeAsString.charAt(7) == '-'
+				&& dateTimeAsString.charAt(10) == 'T' && dateTimeAsString.charAt(13) == ':'
+				&& (length == MINUTES_LENGTH || dateTimeAsString.charAt(16) == ':')) {
+			int year = IsoDates.read(dateTimeAsString, 0, 4);
+			int month = IsoDates.read(dateTimeAsString, 5, 2);
+			int day = IsoDates.read(dateTimeAsString, 8, 2);
+			int hour = IsoDates.read(dateTimeAsString, 11, 2);
+			int minute = IsoDates.read(dateTimeAsString, 14, 2);
+			int second = length == MINUTES_LENGTH ? 0 : IsoDates.read(dateTimeAsString, 17, 2);
+
+			if ((year | month | day | hour | minute | second) >= 0) {
+				try {
+					return LocalDateTime.of(year, month, day, hour, minute, second);
+				} catch (DateTimeException e) {
+					//out of range, so let parse report it
+				}
+			}
+		}
 		return LocalDateTime.parse(dateTimeAsString);
 	}
 
@@ -30,6 +59,28 @@ public class LocalDateTimeAdapter extends XmlAdapter<String, LocalDateTime> {
 		if(dateTime == null) {
 			return null;
 		}
-		return dateTime.toString();
+
+		int year = dateTime.getYear();
+		if (year < 0 || year > 9999 || dateTime.getNano() != 0) {
+			return dateTime.toString();
+		}
+
+		//toString leaves out the seconds when there are none
+		int second = dateTime.getSecond();
+		char[] chars = new char[second == 0 ? MINUTES_LENGTH : SECONDS_LENGTH];
+		IsoDates.write(chars, 0, year, 4);
+		chars[4] = '-';
+		IsoDates.write(chars, 5, dateTime.getMonthValue(), 2);
+		chars[7] = '-';
+		IsoDates.write(chars, 8, dateTime.getDayOfMonth(), 2);
+		chars[10] = 'T';
+		IsoDates.write(chars, 11, dateTime.getHour(), 2);
+		chars[13] = ':';
+		IsoDates.write(chars, 14, dateTime.getMinute(), 2);
+		if (second != 0) {
+			chars[16] = ':';
+			IsoDates.write(chars, 17, second, 2);
+		}
+		return new String(chars);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,80 @@
+package nz.ac.auckland.concert.common.jaxb;
+
+import java.io.IOException;
+
+import javax.xml.bind.Binder;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.JAXBIntrospector;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.SchemaOutputResolver;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.Validator;
+
+/**
+ * JAXBContext that hands each thread the same Marshaller and Unmarshaller every time it asks for one, rather
+ * than creating new ones for every message as the JAX-RS providers otherwise would. Marshallers and
+ * unmarshallers aren't thread-safe but can be reused by one thread for one message after another, so each
+ * is reset to the context's defaults - properties, adapters, attachment handling, event handler, listener and
+ * schema - before it is handed out again (see PooledMarshaller).
+ *
+ * A thread that asks for a marshaller (or unmarshaller) while its pooled one is still in use, e.g. to
+ * marshal a nested message, is given a new one, which replaces it in the pool.
+ */
+@SuppressWarnings("deprecation")
+public class PooledJAXBContext extends JAXBContext {
+
+	private final JAXBContext _context;
+
+	private final ThreadLocal<PooledMarshaller> _marshallers = new ThreadLocal<>();
+
+	private final ThreadLocal<PooledUnmarshaller> _unmarshallers = new ThreadLocal<>();
+
+	public PooledJAXBContext(JAXBContext context) {
+		_context = context;
+	}
+
+	@Override
+	public Marshaller createMarshaller() throws JAXBException {
+		PooledMarshaller marshaller = _marshallers.get();
+
+		//one still in use is left to whoever has it, whether it is marshalling an enclosing message or was
+		//abandoned without marshalling anything
+		if (marshaller == null || marshaller.isInUse()) {
+			marshaller = new PooledMarshaller(_context);
+			_marshallers.set(marshaller);
+		}
+		return marshaller.checkOut();
+	}
+
+	@Override
+	public Unmarshaller createUnmarshaller() throws JAXBException {
+		PooledUnmarshaller unmarshaller = _unmarshallers.get();
+
+		if (unmarshaller == null || unmarshaller.isInUse()) {
+			unmarshaller = new PooledUnmarshaller(_context);
+			_unmarshallers.set(unmarshaller);
+		}
+		return unmarshaller.checkOut();
+	}
+
+	@Override
+	public Validator createValidator() throws JAXBException {
+		return _context.createValidator();
+	}
+
+	@Override
+	public <T> Binder<T> createBinder(Class<T> domType) {
+		return _context.createBinder(domType);
+	}
+
+	@Override
+	public JAXBIntrospector createJAXBIntrospector() {
+		return _context.createJAXBIntrospector();
+	}
+
+	@Override
+	public void generateSchema(SchemaOutputResolver outputResolver) throws IOException {
+		_context.generateSchema(outputResolver);
+	}
+}
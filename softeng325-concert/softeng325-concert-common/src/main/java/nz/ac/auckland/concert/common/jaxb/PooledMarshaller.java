@@ -0,0 +1,235 @@
+package nz.ac.auckland.concert.common.jaxb;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.PropertyException;
+import javax.xml.bind.ValidationEventHandler;
+import javax.xml.bind.annotation.adapters.XmlAdapter;
+import javax.xml.bind.attachment.AttachmentMarshaller;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.Result;
+import javax.xml.validation.Schema;
+
+import org.w3c.dom.Node;
+import org.xml.sax.ContentHandler;
+
+/**
+ * Marshaller handed out by PooledJAXBContext. It passes every call on to a marshaller created by the wrapped
+ * context and remembers the properties and adapters set on it, so that checkOut() can put it back to the
+ * context's defaults before it is handed out again. It is in use from checkOut() until a marshal call
+ * returns.
+ */
+class PooledMarshaller implements Marshaller {
+
+	private final JAXBContext _context;
+
+	private Marshaller _marshaller;
+
+	// the value each property set since the last check-out had before it was first set
+	private final Map<String, Object> _defaults = new HashMap<>();
+
+	private final Set<Class<? extends XmlAdapter>> _adapterTypes = new HashSet<>();
+
+	private boolean _inUse;
+
+	PooledMarshaller(JAXBContext context) throws JAXBException {
+		_context = context;
+		_marshaller = context.createMarshaller();
+	}
+
+	boolean isInUse() {
+		return _inUse;
+	}
+
+	/**
+	 * Undoes whatever the last message's provider set and marks the marshaller as in use.
+	 */
+	@SuppressWarnings("unchecked")
+	PooledMarshaller checkOut() throws JAXBException {
+		try {
+			for (Map.Entry<String, Object> property : _defaults.entrySet()) {
+				_marshaller.setProperty(property.getKey(), property.getValue());
+			}
+		} catch (PropertyException e) {
+			//a property whose default can't be set again is dropped along with the marshaller
+			_marshaller = _context.createMarshaller();
+		}
+		_defaults.clear();
+
+		for (Class<? extends XmlAdapter> type : _adapterTypes) {
+			_marshaller.setAdapter((Class<XmlAdapter>) type, null);
+		}
+		_adapterTypes.clear();
+
+		_marshaller.setAttachmentMarshaller(null);
+		_marshaller.setEventHandler(null);
+		_marshaller.setListener(null);
+		_marshaller.setSchema(null);
+		_inUse = true;
+		return this;
+	}
+
+	@Override
+	public void marshal(Object jaxbElement, Result result) throws JAXBException {
+		try {
+			_marshaller.marshal(jaxbElement, result);
+		} finally {
+			_inUse = false;
+		}
+	}
+
+	@Override
+	public void marshal(Object jaxbElement, OutputStream os) throws JAXBException {
+		try {
+			_marshaller.marshal(jaxbElement, os);
+		} finally {
+			_inUse = false;
+		}
+	}
+
+	@Override
+	public void marshal(Object jaxbElement, File output) throws JAXBException {
+		try {
+			_marshaller.marshal(jaxbElement, output);
+		} finally {
+			_inUse = false;
+		}
+	}
+
+	@Override
+	public void marshal(Object jaxbElement, Writer writer) throws JAXBException {
+		try {
+			_marshaller.marshal(jaxbElement, writer);
+		} finally {
+			_inUse = false;
+		}
+	}
+
+	@Override
+	public void marshal(Object jaxbElement, ContentHandler handler) throws JAXBException {
+		try {
+			_marshaller.marshal(jaxbElement, handler);
+		} finally {
+			_inUse = false;
+		}
+	}
+
+	@Override
+	public void marshal(Object jaxbElement, Node node) throws JAXBException {
+		try {
+			_marshaller.marshal(jaxbElement, node);
+		} finally {
+			_inUse = false;
+		}
+	}
+
+	@Override
+	public void marshal(Object jaxbElement, XMLStreamWriter writer) throws JAXBException {
+		try {
+			_marshaller.marshal(jaxbElement, writer);
+		} finally {
+			_inUse = false;
+		}
+	}
+
+	@Override
+	public void marshal(Object jaxbElement, XMLEventWriter writer) throws JAXBException {
+		try {
+			_marshaller.marshal(jaxbElement, writer);
+		} finally {
+			_inUse = false;
+		}
+	}
+
+	@Override
+	public Node getNode(Object contentTree) throws JAXBException {
+		return _marshaller.getNode(contentTree);
+	}
+
+	@Override
+	public void setProperty(String name, Object value) throws PropertyException {
+		if (!_defaults.containsKey(name)) {
+			_defaults.put(name, _marshaller.getProperty(name));
+		}
+		_marshaller.setProperty(name, value);
+	}
+
+	@Override
+	public Object getProperty(String name) throws PropertyException {
+		return _marshaller.getProperty(name);
+	}
+
+	@Override
+	public void setEventHandler(ValidationEventHandler handler) throws JAXBException {
+		_marshaller.setEventHandler(handler);
+	}
+
+	@Override
+	public ValidationEventHandler getEventHandler() throws JAXBException {
+		return _marshaller.getEventHandler();
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public void setAdapter(XmlAdapter adapter) {
+		if (adapter != null) {
+			_adapterTypes.add(adapter.getClass());
+		}
+		_marshaller.setAdapter(adapter);
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public <A extends XmlAdapter> void setAdapter(Class<A> type, A adapter) {
+		if (type != null) {
+			_adapterTypes.add(type);
+		}
+		_marshaller.setAdapter(type, adapter);
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public <A extends XmlAdapter> A getAdapter(Class<A> type) {
+		return _marshaller.getAdapter(type);
+	}
+
+	@Override
+	public void setAttachmentMarshaller(AttachmentMarshaller marshaller) {
+		_marshaller.setAttachmentMarshaller(marshaller);
+	}
+
+	@Override
+	public AttachmentMarshaller getAttachmentMarshaller() {
+		return _marshaller.getAttachmentMarshaller();
+	}
+
+	@Override
+	public void setSchema(Schema schema) {
+		_marshaller.setSchema(schema);
+	}
+
+	@Override
+	public Schema getSchema() {
+		return _marshaller.getSchema();
+	}
+
+	@Override
+	public void setListener(Listener listener) {
+		_marshaller.setListener(listener);
+	}
+
+	@Override
+	public Listener getListener() {
+		return _marshaller.getListener();
+	}
+}
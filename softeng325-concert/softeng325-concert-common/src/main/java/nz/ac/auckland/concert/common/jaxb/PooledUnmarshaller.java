@@ -0,0 +1,292 @@
+package nz.ac.auckland.concert.common.jaxb;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.Reader;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.PropertyException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.UnmarshallerHandler;
+import javax.xml.bind.ValidationEventHandler;
+import javax.xml.bind.annotation.adapters.XmlAdapter;
+import javax.xml.bind.attachment.AttachmentUnmarshaller;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.Source;
+import javax.xml.validation.Schema;
+
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+
+/**
+ * Unmarshaller handed out by PooledJAXBContext, the counterpart of PooledMarshaller. It is in use from
+ * checkOut() until an unmarshal call returns; one whose UnmarshallerHandler has been asked for stays in use.
+ */
+@SuppressWarnings("deprecation")
+class PooledUnmarshaller implements Unmarshaller {
+
+	private final JAXBContext _context;
+
+	private Unmarshaller _unmarshaller;
+
+	// the value each property set since the last check-out had before it was first set
+	private final Map<String, Object> _defaults = new HashMap<>();
+
+	private final Set<Class<? extends XmlAdapter>> _adapterTypes = new HashSet<>();
+
+	private boolean _inUse;
+
+	PooledUnmarshaller(JAXBContext context) throws JAXBException {
+		_context = context;
+		_unmarshaller = context.createUnmarshaller();
+	}
+
+	boolean isInUse() {
+		return _inUse;
+	}
+
+	/**
+	 * Undoes whatever the last message's provider set and marks the unmarshaller as in use.
+	 */
+	@SuppressWarnings("unchecked")
+	PooledUnmarshaller checkOut() throws JAXBException {
+		try {
+			for (Map.Entry<String, Object> property : _defaults.entrySet()) {
+				_unmarshaller.setProperty(property.getKey(), property.getValue());
+			}
+		} catch (PropertyException e) {
+			//a property whose default can't be set again is dropped along with the unmarshaller
+			_unmarshaller = _context.createUnmarshaller();
+		}
+		_defaults.clear();
+
+		for (Class<? extends XmlAdapter> type : _adapterTypes) {
+			_unmarshaller.setAdapter((Class<XmlAdapter>) type, null);
+		}
+		_adapterTypes.clear();
+
+		_unmarshaller.setAttachmentUnmarshaller(null);
+		_unmarshaller.setEventHandler(null);
+		_unmarshaller.setListener(null);
+		_unmarshaller.setSchema(null);
+		_inUse = true;
+		return this;
+	}
+
+	@Override
+	public Object unmarshal(File f) throws JAXBException {
+		try {
+			return _unmarshaller.unmarshal(f);
+		} finally {
+			_inUse = false;
+		}
+	}
+
+	@Override
+	public Object unmarshal(InputStream is) throws JAXBException {
+		try {
+			return _unmarshaller.unmarshal(is);
+		} finally {
+			_inUse = false;
+		}
+	}
+
+	@Override
+	public Object unmarshal(Reader reader) throws JAXBException {
+		try {
+			return _unmarshaller.unmarshal(reader);
+		} finally {
+			_inUse = false;
+		}
+	}
+
+	@Override
+	public Object unmarshal(URL url) throws JAXBException {
+		try {
+			return _unmarshaller.unmarshal(url);
+		} finally {
+			_inUse = false;
+		}
+	}
+
+	@Override
+	public Object unmarshal(InputSource source) throws JAXBException {
+		try {
+			return _unmarshaller.unmarshal(source);
+		} finally {
+			_inUse = false;
+		}
+	}
+
+	@Override
+	public Object unmarshal(Node node) throws JAXBException {
+		try {
+			return _unmarshaller.unmarshal(node);
+		} finally {
+			_inUse = false;
+		}
+	}
+
+	@Override
+	public <T> JAXBElement<T> unmarshal(Node node, Class<T> declaredType) throws JAXBException {
+		try {
+			return _unmarshaller.unmarshal(node, declaredType);
+		} finally {
+			_inUse = false;
+		}
+	}
+
+	@Override
+	public Object unmarshal(Source source) throws JAXBException {
+		try {
+			return _unmarshaller.unmarshal(source);
+		} finally {
+			_inUse = false;
+		}
+	}
+
+	@Override
+	public <T> JAXBElement<T> unmarshal(Source source, Class<T> declaredType) throws JAXBException {
+		try {
+			return _unmarshaller.unmarshal(source, declaredType);
+		} finally {
+			_inUse = false;
+		}
+	}
+
+	@Override
+	public Object unmarshal(XMLStreamReader reader) throws JAXBException {
+		try {
+			return _unmarshaller.unmarshal(reader);
+		} finally {
+			_inUse = false;
+		}
+	}
+
+	@Override
+	public <T> JAXBElement<T> unmarshal(XMLStreamReader reader, Class<T> declaredType) throws JAXBException {
+		try {
+			return _unmarshaller.unmarshal(reader, declaredType);
+		} finally {
+			_inUse = false;
+		}
+	}
+
+	@Override
+	public Object unmarshal(XMLEventReader reader) throws JAXBException {
+		try {
+			return _unmarshaller.unmarshal(reader);
+		} finally {
+			_inUse = false;
+		}
+	}
+
+	@Override
+	public <T> JAXBElement<T> unmarshal(XMLEventReader reader, Class<T> declaredType) throws JAXBException {
+		try {
+			return _unmarshaller.unmarshal(reader, declaredType);
+		} finally {
+			_inUse = false;
+		}
+	}
+
+	@Override
+	public UnmarshallerHandler getUnmarshallerHandler() {
+		return _unmarshaller.getUnmarshallerHandler();
+	}
+
+	@Override
+	public void setValidating(boolean validating) throws JAXBException {
+		_unmarshaller.setValidating(validating);
+	}
+
+	@Override
+	public boolean isValidating() throws JAXBException {
+		return _unmarshaller.isValidating();
+	}
+
+	@Override
+	public void setEventHandler(ValidationEventHandler handler) throws JAXBException {
+		_unmarshaller.setEventHandler(handler);
+	}
+
+	@Override
+	public ValidationEventHandler getEventHandler() throws JAXBException {
+		return _unmarshaller.getEventHandler();
+	}
+
+	@Override
+	public void setProperty(String name, Object value) throws PropertyException {
+		if (!_defaults.containsKey(name)) {
+			_defaults.put(name, _unmarshaller.getProperty(name));
+		}
+		_unmarshaller.setProperty(name, value);
+	}
+
+	@Override
+	public Object getProperty(String name) throws PropertyException {
+		return _unmarshaller.getProperty(name);
+	}
+
+	@Override
+	public void setSchema(Schema schema) {
+		_unmarshaller.setSchema(schema);
+	}
+
+	@Override
+	public Schema getSchema() {
+		return _unmarshaller.getSchema();
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public void setAdapter(XmlAdapter adapter) {
+		if (adapter != null) {
+			_adapterTypes.add(adapter.getClass());
+		}
+		_unmarshaller.setAdapter(adapter);
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public <A extends XmlAdapter> void setAdapter(Class<A> type, A adapter) {
+		if (type != null) {
+			_adapterTypes.add(type);
+		}
+		_unmarshaller.setAdapter(type, adapter);
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public <A extends XmlAdapter> A getAdapter(Class<A> type) {
+		return _unmarshaller.getAdapter(type);
+	}
+
+	@Override
+	public void setAttachmentUnmarshaller(AttachmentUnmarshaller unmarshaller) {
+		_unmarshaller.setAttachmentUnmarshaller(unmarshaller);
+	}
+
+	@Override
+	public AttachmentUnmarshaller getAttachmentUnmarshaller() {
+		return _unmarshaller.getAttachmentUnmarshaller();
+	}
+
+	@Override
+	public void setListener(Listener listener) {
+		_unmarshaller.setListener(listener);
+	}
+
+	@Override
+	public Listener getListener() {
+		return _unmarshaller.getListener();
+	}
+}
@@ -0,0 +1,132 @@
+package nz.ac.auckland.concert.common.jaxb;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.adapters.XmlAdapter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import nz.ac.auckland.concert.common.dto.SeatAvailabilityDTO;
+import nz.ac.auckland.concert.common.types.PriceBand;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks that a thread is handed the same marshaller and unmarshaller for one message after another, with
+ * whatever the last message set on them put back to the defaults, and that one still in use is never handed
+ * out again.
+ */
+public class PooledJAXBContextTest {
+
+	private static final SeatAvailabilityDTO AVAILABILITY = new SeatAvailabilityDTO(PriceBand.PriceBandA, 1, 2, 3);
+
+	private PooledJAXBContext _context;
+
+	@Before
+	public void createContext() throws JAXBException {
+		_context = new PooledJAXBContext(JAXBContext.newInstance(SeatAvailabilityDTO.class));
+	}
+
+	@Test
+	public void testPropertiesAreResetOnTheNextCheckOut() throws JAXBException {
+		Marshaller marshaller = _context.createMarshaller();
+		marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+		marshaller.setProperty(Marshaller.JAXB_SCHEMA_LOCATION, "urn:concert concert.xsd");
+		marshal(marshaller);
+
+		Marshaller next = _context.createMarshaller();
+
+		assertSame(marshaller, next);
+		assertEquals(false, next.getProperty(Marshaller.JAXB_FORMATTED_OUTPUT));
+		assertNull(next.getProperty(Marshaller.JAXB_SCHEMA_LOCATION));
+	}
+
+	@Test
+	public void testAdaptersAreClearedWhetherSetByTypeOrByInstance() throws JAXBException {
+		Marshaller marshaller = _context.createMarshaller();
+		marshaller.setAdapter(new UpperCase());
+		marshaller.setAdapter(LowerCase.class, new LowerCase());
+		String xml = marshal(marshaller);
+
+		Unmarshaller unmarshaller = _context.createUnmarshaller();
+		unmarshaller.setAdapter(new UpperCase());
+		unmarshaller.setAdapter(LowerCase.class, new LowerCase());
+		unmarshaller.unmarshal(new StringReader(xml));
+
+		Marshaller nextMarshaller = _context.createMarshaller();
+		Unmarshaller nextUnmarshaller = _context.createUnmarshaller();
+
+		assertSame(marshaller, nextMarshaller);
+		assertNull(nextMarshaller.getAdapter(UpperCase.class));
+		assertNull(nextMarshaller.getAdapter(LowerCase.class));
+		assertSame(unmarshaller, nextUnmarshaller);
+		assertNull(nextUnmarshaller.getAdapter(UpperCase.class));
+		assertNull(nextUnmarshaller.getAdapter(LowerCase.class));
+	}
+
+	@Test
+	public void testMarshallerInUseIsNotHandedOutAgain() throws JAXBException {
+		Marshaller enclosing = _context.createMarshaller();
+		Marshaller nested = _context.createMarshaller();
+		assertNotSame(enclosing, nested);
+
+		//the nested marshaller takes the enclosing one's place in the pool
+		marshal(nested);
+		marshal(enclosing);
+		assertSame(nested, _context.createMarshaller());
+	}
+
+	@Test
+	public void testUnmarshallerInUseIsNotHandedOutAgain() throws JAXBException {
+		String xml = marshal(_context.createMarshaller());
+
+		Unmarshaller enclosing = _context.createUnmarshaller();
+		Unmarshaller nested = _context.createUnmarshaller();
+		assertNotSame(enclosing, nested);
+
+		nested.unmarshal(new StringReader(xml));
+		assertEquals(AVAILABILITY, enclosing.unmarshal(new StringReader(xml)));
+		assertSame(nested, _context.createUnmarshaller());
+	}
+
+	private static String marshal(Marshaller marshaller) throws JAXBException {
+		StringWriter xml = new StringWriter();
+		marshaller.marshal(AVAILABILITY, xml);
+		return xml.toString();
+	}
+
+	public static class UpperCase extends XmlAdapter<String, String> {
+
+		@Override
+		public String unmarshal(String value) {
+			return value.toUpperCase();
+		}
+
+		@Override
+		public String marshal(String value) {
+			return value.toUpperCase();
+		}
+	}
+
+	public static class LowerCase extends XmlAdapter<String, String> {
+
+		@Override
+		public String unmarshal(String value) {
+			return value.toLowerCase();
+		}
+
+		@Override
+		public String marshal(String value) {
+			return value.toLowerCase();
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package nz.ac.auckland.concert.service.auth;
+
+import nz.ac.auckland.concert.service.domain.jpa.User;
+
+/**
+ * The parts of a user that authenticated requests need, cached against the user's token so that a request
+ * can be authenticated without reading the USERS table.
+ */
+public class AuthenticatedUser {
+
+    private final String _userName;
+
+    private final boolean _hasCreditCard;
+
+    public AuthenticatedUser(User user) {
+        _userName = user.getUserName();
+        _hasCreditCard = user.getCreditCard() != null;
+    }
+
+    public String getUserName() {
+        return _userName;
+    }
+
+    public boolean hasCreditCard() {
+        return _hasCreditCard;
+    }
+}
@@ -0,0 +1,94 @@
+package nz.ac.auckland.concert.service.auth;
+
+import nz.ac.auckland.concert.service.domain.jpa.User;
+import nz.ac.auckland.concert.service.util.ServiceConfiguration;
+
+import javax.persistence.EntityManager;
+import javax.ws.rs.core.Cookie;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Singleton class that authenticates requests by their token cookie. It is shared by all of the resources
+ * and keeps a bounded cache from token to user, so a user's requests only read the USERS table until their
+ * token is cached. The cache is kept up to date by calling update() whenever a user's credit card
+ * changes; once full, the longest-cached tokens are evicted first.
+ */
+public class Authenticator {
+
+    private static final Authenticator _instance = new Authenticator();
+
+    private final ConcurrentMap<String, AuthenticatedUser> _users = new ConcurrentHashMap<>();
+
+    //cached tokens in the order they were added, used to pick which to evict
+    private final Queue<String> _tokens = new ConcurrentLinkedQueue<>();
+
+    private final int _maximumSize = ServiceConfiguration.getInt(ServiceConfiguration.AUTHENTICATION_CACHE_SIZE, 10000);
+
+    protected Authenticator() {
+    }
+
+    public static Authenticator instance() {
+        return _instance;
+    }
+
+    /**
+     * Finds the user that the supplied token belongs to, reading it through the given entity manager if the
+     * token isn't cached.
+     *
+     * @return the user, or null if the token is missing or no user has it.
+     */
+    public AuthenticatedUser authenticate(EntityManager em, Cookie token) {
+        if (token == null || token.getValue() == null) {
+            return null;
+        }
+
+        AuthenticatedUser user = _users.get(token.getValue());
+
+        if (user == null) {
+            List<User> users = em.createQuery("SELECT u FROM User u WHERE u._token = :tokenValue", User.class)
+                    .setParameter("tokenValue", token.getValue())
+                    .getResultList();
+
+            if (users.isEmpty()) {
+                return null;
+            }
+
+            //don't overwrite an entry that update() has put in since the user was read
+            user = new AuthenticatedUser(users.get(0));
+            AuthenticatedUser cached = _users.putIfAbsent(token.getValue(), user);
+
+            if (cached != null) {
+                return cached;
+            }
+            _tokens.add(token.getValue());
+            evict();
+        }
+        return user;
+    }
+
+    /**
+     * Replaces the cached details of a user whose credit card has changed. Call this once the change has been
+     * committed. A user's token is only set when the user is created, so it never needs invalidating.
+     */
+    public void update(User user) {
+        if (_users.put(user.getToken(), new AuthenticatedUser(user)) == null) {
+            _tokens.add(user.getToken());
+            evict();
+        }
+    }
+
+    private void evict() {
+        while (_users.size() > _maximumSize) {
+            String token = _tokens.poll();
+
+            if (token == null) {
+                return;
+            }
+            _users.remove(token);
+        }
+    }
+}
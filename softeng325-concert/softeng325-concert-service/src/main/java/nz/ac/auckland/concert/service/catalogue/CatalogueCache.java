@@ -0,0 +1,175 @@
+package nz.ac.auckland.concert.service.catalogue;
+
+import nz.ac.auckland.concert.service.domain.jpa.Concert;
+import nz.ac.auckland.concert.service.domain.jpa.Performer;
+import nz.ac.auckland.concert.service.services.PersistenceManager;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+
+import javax.persistence.TypedQuery;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Singleton class that looks after the second-level cache of the concert catalogue: the Concert and Performer
+ * entities, their dates, tariffs and performers, and the results of the queries that list them.
+ *
+ * Changes made through JPA keep the cache up to date by themselves. Whatever changes the catalogue tables any
+ * other way (native SQL, a bulk load, another service instance) must call one of the evict methods afterwards.
+ *
+ * The hit and miss counts come from Hibernate's statistics, so they stay at zero unless the statistics are
+ * turned on (with concert.statistics, or through the SessionFactory's Statistics).
+ *
+ * The catalogue also has a version, from which the catalogue resources derive their entity tags. It moves on
+ * whenever anything is evicted and whenever CatalogueInterceptor sees a catalogue entity written through JPA.
+ */
+public class CatalogueCache {
+
+    private static final CatalogueCache _instance = new CatalogueCache();
+
+    // the cache region holding the results of the catalogue queries
+    public static final String QUERY_REGION = "catalogue";
+
+    private static final String CONCERT_DATES = Concert.class.getName() + "._dates";
+
+    private static final String CONCERT_TARIFF = Concert.class.getName() + "._tariff";
+
+    private static final String CONCERT_PERFORMERS = Concert.class.getName() + "._performers";
+
+    private static final String PERFORMER_CONCERTS = Performer.class.getName() + "._concerts";
+
+    private static final String[] REGIONS = {Concert.class.getName(), CONCERT_DATES, CONCERT_TARIFF,
+            CONCERT_PERFORMERS, Performer.class.getName(), PERFORMER_CONCERTS};
+
+    //starts from the time the service started, so that tags handed out by an earlier run never match
+    private final AtomicLong _version = new AtomicLong(System.currentTimeMillis());
+
+    protected CatalogueCache() {
+    }
+
+    public static CatalogueCache instance() {
+        return _instance;
+    }
+
+    /**
+     * Marks a query over the catalogue as one whose results are cached.
+     */
+    public <T> TypedQuery<T> cacheable(TypedQuery<T> query) {
+        return query.setHint("org.hibernate.cacheable", true)
+                .setHint("org.hibernate.cacheRegion", QUERY_REGION);
+    }
+
+    /**
+     * Returns the catalogue's current version.
+     */
+    public long getVersion() {
+        return _version.get();
+    }
+
+    /**
+     * Moves the catalogue on to a new version, without evicting anything.
+     */
+    public void changed() {
+        _version.incrementAndGet();
+    }
+
+    /**
+     * Evicts a concert, with its dates, tariff and performers, and the cached catalogue queries.
+     */
+    public void evictConcert(Long concertId) {
+        Cache cache = sessionFactory().getCache();
+
+        cache.evictEntity(Concert.class, concertId);
+        cache.evictCollection(CONCERT_DATES, concertId);
+        cache.evictCollection(CONCERT_TARIFF, concertId);
+        cache.evictCollection(CONCERT_PERFORMERS, concertId);
+        //the performers' concerts may include this one
+        cache.evictCollectionRegion(PERFORMER_CONCERTS);
+        cache.evictQueryRegion(QUERY_REGION);
+        changed();
+    }
+
+    /**
+     * Evicts a performer, with its concerts, and the cached catalogue queries.
+     */
+    public void evictPerformer(Long performerId) {
+        Cache cache = sessionFactory().getCache();
+
+        cache.evictEntity(Performer.class, performerId);
+        cache.evictCollection(PERFORMER_CONCERTS, performerId);
+        //the concerts' performers may include this one
+        cache.evictCollectionRegion(CONCERT_PERFORMERS);
+        cache.evictQueryRegion(QUERY_REGION);
+        changed();
+    }
+
+    /**
+     * Evicts the whole catalogue.
+     */
+    public void evictAll() {
+        Cache cache = sessionFactory().getCache();
+
+        cache.evictEntityRegion(Concert.class);
+        cache.evictEntityRegion(Performer.class);
+        cache.evictCollectionRegion(CONCERT_DATES);
+        cache.evictCollectionRegion(CONCERT_TARIFF);
+        cache.evictCollectionRegion(CONCERT_PERFORMERS);
+        cache.evictCollectionRegion(PERFORMER_CONCERTS);
+        cache.evictQueryRegion(QUERY_REGION);
+        changed();
+    }
+
+    /**
+     * Returns the number of catalogue entities and collections found in the cache.
+     */
+    public long getHitCount() {
+        long hits = 0;
+        for (String region : REGIONS) {
+            SecondLevelCacheStatistics statistics = statistics().getSecondLevelCacheStatistics(region);
+            hits += statistics == null ? 0 : statistics.getHitCount();
+        }
+        return hits;
+    }
+
+    /**
+     * Returns the number of catalogue entities and collections that had to be loaded from the database.
+     */
+    public long getMissCount() {
+        long misses = 0;
+        for (String region : REGIONS) {
+            SecondLevelCacheStatistics statistics = statistics().getSecondLevelCacheStatistics(region);
+            misses += statistics == null ? 0 : statistics.getMissCount();
+        }
+        return misses;
+    }
+
+    /**
+     * Returns the number of catalogue queries answered from the cache. The catalogue queries are the only
+     * cached queries.
+     */
+    public long getQueryHitCount() {
+        return statistics().getQueryCacheHitCount();
+    }
+
+    /**
+     * Returns the number of catalogue queries that had to be run against the database.
+     */
+    public long getQueryMissCount() {
+        return statistics().getQueryCacheMissCount();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d misses=%d queryHits=%d queryMisses=%d",
+                getHitCount(), getMissCount(), getQueryHitCount(), getQueryMissCount());
+    }
+
+    private static SessionFactory sessionFactory() {
+        return PersistenceManager.instance().getEntityManagerFactory().unwrap(SessionFactory.class);
+    }
+
+    private static Statistics statistics() {
+        return sessionFactory().getStatistics();
+    }
+}
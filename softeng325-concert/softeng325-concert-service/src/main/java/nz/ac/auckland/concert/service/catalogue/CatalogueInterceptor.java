@@ -0,0 +1,70 @@
+package nz.ac.auckland.concert.service.catalogue;
+
+import nz.ac.auckland.concert.service.domain.jpa.Concert;
+import nz.ac.auckland.concert.service.domain.jpa.Performer;
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.Transaction;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+
+/**
+ * Hibernate interceptor, configured in persistence.xml, that moves the catalogue on to a new version whenever
+ * a Concert or Performer, or one of their collections, is written. The version moves on when the write is
+ * made and again when its transaction completes, so a catalogue read while the write was uncommitted never
+ * keeps the tag of the committed catalogue.
+ */
+public class CatalogueInterceptor extends EmptyInterceptor {
+
+    //whether the current thread's transaction has written to the catalogue
+    private static final ThreadLocal<Boolean> _changed = new ThreadLocal<>();
+
+    @Override
+    public boolean onSave(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+        written(entity);
+        return false;
+    }
+
+    @Override
+    public boolean onFlushDirty(Object entity, Serializable id, Object[] currentState, Object[] previousState,
+                                String[] propertyNames, Type[] types) {
+        written(entity);
+        return false;
+    }
+
+    @Override
+    public void onDelete(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+        written(entity);
+    }
+
+    @Override
+    public void onCollectionRecreate(Object collection, Serializable key) {
+        written(((PersistentCollection) collection).getOwner());
+    }
+
+    @Override
+    public void onCollectionRemove(Object collection, Serializable key) {
+        written(((PersistentCollection) collection).getOwner());
+    }
+
+    @Override
+    public void onCollectionUpdate(Object collection, Serializable key) {
+        written(((PersistentCollection) collection).getOwner());
+    }
+
+    @Override
+    public void afterTransactionCompletion(Transaction tx) {
+        if (_changed.get() != null) {
+            _changed.remove();
+            CatalogueCache.instance().changed();
+        }
+    }
+
+    private void written(Object entity) {
+        if (entity instanceof Concert || entity instanceof Performer) {
+            _changed.set(Boolean.TRUE);
+            CatalogueCache.instance().changed();
+        }
+    }
+}
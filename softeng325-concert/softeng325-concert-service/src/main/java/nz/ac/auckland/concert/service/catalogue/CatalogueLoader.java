@@ -0,0 +1,137 @@
+package nz.ac.auckland.concert.service.catalogue;
+
+import nz.ac.auckland.concert.service.util.ServiceConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.PersistenceException;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Singleton class that fills the catalogue tables (performers, concerts, their dates, tariffs and performers)
+ * from a snapshot of CSV files, one per table, each with a header row naming the table's columns. Each
+ * table is filled by a single INSERT ... SELECT over H2's CSVREAD, so the database reads the file itself
+ * rather than being sent a statement per row, and the whole catalogue is loaded in one transaction.
+ *
+ * The snapshot is read from the directory named by the concert.catalogue.path system property, by default
+ * the catalogue directory on the classpath. H2 reads the files, so for the server profile they must be
+ * where the database server can read them.
+ *
+ * The tables are expected to be empty; loadIfEmpty checks that they are first. The second-level cache
+ * knows nothing of the rows loaded, so whatever loads them into a running service must call
+ * CatalogueCache.evictAll() afterwards.
+ */
+public class CatalogueLoader {
+
+    private static final CatalogueLoader _instance = new CatalogueLoader();
+
+    private static final Logger _log = LoggerFactory.getLogger(CatalogueLoader.class);
+
+    //CSVREAD won't take the file name as a parameter, so it is quoted into the statement
+    private static final String LOAD_TABLE = "INSERT INTO %1$s (%2$s) SELECT %2$s " +
+            "FROM CSVREAD('%3$s', NULL, 'charset=UTF-8')";
+
+    //table, columns and file of each part of the catalogue, with the tables that others refer to first
+    private static final String[][] TABLES = {
+            {"PERFORMERS", "performerId, genre, imageName, name", "performers.csv"},
+            {"CONCERTS", "id, title", "concerts.csv"},
+            {"CONCERT_DATES", "id, dates", "concert_dates.csv"},
+            {"CONCERT_TARIFS", "concertId, tariff, priceBand", "concert_tariffs.csv"},
+            {"CONCERT_PERFORMER", "concertId, performerId", "concert_performers.csv"}};
+
+    private long _rows;
+
+    private long _loadTime;
+
+    protected CatalogueLoader() {
+    }
+
+    public static CatalogueLoader instance() {
+        return _instance;
+    }
+
+    /**
+     * Loads the snapshot named by the concert.catalogue.path system property.
+     */
+    public void load(DataSource dataSource) {
+        load(dataSource, ServiceConfiguration.getString(ServiceConfiguration.CATALOGUE_PATH, "classpath:catalogue"));
+    }
+
+    /**
+     * Loads the snapshot named by the concert.catalogue.path system property, unless the catalogue tables
+     * already hold rows, as they do when the tables are kept in a database file from an earlier run.
+     *
+     * @return whether the snapshot was loaded.
+     */
+    public boolean loadIfEmpty(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            for (String[] table : TABLES) {
+                try (Statement count = connection.createStatement();
+                     ResultSet row = count.executeQuery("SELECT 1 FROM " + table[0] + " LIMIT 1")) {
+                    if (row.next()) {
+                        _log.info("Kept the existing catalogue, since {} already holds rows", table[0]);
+                        return false;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new PersistenceException("Could not check the catalogue tables", e);
+        }
+
+        load(dataSource);
+        return true;
+    }
+
+    /**
+     * Loads the snapshot in the given directory, which may be a classpath: location, in one transaction.
+     */
+    public synchronized void load(DataSource dataSource, String path) {
+        long start = System.nanoTime();
+        long rows = 0;
+
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+
+            try {
+                for (String[] table : TABLES) {
+                    String file = (path + "/" + table[2]).replace("'", "''");
+
+                    try (Statement load = connection.createStatement()) {
+                        rows += load.executeUpdate(String.format(LOAD_TABLE, table[0], table[1], file));
+                    }
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new PersistenceException("Could not load the catalogue from " + path, e);
+        }
+
+        _rows = rows;
+        _loadTime = (System.nanoTime() - start) / 1000000;
+        _log.info("Loaded {} catalogue rows from {} in {} ms", _rows, path, _loadTime);
+    }
+
+    /**
+     * Returns the number of rows the last load inserted, across all the catalogue tables.
+     */
+    public long getRowCount() {
+        return _rows;
+    }
+
+    /**
+     * Returns how long (in milliseconds) the last load took.
+     */
+    public long getLoadTime() {
+        return _loadTime;
+    }
+}
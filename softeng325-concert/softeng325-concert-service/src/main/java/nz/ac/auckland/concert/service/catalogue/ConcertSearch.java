@@ -0,0 +1,104 @@
+package nz.ac.auckland.concert.service.catalogue;
+
+import nz.ac.auckland.concert.common.types.Genre;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A search of the concert catalogue, matching the concerts that satisfy every criterion given: a date in a
+ * range, a performer, a performer of a genre and a title prefix. A criterion left null matches every concert.
+ *
+ * Matches are found a page at a time in order of concert id, each page starting after the last id of the
+ * one before (keyset pagination), so a page costs the same however deep into the results it is. Only the
+ * ids are queried; the concerts themselves are then found in the second-level cache. The dates and
+ * performers are matched through the indexes on CONCERT_DATES and CONCERT_PERFORMER, and the title prefix
+ * through the index on CONCERTS.
+ */
+public class ConcertSearch {
+
+    private final LocalDateTime _from;
+
+    private final LocalDateTime _to;
+
+    private final Long _performerId;
+
+    private final Genre _genre;
+
+    private final String _titlePrefix;
+
+    /**
+     * Creates a search for concerts with a date no earlier than from and earlier than to, played by the
+     * given performer and by a performer of the given genre, and whose title starts with the given prefix
+     * (case-sensitively).
+     */
+    public ConcertSearch(LocalDateTime from, LocalDateTime to, Long performerId, Genre genre,
+                         String titlePrefix) {
+        _from = from;
+        _to = to;
+        _performerId = performerId;
+        _genre = genre;
+        _titlePrefix = titlePrefix;
+    }
+
+    /**
+     * Returns the ids of at most limit matching concerts with ids greater than after, in order.
+     */
+    public List<Long> findIds(EntityManager em, long after, int limit) {
+        StringBuilder jpql = new StringBuilder("SELECT DISTINCT c._id FROM Concert c");
+        if (_from != null || _to != null) {
+            jpql.append(" JOIN c._dates d");
+        }
+        if (_performerId != null) {
+            jpql.append(" JOIN c._performers p");
+        }
+        if (_genre != null) {
+            jpql.append(" JOIN c._performers g");
+        }
+
+        jpql.append(" WHERE c._id > :after");
+        if (_from != null) {
+            jpql.append(" AND d >= :from");
+        }
+        if (_to != null) {
+            jpql.append(" AND d < :to");
+        }
+        if (_performerId != null) {
+            jpql.append(" AND p._performerId = :performerId");
+        }
+        if (_genre != null) {
+            jpql.append(" AND g._genre = :genre");
+        }
+        if (_titlePrefix != null) {
+            jpql.append(" AND c._title LIKE :title ESCAPE '\\'");
+        }
+        jpql.append(" ORDER BY c._id");
+
+        TypedQuery<Long> query = CatalogueCache.instance().cacheable(em.createQuery(jpql.toString(), Long.class))
+                .setParameter("after", after)
+                .setMaxResults(limit);
+        if (_from != null) {
+            query.setParameter("from", _from);
+        }
+        if (_to != null) {
+            query.setParameter("to", _to);
+        }
+        if (_performerId != null) {
+            query.setParameter("performerId", _performerId);
+        }
+        if (_genre != null) {
+            query.setParameter("genre", _genre);
+        }
+        if (_titlePrefix != null) {
+            query.setParameter("title", escapeLike(_titlePrefix) + "%");
+        }
+        return query.getResultList();
+    }
+
+    //the prefix is matched literally, so LIKE's wildcards in it are escaped
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,103 @@
+package nz.ac.auckland.concert.service.domain.jpa;
+
+import nz.ac.auckland.concert.common.types.PriceBand;
+import org.hibernate.annotations.BatchSize;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Entity class to represent a reservation that has been moved out of the Reservation table by the
+ * ReservationArchiver, because it has expired or is a booking for a concert date that has passed.
+ *
+ * An ArchivedReservation keeps the columns of the Reservation it was copied from, including its id, and
+ * refers to its seats through RESERVATION_HISTORY_SEATS rather than RESERVATION_SEATS. The rows are written
+ * by the ReservationArchiver over JDBC, so the entity is only read.
+ *
+ */
+@Entity
+@Table(name = "RESERVATION_HISTORY", indexes = {
+		@Index(name = "IDX_RESERVATION_HISTORY_USER_STATUS", columnList = "userName, reservationStatus")})
+public class ArchivedReservation {
+
+	@Id
+	@Column(name = "reservationId")
+	private Long _reservationId;
+
+	@Column(name = "userName")
+	private String _userName;
+
+	@Column(name = "numberOfSeats")
+	private int _numberOfSeats;
+
+	@Column(name = "seatType")
+	private PriceBand _seatType;
+
+	@Column(name = "concertId")
+	private Long _concertId;
+
+	@Column(name = "concertDate")
+	private LocalDateTime _date;
+
+	@Column(name = "reservationTime")
+	private LocalDateTime _reservationTime;
+
+	@ManyToMany(fetch = FetchType.LAZY)
+	@JoinTable(name = "RESERVATION_HISTORY_SEATS",
+			joinColumns = @JoinColumn(name = "reservationId"),
+			inverseJoinColumns = @JoinColumn(name = "seatId"))
+	@BatchSize(size = 50)
+	private Set<Seat> _seats = new HashSet<>();
+
+	@Column(name = "seatPositions")
+	private byte[] _seatPositions;
+
+	@Column(name = "reservationStatus")
+	@Enumerated(EnumType.STRING)
+	private Reservation.ReservationStatus _reservationStatus;
+
+	public ArchivedReservation() {}
+
+	public Long getReservationId() {
+		return _reservationId;
+	}
+
+	public String getUserName() {
+		return _userName;
+	}
+
+	public int getNumberOfSeats() {
+		return _numberOfSeats;
+	}
+
+	public PriceBand getSeatType() {
+		return _seatType;
+	}
+
+	public Long getConcertId() {
+		return _concertId;
+	}
+
+	public LocalDateTime getDate() {
+		return _date;
+	}
+
+	public LocalDateTime getReservationTime() {
+		return _reservationTime;
+	}
+
+	public Set<Seat> getSeats() {
+		return _seats;
+	}
+
+	public BitSet getSeatPositions() {
+		return _seatPositions == null ? new BitSet() : BitSet.valueOf(_seatPositions);
+	}
+
+	public Reservation.ReservationStatus getReservationStatus() {
+		return _reservationStatus;
+	}
+}
@@ -4,6 +4,8 @@ import nz.ac.auckland.concert.common.dto.ConcertDTO;
 import nz.ac.auckland.concert.common.types.PriceBand;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.math.BigDecimal;
@@ -25,7 +27,9 @@ import java.util.*;
  *
  */
 @Entity
-@Table(name = "CONCERTS")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name = "CONCERTS", indexes = @Index(name = "IDX_CONCERTS_TITLE", columnList = "title"))
 public class Concert {
 
 	@Id
@@ -36,11 +40,14 @@ public class Concert {
 	@Column(name = "title", nullable = false)
 	private String _title;
 
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 	@ElementCollection
-	@CollectionTable(name = "CONCERT_DATES", joinColumns = @JoinColumn(name="id"))
+	@CollectionTable(name = "CONCERT_DATES", joinColumns = @JoinColumn(name="id"),
+			indexes = @Index(name = "IDX_CONCERT_DATES_DATE", columnList = "dates, id"))
 	@Column(name = "dates")
 	private Set<LocalDateTime> _dates = new HashSet<LocalDateTime>();
 
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 	@ElementCollection
 	@JoinTable(name = "CONCERT_TARIFS",
 			joinColumns = @JoinColumn(name = "concertId"))
@@ -49,10 +56,12 @@ public class Concert {
 	@MapKeyEnumerated(EnumType.STRING)
 	private Map<PriceBand, BigDecimal> _tariff = new HashMap<PriceBand, BigDecimal>();
 
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 	@ManyToMany(fetch = FetchType.LAZY)
 	@JoinTable(name = "CONCERT_PERFORMER",
 			joinColumns = @JoinColumn(name = "concertId"),
-			inverseJoinColumns = @JoinColumn(name = "performerId"))
+			inverseJoinColumns = @JoinColumn(name = "performerId"),
+			indexes = @Index(name = "IDX_CONCERT_PERFORMER_PERFORMER", columnList = "performerId, concertId"))
 	@Column(name = "performer", nullable = false, unique = true)
 	private Set<Performer> _performers = new HashSet<Performer>();
 
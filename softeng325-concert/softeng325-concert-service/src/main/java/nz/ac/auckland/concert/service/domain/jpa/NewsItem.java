@@ -1,5 +1,8 @@
 package nz.ac.auckland.concert.service.domain.jpa;
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -10,7 +13,9 @@ import java.time.LocalDate;
 public class NewsItem {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "newsItemIds")
+    @GenericGenerator(name = "newsItemIds", strategy = "nz.ac.auckland.concert.service.domain.jpa.PooledSequenceGenerator",
+            parameters = @Parameter(name = "sequence_name", value = "NEWS_ITEM_IDS"))
     @Column(name = "newsItemId")
     private Long _newsItemId;
 
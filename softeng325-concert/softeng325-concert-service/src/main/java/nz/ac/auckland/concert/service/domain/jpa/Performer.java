@@ -3,6 +3,8 @@ package nz.ac.auckland.concert.service.domain.jpa;
 import nz.ac.auckland.concert.common.types.Genre;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.Collections;
@@ -22,6 +24,8 @@ import java.util.Set;
  *             
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "PERFORMERS")
 public class Performer {
 
@@ -40,6 +44,7 @@ public class Performer {
 	@Column(name = "genre")
 	private Genre _genre;
 
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 	@ManyToMany(mappedBy = "_performers", fetch = FetchType.LAZY)
 	@Column(name = "concerts", nullable = false)
 	private Set<Concert> _concerts = new HashSet<>();
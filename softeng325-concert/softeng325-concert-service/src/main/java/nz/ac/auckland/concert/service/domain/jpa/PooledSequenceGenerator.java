@@ -0,0 +1,48 @@
+package nz.ac.auckland.concert.service.domain.jpa;
+
+import nz.ac.auckland.concert.service.util.ServiceConfiguration;
+import org.hibernate.MappingException;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import javax.persistence.EntityManager;
+import java.util.Properties;
+
+/**
+ * Identifier generator for the entities that the service creates in numbers (seats, seat maps, reservations
+ * and news items). Each entity has a sequence of its own, named by the generator's sequence_name parameter,
+ * which is incremented by the concert.ids.allocationSize system property (50 by default). Hibernate's pooled
+ * optimizer then hands out that many ids from each value it reads, so inserting a batch of entities costs
+ * one sequence call per allocationSize ids rather than one per entity.
+ *
+ * The sequence's increment is fixed when the schema is created, so a database must always be used with the
+ * allocation size it was created with.
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        params.putIfAbsent(INCREMENT_PARAM,
+                String.valueOf(ServiceConfiguration.getInt(ServiceConfiguration.ID_ALLOCATION_SIZE, 50)));
+        params.putIfAbsent(OPT_PARAM, "pooled");
+        super.configure(type, params, serviceRegistry);
+    }
+
+    /**
+     * Takes ids for rows of the given entity that are inserted over JDBC, from the same pooled blocks as
+     * the ids Hibernate assigns when the entity is persisted.
+     */
+    public static long[] nextIds(EntityManager em, Class<?> entityClass, int count) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        IdentifierGenerator generator = session.getFactory().getIdentifierGenerator(entityClass.getName());
+
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = ((Number) generator.generate(session, null)).longValue();
+        }
+        return ids;
+    }
+}
@@ -1,9 +1,13 @@
 package nz.ac.auckland.concert.service.domain.jpa;
 
 import nz.ac.auckland.concert.common.types.PriceBand;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
@@ -22,6 +26,10 @@ import java.util.Set;
  *
  */
 @Entity
+@Table(indexes = {
+		@Index(name = "IDX_RESERVATION_CONCERT_DATE", columnList = "concertId, concertDate"),
+		@Index(name = "IDX_RESERVATION_USER_STATUS", columnList = "userName, reservationStatus"),
+		@Index(name = "IDX_RESERVATION_STATUS_DATE", columnList = "reservationStatus, concertDate")})
 public class Reservation {
 
     public enum ReservationStatus {
@@ -29,7 +37,9 @@ public class Reservation {
     }
 
 	@Id
-	@GeneratedValue
+	@GeneratedValue(generator = "reservationIds")
+	@GenericGenerator(name = "reservationIds", strategy = "nz.ac.auckland.concert.service.domain.jpa.PooledSequenceGenerator",
+			parameters = @Parameter(name = "sequence_name", value = "RESERVATION_IDS"))
 	@Column(name = "reservationId")
 	private Long _reservationId;
 
@@ -51,11 +61,20 @@ public class Reservation {
 	@Column(name = "reservationTime")
 	private LocalDateTime _reservationTime;
 
-	@ElementCollection
-    @CollectionTable(name = "RESERVATION_SEATS", joinColumns = @JoinColumn(name="reservationId"))
-	@Column(name = "seats", nullable = false)
+	// the reservation refers to its seats by id rather than holding copies of them. They are only loaded
+	// when asked for, and then for up to 50 reservations of the persistence context at once
+	@ManyToMany(fetch = FetchType.LAZY)
+	@JoinTable(name = "RESERVATION_SEATS",
+			joinColumns = @JoinColumn(name = "reservationId"),
+			inverseJoinColumns = @JoinColumn(name = "seatId"))
+	@BatchSize(size = 50)
 	private Set<Seat> _seats = new HashSet<>();
 
+	// positions of the seats in their price band, as a bitmap, when seats are stored in SEAT_MAPS rather
+	// than SEATS (see SeatMapStore)
+	@Column(name = "seatPositions")
+	private byte[] _seatPositions;
+
 	@Column(name = "reservationStatus")
     @Enumerated(EnumType.STRING)
     private ReservationStatus _reservationStatus;
@@ -91,6 +110,14 @@ public class Reservation {
 		return _seats;
 	}
 
+	public BitSet getSeatPositions() {
+		return _seatPositions == null ? new BitSet() : BitSet.valueOf(_seatPositions);
+	}
+
+	public void setSeatPositions(BitSet seatPositions) {
+		_seatPositions = seatPositions.toByteArray();
+	}
+
 	public ReservationStatus getReservationStatus(){
 		return _reservationStatus;
 	}
@@ -3,6 +3,8 @@ package nz.ac.auckland.concert.service.domain.jpa;
 import nz.ac.auckland.concert.common.types.PriceBand;
 import nz.ac.auckland.concert.common.types.SeatNumber;
 import nz.ac.auckland.concert.common.types.SeatRow;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
@@ -16,7 +18,9 @@ import java.time.LocalDateTime;
  *
  */
 @Entity
-@Table(name = "SEATS")
+@Table(name = "SEATS", uniqueConstraints = @UniqueConstraint(
+		columnNames = {"concertId", "concertDateTime", "row", "number"}),
+		indexes = @Index(name = "IDX_SEATS_BAND_STATUS", columnList = "concertId, concertDateTime, seatType, seatStatus"))
 public class Seat {
 
 	public enum SeatStatus {
@@ -24,7 +28,9 @@ public class Seat {
 	}
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.AUTO)
+	@GeneratedValue(generator = "seatIds")
+	@GenericGenerator(name = "seatIds", strategy = "nz.ac.auckland.concert.service.domain.jpa.PooledSequenceGenerator",
+			parameters = @Parameter(name = "sequence_name", value = "SEAT_IDS"))
 	@Column(name = "seatId", nullable = false, unique = true)
 	private Long _seatId;
 
@@ -36,6 +42,7 @@ public class Seat {
 //	private Reservation _reservation;
 
 	@Enumerated(EnumType.STRING)
+	@Column(name = "seatType")
 	private PriceBand _seatType;
 
 	@Column(name = "concertId", nullable = false)
@@ -48,6 +55,7 @@ public class Seat {
 	private SeatRow _row;
 
 	@Column(name = "number", nullable = false)
+	@Convert(converter = SeatNumberConverter.class)
 	private SeatNumber _number;
 
 	@Enumerated(EnumType.STRING)
@@ -64,6 +72,10 @@ public class Seat {
 		_concertDateTime = localDateTime;
 	}
 	
+	public Long getSeatId() {
+		return _seatId;
+	}
+
 	public SeatRow getRow() {
 		return _row;
 	}
@@ -0,0 +1,111 @@
+package nz.ac.auckland.concert.service.domain.jpa;
+
+import nz.ac.auckland.concert.common.types.PriceBand;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+
+/**
+ * Entity class to represent the seats of one price band of a concert on a given date as bitmaps, the
+ * alternative to a SEATS row per seat (see SeatMapStore).
+ *
+ * A SeatMap describes the seats in terms of:
+ * _freeSeats      a bit per seat, by position in the price band (see SeatAllocator), set when the seat
+ *                 is available.
+ * _confirmedSeats a bit per seat, set when the seat is booked. Seats in neither bitmap are held by a
+ *                 reservation that hasn't been confirmed yet.
+ * _freeCount,
+ * _confirmedCount the number of bits set in each bitmap, so the band's availability can be read without
+ *                 decoding them.
+ * _version        incremented by every change, which is made as a compare-and-swap on it.
+ *
+ * The rows are written by SeatMapStore over JDBC, so the entity is only read.
+ *
+ */
+@Entity
+@Table(name = "SEAT_MAPS", uniqueConstraints = @UniqueConstraint(
+		columnNames = {"concertId", "concertDateTime", "seatType"}))
+public class SeatMap {
+
+	@Id
+	@GeneratedValue(generator = "seatMapIds")
+	@GenericGenerator(name = "seatMapIds", strategy = "nz.ac.auckland.concert.service.domain.jpa.PooledSequenceGenerator",
+			parameters = @Parameter(name = "sequence_name", value = "SEAT_MAP_IDS"))
+	@Column(name = "seatMapId")
+	private Long _seatMapId;
+
+	@Column(name = "version", nullable = false)
+	private long _version;
+
+	@Column(name = "concertId", nullable = false)
+	private Long _concertId;
+
+	@Column(name = "concertDateTime", nullable = false)
+	private LocalDateTime _concertDateTime;
+
+	@Enumerated(EnumType.STRING)
+	@Column(name = "seatType", nullable = false)
+	private PriceBand _seatType;
+
+	@Column(name = "capacity", nullable = false)
+	private int _capacity;
+
+	@Lob
+	@Column(name = "freeSeats", nullable = false)
+	private byte[] _freeSeats;
+
+	@Column(name = "freeCount", nullable = false)
+	private int _freeCount;
+
+	@Lob
+	@Column(name = "confirmedSeats", nullable = false)
+	private byte[] _confirmedSeats;
+
+	@Column(name = "confirmedCount", nullable = false)
+	private int _confirmedCount;
+
+	public SeatMap() {}
+
+	public Long getSeatMapId() {
+		return _seatMapId;
+	}
+
+	public long getVersion() {
+		return _version;
+	}
+
+	public Long getConcertId() {
+		return _concertId;
+	}
+
+	public LocalDateTime getConcertDateTime() {
+		return _concertDateTime;
+	}
+
+	public PriceBand getSeatType() {
+		return _seatType;
+	}
+
+	public int getCapacity() {
+		return _capacity;
+	}
+
+	public BitSet getFreeSeats() {
+		return BitSet.valueOf(_freeSeats);
+	}
+
+	public int getFreeCount() {
+		return _freeCount;
+	}
+
+	public BitSet getConfirmedSeats() {
+		return BitSet.valueOf(_confirmedSeats);
+	}
+
+	public int getConfirmedCount() {
+		return _confirmedCount;
+	}
+}
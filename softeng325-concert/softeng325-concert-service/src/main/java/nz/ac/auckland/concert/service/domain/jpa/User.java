@@ -3,6 +3,7 @@ package nz.ac.auckland.concert.service.domain.jpa;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
 
 /**
@@ -16,7 +17,7 @@ import javax.persistence.Table;
  *
  */
 @Entity
-@Table(name = "USERS")
+@Table(name = "USERS", indexes = @Index(name = "IDX_USERS_TOKEN", columnList = "token", unique = true))
 public class User {
 
 	@Id
@@ -35,7 +36,7 @@ public class User {
 	@Column(name = "creditCard")
 	private CreditCard _creditCard;
 
-	@Column(name = "token", nullable = false, unique = true)
+	@Column(name = "token", nullable = false)
 	private String _token;
 
 	protected User() {
@@ -0,0 +1,109 @@
+package nz.ac.auckland.concert.service.inventory;
+
+import nz.ac.auckland.concert.service.services.PersistenceManager;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Singleton class that creates the seats for each concert date in the SeatStore. All the seats for a date
+ * are inserted in a single JDBC batch, and the store's unique key means a date can never be given two sets
+ * of seats, even if two service instances initialise it at the same time.
+ *
+ * Every scheduled concert date is initialised when the service starts, so reservations don't normally pay
+ * for creating the seats; initialise(concertId, dateTime) covers dates that don't have seats yet.
+ */
+public class SeatInitialiser {
+
+    private static final SeatInitialiser _instance = new SeatInitialiser();
+
+    private static final Logger _log = LoggerFactory.getLogger(SeatInitialiser.class);
+
+    // concert dates (concertId@dateTime) known to have their seats in the DB
+    private final Set<String> _initialised = ConcurrentHashMap.newKeySet();
+
+    protected SeatInitialiser() {
+    }
+
+    public static SeatInitialiser instance() {
+        return _instance;
+    }
+
+    /**
+     * Creates the seats for every scheduled concert date that doesn't have them yet.
+     */
+    public void initialiseAll() {
+        long start = System.nanoTime();
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+        List<Object[]> concertDates;
+        Set<String> existing = new HashSet<>();
+
+        try {
+            em.getTransaction().begin();
+
+            concertDates = em.createQuery("SELECT c._id, d FROM Concert c JOIN c._dates d", Object[].class)
+                    .getResultList();
+
+            for (Object[] seated : SeatStore.current().findSeatedDates(em)) {
+                existing.add(key((Long) seated[0], (LocalDateTime) seated[1]));
+            }
+
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+
+        _initialised.addAll(existing);
+
+        for (Object[] concertDate : concertDates) {
+            initialise((Long) concertDate[0], (LocalDateTime) concertDate[1]);
+        }
+        _log.info("Initialised the seats of {} concert dates ({} already had them) in {} ms", concertDates.size(),
+                existing.size(), (System.nanoTime() - start) / 1000000);
+    }
+
+    /**
+     * Makes sure the seats for the given concert date are in the DB, creating them if necessary.
+     */
+    public void initialise(Long concertId, LocalDateTime dateTime) {
+        String key = key(concertId, dateTime);
+
+        if (_initialised.contains(key)) {
+            return;
+        }
+
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+
+        try {
+            em.getTransaction().begin();
+
+            SeatStore store = SeatStore.current();
+
+            if (!store.hasSeats(em, concertId, dateTime)) {
+                store.createSeats(em, concertId, dateTime);
+            }
+            em.getTransaction().commit();
+            _initialised.add(key);
+
+        } catch (ConstraintViolationException e) {
+            //another request (or service instance) created the seats first, which the unique key detected
+            _initialised.add(key);
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.close();
+        }
+    }
+
+    private static String key(Long concertId, LocalDateTime dateTime) {
+        return concertId + "@" + dateTime;
+    }
+}
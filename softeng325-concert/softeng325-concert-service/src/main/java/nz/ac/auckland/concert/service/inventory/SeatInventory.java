@@ -0,0 +1,146 @@
+package nz.ac.auckland.concert.service.inventory;
+
+import nz.ac.auckland.concert.common.dto.SeatAvailabilityDTO;
+import nz.ac.auckland.concert.common.types.SeatNumber;
+import nz.ac.auckland.concert.common.types.SeatRow;
+import nz.ac.auckland.concert.service.util.SeatAllocator;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory record of which seats are free within one price band of a concert on a given date.
+ *
+ * Seats are held by their position in the price band and the free seats are tracked by a SeatAllocator,
+ * so allocating or releasing seats never needs to read the band from the database. Each
+ * inventory guards its own state, which stripes the locking by (concert, date, price band) so that
+ * requests for different bands or performances never contend with each other.
+ *
+ * The inventory also records which seats are held, by reservations awaiting confirmation or by requests
+ * still being written, and which have been sold, so the band's free, held and sold counts can be given
+ * without reading the database.
+ */
+public class SeatInventory {
+
+    private final SeatInventoryKey _key;
+
+    // seat ids indexed by the seat's position in the price band
+    private final long[] _seatIds;
+
+    private final Map<Long, Integer> _positions;
+
+    private final SeatAllocator _allocator;
+
+    // positions of the seats allocated to reservations that haven't been confirmed
+    private final BitSet _held;
+
+    // positions of the seats booked by confirmed reservations
+    private final BitSet _sold;
+
+    /**
+     * Creates an inventory for the seats with the given ids, where seatIds is indexed by position in the
+     * price band (see SeatAllocator) and a set bit in free or sold marks the seat at that position as free
+     * or sold. Seats that are neither are held.
+     */
+    public SeatInventory(SeatInventoryKey key, long[] seatIds, BitSet free, BitSet sold) {
+        _key = key;
+        _seatIds = seatIds;
+        _allocator = new SeatAllocator(key.getPriceBand(), free);
+        _sold = (BitSet) sold.clone();
+        _held = new BitSet(seatIds.length);
+        _held.set(0, seatIds.length);
+        _held.andNot(free);
+        _held.andNot(sold);
+        _positions = new HashMap<>();
+
+        for (int position = 0; position < seatIds.length; position++) {
+            _positions.put(seatIds[position], position);
+        }
+    }
+
+    public SeatInventoryKey getKey() {
+        return _key;
+    }
+
+    /**
+     * Takes the requested number of seats out of the inventory.
+     *
+     * @return the ids of the allocated seats, or an empty array when there are not enough free seats.
+     */
+    public synchronized long[] allocate(int numberOfSeats) {
+        int[] positions = _allocator.allocate(numberOfSeats);
+        long[] allocated = new long[positions.length];
+
+        for (int i = 0; i < positions.length; i++) {
+            allocated[i] = _seatIds[positions[i]];
+            _held.set(positions[i]);
+        }
+        return allocated;
+    }
+
+    /**
+     * Returns previously allocated seats to the inventory. Ids that don't belong to this inventory, or are of
+     * seats that aren't held, are ignored.
+     */
+    public synchronized void release(long[] seatIds) {
+        int[] positions = new int[seatIds.length];
+        int count = 0;
+
+        for (long seatId : seatIds) {
+            Integer position = _positions.get(seatId);
+
+            if (position != null && _held.get(position)) {
+                positions[count++] = position;
+                _held.clear(position);
+            }
+        }
+        _allocator.release(Arrays.copyOf(positions, count));
+    }
+
+    /**
+     * Records seats as sold, once the reservation holding them has been confirmed. A seat the inventory
+     * still has as free is taken out of it first. Recording a seat twice is harmless, and ids that don't
+     * belong to this inventory are ignored.
+     */
+    public synchronized void sell(long[] seatIds) {
+        for (long seatId : seatIds) {
+            Integer position = _positions.get(seatId);
+
+            if (position != null) {
+                _allocator.take(new int[]{position});
+                _held.clear(position);
+                _sold.set(position);
+            }
+        }
+    }
+
+    /**
+     * Returns the band's free, held and sold counts, all taken at the same moment.
+     */
+    public synchronized SeatAvailabilityDTO getAvailability() {
+        return new SeatAvailabilityDTO(_key.getPriceBand(), _allocator.getFreeCount(), _held.cardinality(),
+                _sold.cardinality());
+    }
+
+    /**
+     * Returns the row of one of this inventory's seats, so that callers can describe allocated seats without
+     * reading them back from the database.
+     */
+    public SeatRow getRow(long seatId) {
+        return _allocator.rowAt(_positions.get(seatId));
+    }
+
+    public SeatNumber getNumber(long seatId) {
+        return new SeatNumber(_allocator.numberAt(_positions.get(seatId)));
+    }
+
+    public synchronized int getFreeCount() {
+        return _allocator.getFreeCount();
+    }
+
+    public int getCapacity() {
+        return _seatIds.length;
+    }
+}
@@ -0,0 +1,66 @@
+package nz.ac.auckland.concert.service.inventory;
+
+import nz.ac.auckland.concert.common.types.PriceBand;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+
+import java.time.LocalDateTime;
+
+/**
+ * Identifies the seat inventory for one price band of a concert on a given date.
+ */
+public class SeatInventoryKey {
+
+    private final Long _concertId;
+
+    private final LocalDateTime _dateTime;
+
+    private final PriceBand _priceBand;
+
+    public SeatInventoryKey(Long concertId, LocalDateTime dateTime, PriceBand priceBand) {
+        _concertId = concertId;
+        _dateTime = dateTime;
+        _priceBand = priceBand;
+    }
+
+    public Long getConcertId() {
+        return _concertId;
+    }
+
+    public LocalDateTime getDateTime() {
+        return _dateTime;
+    }
+
+    public PriceBand getPriceBand() {
+        return _priceBand;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof SeatInventoryKey))
+            return false;
+        if (obj == this)
+            return true;
+
+        SeatInventoryKey rhs = (SeatInventoryKey) obj;
+        return new EqualsBuilder().
+                append(_concertId, rhs._concertId).
+                append(_dateTime, rhs._dateTime).
+                append(_priceBand, rhs._priceBand).
+                isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder(17, 31).
+                append(_concertId).
+                append(_dateTime).
+                append(_priceBand).
+                hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return _concertId + "@" + _dateTime + "/" + _priceBand;
+    }
+}
@@ -0,0 +1,130 @@
+package nz.ac.auckland.concert.service.inventory;
+
+import nz.ac.auckland.concert.common.types.PriceBand;
+import nz.ac.auckland.concert.service.domain.jpa.Reservation;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Singleton class that holds a SeatInventory for every (concert, date, price band) that has been
+ * reserved against. An inventory is built from the SeatStore the first time it is needed and is kept
+ * in step afterwards by the reservation code, which writes each allocation through to the database.
+ *
+ * The manager also remembers the seats of each reservation written since the service started until it is
+ * confirmed or expires, so that confirming it can mark its seats as sold in their inventory without reading
+ * them back from the database.
+ */
+public class SeatInventoryManager {
+
+    private static final SeatInventoryManager _instance = new SeatInventoryManager();
+
+    private final ConcurrentMap<SeatInventoryKey, SeatInventory> _inventories = new ConcurrentHashMap<>();
+
+    // seats of the reservations awaiting confirmation, by reservation id
+    private final ConcurrentMap<Long, HeldSeats> _held = new ConcurrentHashMap<>();
+
+    protected SeatInventoryManager() {
+    }
+
+    public static SeatInventoryManager instance() {
+        return _instance;
+    }
+
+    /**
+     * Returns the inventory for the given concert, date and price band, loading it from the database
+     * if this is the first request for it. The seats must already have been initialised.
+     *
+     * The inventory is loaded through the caller's persistence context, before the caller has changed any
+     * seats, rather than a new one, so a load never needs a second connection from the pool. It is loaded
+     * outside the map, so that a slow load doesn't block the other inventories stored alongside it. Requests
+     * that race to load the same inventory all use the first one stored.
+     */
+    public SeatInventory getInventory(EntityManager em, Long concertId, LocalDateTime dateTime, PriceBand priceBand) {
+        SeatInventoryKey key = new SeatInventoryKey(concertId, dateTime, priceBand);
+        SeatInventory inventory = _inventories.get(key);
+
+        if (inventory == null) {
+            SeatInventory loaded = SeatStore.current().loadInventory(em, key);
+            inventory = _inventories.putIfAbsent(key, loaded);
+
+            if (inventory == null) {
+                inventory = loaded;
+            }
+        }
+        return inventory;
+    }
+
+    /**
+     * Remembers the seats allocated to a reservation, once it has been written, until it is confirmed or
+     * expires.
+     */
+    public void hold(Long reservationId, SeatInventoryKey key, long[] seatIds) {
+        _held.put(reservationId, new HeldSeats(key, seatIds));
+    }
+
+    /**
+     * Returns the seats of an expired reservation to the inventory they were allocated from. Nothing needs
+     * to happen when the inventory isn't loaded, because it will read the current seat state when it is.
+     */
+    public void release(Long reservationId, Long concertId, LocalDateTime dateTime, PriceBand priceBand,
+                        long[] seatIds) {
+        _held.remove(reservationId);
+        SeatInventory inventory = _inventories.get(new SeatInventoryKey(concertId, dateTime, priceBand));
+
+        if (inventory != null) {
+            inventory.release(seatIds);
+        }
+    }
+
+    /**
+     * Records the seats of a reservation as sold in the inventory they were allocated from, once the
+     * reservation's confirmation has been committed. As with release, nothing needs to happen when the
+     * inventory isn't loaded.
+     *
+     * The seats of a reservation written before the service started aren't known, so the inventory the
+     * stored reservation was made from is discarded instead and reloaded when it is next used.
+     */
+    public void sell(EntityManager em, Long reservationId) {
+        HeldSeats held = _held.remove(reservationId);
+
+        if (held != null) {
+            SeatInventory inventory = _inventories.get(held._key);
+
+            if (inventory != null) {
+                inventory.sell(held._seatIds);
+            }
+            return;
+        }
+
+        Reservation reservation = em.find(Reservation.class, reservationId);
+        if (reservation != null) {
+            evict(new SeatInventoryKey(reservation.getConcertId(), reservation.getDate(), reservation.getSeatType()));
+        }
+    }
+
+    /**
+     * Discards an inventory so that it is rebuilt from the database on its next use. This is used when
+     * the inventory is found to disagree with the database.
+     */
+    public void evict(SeatInventoryKey key) {
+        _inventories.remove(key);
+    }
+
+    /**
+     * The seats allocated to a reservation from one inventory.
+     */
+    private static class HeldSeats {
+
+        private final SeatInventoryKey _key;
+
+        private final long[] _seatIds;
+
+        private HeldSeats(SeatInventoryKey key, long[] seatIds) {
+            _key = key;
+            _seatIds = seatIds;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package nz.ac.auckland.concert.service.inventory;
+
+import nz.ac.auckland.concert.common.types.PriceBand;
+import nz.ac.auckland.concert.common.types.SeatNumber;
+import nz.ac.auckland.concert.service.domain.jpa.PooledSequenceGenerator;
+import nz.ac.auckland.concert.service.domain.jpa.Reservation;
+import nz.ac.auckland.concert.service.domain.jpa.SeatMap;
+import nz.ac.auckland.concert.service.util.SeatAllocator;
+import org.h2.api.ErrorCode;
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiPredicate;
+
+/**
+ * Singleton class that keeps the seats of each price band of a concert date in a single SEAT_MAPS row, as a
+ * bitmap of the free seats and another of the confirmed seats (see SeatMap), and records each reservation's
+ * seats as a bitmap of their positions in the band. A seat id is the seat's position in its band.
+ *
+ * A concert date takes three rows rather than a row per seat, an inventory is loaded by reading one row, and
+ * reserving, confirming or releasing a band's seats is a compare-and-swap of its row on the version: the
+ * bitmaps are read, changed and written back only if the version is still the one that was read, otherwise
+ * the swap is tried again against the new state. A swap that finds the row changed by a transaction that is
+ * still open waits for it to finish.
+ *
+ * Every write to a band goes through its one row, so concurrent writes to the same band take turns; the
+ * reservation queue, which writes a concert date's requests in batches, makes one swap per band per batch.
+ */
+public class SeatMapStore implements SeatStore {
+
+    private static final SeatMapStore _instance = new SeatMapStore();
+
+    private static final String INSERT_MAP = "INSERT INTO SEAT_MAPS " +
+            "(seatMapId, version, concertId, concertDateTime, seatType, capacity, freeSeats, freeCount, " +
+            "confirmedSeats, confirmedCount) VALUES (?, 0, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    private static final String SELECT_MAP = "SELECT seatMapId, version, freeSeats, confirmedSeats FROM SEAT_MAPS " +
+            "WHERE concertId = ? AND concertDateTime = ? AND seatType = ?";
+
+    private static final String SWAP_MAP = "UPDATE SEAT_MAPS SET freeSeats = ?, freeCount = ?, confirmedSeats = ?, " +
+            "confirmedCount = ?, version = version + 1 WHERE seatMapId = ? AND version = ?";
+
+    //how long (in milliseconds) a swap waits for other transactions that have changed the row to finish
+    private static final long SWAP_TIMEOUT = 2000;
+
+    //the bands of a concert date are always swapped in this order, so transactions can't deadlock
+    private static final Comparator<SeatInventoryKey> KEY_ORDER = Comparator
+            .comparing(SeatInventoryKey::getConcertId)
+            .thenComparing(SeatInventoryKey::getDateTime)
+            .thenComparing(SeatInventoryKey::getPriceBand);
+
+    protected SeatMapStore() {
+    }
+
+    public static SeatMapStore instance() {
+        return _instance;
+    }
+
+    @Override
+    public List<Object[]> findSeatedDates(EntityManager em) {
+        return em.createQuery("SELECT DISTINCT m._concertId, m._concertDateTime FROM SeatMap m", Object[].class)
+                .getResultList();
+    }
+
+    @Override
+    public boolean hasSeats(EntityManager em, Long concertId, LocalDateTime dateTime) {
+        return em.createQuery("SELECT COUNT(m) FROM SeatMap m " +
+                "WHERE m._concertId = :concertId AND m._concertDateTime = :dateTime", Long.class)
+                .setParameter("concertId", concertId)
+                .setParameter("dateTime", dateTime)
+                .getSingleResult() > 0;
+    }
+
+    /**
+     * Inserts a map for each price band in a single JDBC batch, with ids from SeatMap's pooled generator. The
+     * unique key on (concert, date, price band) stops a date being given two sets of seats.
+     */
+    @Override
+    public void createSeats(EntityManager em, Long concertId, LocalDateTime dateTime) {
+        long[] seatMapIds = PooledSequenceGenerator.nextIds(em, SeatMap.class, PriceBand.values().length);
+
+        em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_MAP)) {
+                for (PriceBand priceBand : PriceBand.values()) {
+                    int capacity = new SeatAllocator(priceBand).getCapacity();
+                    BitSet free = new BitSet(capacity);
+                    free.set(0, capacity);
+
+                    insert.setLong(1, seatMapIds[priceBand.ordinal()]);
+                    insert.setLong(2, concertId);
+                    insert.setTimestamp(3, Timestamp.valueOf(dateTime));
+                    insert.setString(4, priceBand.name());
+                    insert.setInt(5, capacity);
+                    insert.setBytes(6, free.toByteArray());
+                    insert.setInt(7, capacity);
+                    insert.setBytes(8, new byte[0]);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        });
+    }
+
+    @Override
+    public SeatInventory loadInventory(EntityManager em, SeatInventoryKey key) {
+        SeatMap seatMap = em.createQuery("SELECT m FROM SeatMap m WHERE m._concertId = :concertId " +
+                "AND m._concertDateTime = :dateTime AND m._seatType = :seatType", SeatMap.class)
+                .setParameter("concertId", key.getConcertId())
+                .setParameter("dateTime", key.getDateTime())
+                .setParameter("seatType", key.getPriceBand())
+                .getSingleResult();
+
+        //a seat's id is its position
+        long[] seatIds = new long[seatMap.getCapacity()];
+        for (int position = 0; position < seatIds.length; position++) {
+            seatIds[position] = position;
+        }
+        return new SeatInventory(key, seatIds, seatMap.getFreeSeats(), seatMap.getConfirmedSeats());
+    }
+
+    @Override
+    public void assignSeats(EntityManager em, Reservation reservation, long[] seatIds) {
+        reservation.setSeatPositions(toPositions(seatIds));
+    }
+
+    @Override
+    public boolean reserveSeats(EntityManager em, Map<SeatInventoryKey, List<Long>> seatIds) {
+        List<SeatInventoryKey> keys = new ArrayList<>(seatIds.keySet());
+        keys.sort(KEY_ORDER);
+
+        for (SeatInventoryKey key : keys) {
+            BitSet positions = new BitSet();
+            for (long seatId : seatIds.get(key)) {
+                positions.set((int) seatId);
+            }
+
+            boolean reserved = swap(em, key, (free, confirmed) -> {
+                //every seat must still be free
+                BitSet taken = (BitSet) positions.clone();
+                taken.andNot(free);
+
+                if (!taken.isEmpty()) {
+                    return false;
+                }
+                free.andNot(positions);
+                return true;
+            });
+
+            if (!reserved) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void confirmSeats(EntityManager em, Long reservationId) {
+        Reservation reservation = em.find(Reservation.class, reservationId);
+        BitSet positions = reservation.getSeatPositions();
+
+        swap(em, keyOf(reservation), (free, confirmed) -> {
+            confirmed.or(positions);
+            return true;
+        });
+    }
+
+    @Override
+    public List<long[]> releaseSeats(EntityManager em, List<Reservation> expired) {
+        Map<SeatInventoryKey, BitSet> positionsByKey = new TreeMap<>(KEY_ORDER);
+        List<long[]> released = new ArrayList<>();
+
+        for (Reservation reservation : expired) {
+            BitSet positions = reservation.getSeatPositions();
+
+            positionsByKey.computeIfAbsent(keyOf(reservation), key -> new BitSet()).or(positions);
+            released.add(positions.stream().asLongStream().toArray());
+        }
+
+        //free the seats of each band in one swap, leaving alone any that have been booked
+        for (Map.Entry<SeatInventoryKey, BitSet> entry : positionsByKey.entrySet()) {
+            swap(em, entry.getKey(), (free, confirmed) -> {
+                BitSet positions = (BitSet) entry.getValue().clone();
+                positions.andNot(confirmed);
+                free.or(positions);
+                return true;
+            });
+        }
+        return released;
+    }
+
+    @Override
+    public List<Object[]> findBookedSeats(EntityManager em, String userName) {
+        return findSeats(em, "Reservation", userName);
+    }
+
+    @Override
+    public List<Object[]> findArchivedSeats(EntityManager em, String userName) {
+        return findSeats(em, "ArchivedReservation", userName);
+    }
+
+    private List<Object[]> findSeats(EntityManager em, String entityName, String userName) {
+        List<Object[]> bookings = em.createQuery("SELECT r._reservationId, r._concertId, c._title, r._date, " +
+                "r._seatType, r._seatPositions FROM " + entityName + " r, Concert c " +
+                "WHERE c._id = r._concertId AND r._userName = :userName " +
+                "AND r._reservationStatus = :reservationStatus ORDER BY r._reservationId", Object[].class)
+                .setParameter("userName", userName)
+                .setParameter("reservationStatus", Reservation.ReservationStatus.CONFIRMED)
+                .getResultList();
+
+        //describe each seat by its row and number, which follow from its position in the band
+        Map<PriceBand, SeatAllocator> layouts = new EnumMap<>(PriceBand.class);
+        List<Object[]> seats = new ArrayList<>();
+
+        for (Object[] booking : bookings) {
+            SeatAllocator layout = layouts.computeIfAbsent((PriceBand) booking[4], SeatAllocator::new);
+            BitSet positions = booking[5] == null ? new BitSet() : BitSet.valueOf((byte[]) booking[5]);
+
+            positions.stream().forEach(position -> seats.add(new Object[]{booking[0], booking[1], booking[2],
+                    booking[3], booking[4], layout.rowAt(position), new SeatNumber(layout.numberAt(position))}));
+        }
+        return seats;
+    }
+
+    /**
+     * Applies a change to the free and confirmed seats of a price band as a compare-and-swap of its row. The
+     * change is given the band's current bitmaps to modify, and returns false to leave the row as it is.
+     *
+     * @return false if the change was refused, or the band has no seats.
+     */
+    private boolean swap(EntityManager em, SeatInventoryKey key, BiPredicate<BitSet, BitSet> change) {
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            long giveUpAt = System.currentTimeMillis() + SWAP_TIMEOUT;
+
+            try (PreparedStatement select = connection.prepareStatement(SELECT_MAP);
+                 PreparedStatement update = connection.prepareStatement(SWAP_MAP)) {
+                select.setLong(1, key.getConcertId());
+                select.setTimestamp(2, Timestamp.valueOf(key.getDateTime()));
+                select.setString(3, key.getPriceBand().name());
+
+                while (true) {
+                    long seatMapId;
+                    long version;
+                    BitSet free;
+                    BitSet confirmed;
+
+                    try (ResultSet row = select.executeQuery()) {
+                        if (!row.next()) {
+                            return false;
+                        }
+                        seatMapId = row.getLong(1);
+                        version = row.getLong(2);
+                        free = BitSet.valueOf(row.getBytes(3));
+                        confirmed = BitSet.valueOf(row.getBytes(4));
+                    }
+
+                    if (!change.test(free, confirmed)) {
+                        return false;
+                    }
+
+                    update.setBytes(1, free.toByteArray());
+                    update.setInt(2, free.cardinality());
+                    update.setBytes(3, confirmed.toByteArray());
+                    update.setInt(4, confirmed.cardinality());
+                    update.setLong(5, seatMapId);
+                    update.setLong(6, version);
+
+                    try {
+                        if (update.executeUpdate() == 1) {
+                            return true;
+                        }
+                        //another transaction has swapped the row since it was read, so try again on its state
+                    } catch (SQLException e) {
+                        //another transaction has swapped the row and held it for longer than the lock timeout
+                        boolean locked = e.getErrorCode() == ErrorCode.CONCURRENT_UPDATE_1
+                                || e.getErrorCode() == ErrorCode.LOCK_TIMEOUT_1;
+
+                        if (!locked || System.currentTimeMillis() > giveUpAt) {
+                            throw e;
+                        }
+                        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                    }
+                }
+            }
+        });
+    }
+
+    private static SeatInventoryKey keyOf(Reservation reservation) {
+        return new SeatInventoryKey(reservation.getConcertId(), reservation.getDate(), reservation.getSeatType());
+    }
+
+    private static BitSet toPositions(long[] seatIds) {
+        BitSet positions = new BitSet();
+        for (long seatId : seatIds) {
+            positions.set((int) seatId);
+        }
+        return positions;
+    }
+}
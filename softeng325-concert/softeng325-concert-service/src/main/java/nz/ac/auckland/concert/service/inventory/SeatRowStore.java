@@ -0,0 +1,220 @@
+package nz.ac.auckland.concert.service.inventory;
+
+import nz.ac.auckland.concert.common.types.PriceBand;
+import nz.ac.auckland.concert.common.types.SeatNumber;
+import nz.ac.auckland.concert.common.types.SeatRow;
+import nz.ac.auckland.concert.service.domain.jpa.PooledSequenceGenerator;
+import nz.ac.auckland.concert.service.domain.jpa.Reservation;
+import nz.ac.auckland.concert.service.domain.jpa.Seat;
+import nz.ac.auckland.concert.service.util.SeatAllocator;
+import nz.ac.auckland.concert.utility.TheatreLayout;
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Singleton class that keeps a SEATS row per seat, with its status, and joins each reservation to its seats
+ * through RESERVATION_SEATS. A seat id is the seat's SEATS primary key.
+ *
+ * A seat may be referred to by any number of expired reservations but by only one that is held or
+ * confirmed, which the conditional UPDATE that reserves the seats guarantees.
+ */
+public class SeatRowStore implements SeatStore {
+
+    private static final SeatRowStore _instance = new SeatRowStore();
+
+    private static final String INSERT_SEAT = "INSERT INTO SEATS " +
+            "(seatId, version, seatType, concertId, concertDateTime, row, number, seatStatus) " +
+            "VALUES (?, 0, ?, ?, ?, ?, ?, ?)";
+
+    protected SeatRowStore() {
+    }
+
+    public static SeatRowStore instance() {
+        return _instance;
+    }
+
+    @Override
+    public List<Object[]> findSeatedDates(EntityManager em) {
+        return em.createQuery("SELECT DISTINCT s._concertId, s._concertDateTime FROM Seat s", Object[].class)
+                .getResultList();
+    }
+
+    @Override
+    public boolean hasSeats(EntityManager em, Long concertId, LocalDateTime dateTime) {
+        return em.createQuery("SELECT COUNT(s) FROM Seat s " +
+                "WHERE s._concertId = :concertId AND s._concertDateTime = :dateTime", Long.class)
+                .setParameter("concertId", concertId)
+                .setParameter("dateTime", dateTime)
+                .getSingleResult() > 0;
+    }
+
+    /**
+     * Inserts all the seats of the date in a single JDBC batch, with ids from Seat's pooled generator. The
+     * SEATS table's unique key on (concert, date, row, number) stops a date being given two sets of seats.
+     */
+    @Override
+    public void createSeats(EntityManager em, Long concertId, LocalDateTime dateTime) {
+        int seats = 0;
+        for (PriceBand priceBand : PriceBand.values()) {
+            seats += new SeatAllocator(priceBand).getCapacity();
+        }
+        long[] seatIds = PooledSequenceGenerator.nextIds(em, Seat.class, seats);
+
+        em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_SEAT)) {
+                int next = 0;
+
+                for (PriceBand priceBand : PriceBand.values()) {
+                    for (SeatRow row : TheatreLayout.getRowsForPriceBand(priceBand)) {
+                        for (int number = 1; number <= TheatreLayout.getNumberOfSeatsForRow(row); number++) {
+                            insert.setLong(1, seatIds[next++]);
+                            insert.setString(2, priceBand.name());
+                            insert.setLong(3, concertId);
+                            insert.setTimestamp(4, Timestamp.valueOf(dateTime));
+                            insert.setInt(5, row.ordinal());
+                            insert.setInt(6, number);
+                            insert.setString(7, Seat.SeatStatus.AVAILABLE.name());
+                            insert.addBatch();
+                        }
+                    }
+                }
+                insert.executeBatch();
+            }
+        });
+    }
+
+    @Override
+    public SeatInventory loadInventory(EntityManager em, SeatInventoryKey key) {
+        List<Object[]> rows = em.createQuery("SELECT s._seatId, s._row, s._number, s._seatStatus FROM Seat s " +
+                "WHERE s._concertId = :concertId AND s._concertDateTime = :dateTime AND s._seatType = :seatType",
+                Object[].class)
+                .setParameter("concertId", key.getConcertId())
+                .setParameter("dateTime", key.getDateTime())
+                .setParameter("seatType", key.getPriceBand())
+                .getResultList();
+
+        //place each seat at its position in the price band
+        SeatAllocator layout = new SeatAllocator(key.getPriceBand());
+        long[] seatIds = new long[layout.getCapacity()];
+        BitSet free = new BitSet(seatIds.length);
+        BitSet sold = new BitSet(seatIds.length);
+
+        for (Object[] row : rows) {
+            int position = layout.positionOf((SeatRow) row[1], ((SeatNumber) row[2]).intValue());
+
+            if (position >= 0) {
+                seatIds[position] = (Long) row[0];
+
+                if (row[3] == Seat.SeatStatus.AVAILABLE) {
+                    free.set(position);
+                } else if (row[3] == Seat.SeatStatus.CONFIRMED) {
+                    sold.set(position);
+                }
+            }
+        }
+        return new SeatInventory(key, seatIds, free, sold);
+    }
+
+    /**
+     * Refers the reservation to its seats without loading them.
+     */
+    @Override
+    public void assignSeats(EntityManager em, Reservation reservation, long[] seatIds) {
+        Set<Seat> seats = new HashSet<>();
+        for (long seatId : seatIds) {
+            seats.add(em.getReference(Seat.class, seatId));
+        }
+        reservation.setSeats(seats);
+    }
+
+    @Override
+    public boolean reserveSeats(EntityManager em, Map<SeatInventoryKey, List<Long>> seatIds) {
+        List<Long> allSeatIds = new ArrayList<>();
+        for (List<Long> bandSeatIds : seatIds.values()) {
+            allSeatIds.addAll(bandSeatIds);
+        }
+
+        //mark the allocated seats as reserved, provided nobody else has claimed them in the meantime
+        int updated = em.createQuery("UPDATE Seat s SET s._seatStatus = :reserved, s._version = s._version + 1 " +
+                "WHERE s._seatId IN :seatIds AND s._seatStatus = :available")
+                .setParameter("reserved", Seat.SeatStatus.RESERVED)
+                .setParameter("available", Seat.SeatStatus.AVAILABLE)
+                .setParameter("seatIds", allSeatIds)
+                .executeUpdate();
+
+        return updated == allSeatIds.size();
+    }
+
+    /**
+     * Books the reservation's seats with one UPDATE.
+     */
+    @Override
+    public void confirmSeats(EntityManager em, Long reservationId) {
+        em.createQuery("UPDATE Seat s SET s._seatStatus = :confirmed, s._version = s._version + 1 " +
+                "WHERE s IN (SELECT rs FROM Reservation r JOIN r._seats rs WHERE r._reservationId = :reservationId)")
+                .setParameter("confirmed", Seat.SeatStatus.CONFIRMED)
+                .setParameter("reservationId", reservationId)
+                .executeUpdate();
+    }
+
+    /**
+     * Frees the seats of all the reservations with one UPDATE. The expired reservations keep referring to
+     * their seats.
+     */
+    @Override
+    public List<long[]> releaseSeats(EntityManager em, List<Reservation> expired) {
+        List<Long> reservationIds = new ArrayList<>();
+        for (Reservation reservation : expired) {
+            reservationIds.add(reservation.getReservationId());
+        }
+
+        //read the ids of every expired reservation's seats, without loading the seats, in one query
+        Map<Long, List<Long>> seatIds = new HashMap<>();
+        for (Object[] row : em.createQuery("SELECT r._reservationId, s._seatId FROM Reservation r JOIN r._seats s " +
+                "WHERE r._reservationId IN :reservationIds", Object[].class)
+                .setParameter("reservationIds", reservationIds)
+                .getResultList()) {
+            seatIds.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((Long) row[1]);
+        }
+
+        em.createQuery("UPDATE Seat s SET s._seatStatus = :available, s._version = s._version + 1 " +
+                "WHERE s IN (SELECT rs FROM Reservation r JOIN r._seats rs WHERE r._reservationId IN :reservationIds) " +
+                "AND s._seatStatus = :reserved")
+                .setParameter("available", Seat.SeatStatus.AVAILABLE)
+                .setParameter("reserved", Seat.SeatStatus.RESERVED)
+                .setParameter("reservationIds", reservationIds)
+                .executeUpdate();
+
+        List<long[]> released = new ArrayList<>();
+        for (Long reservationId : reservationIds) {
+            released.add(seatIds.getOrDefault(reservationId, Collections.emptyList()).stream()
+                    .mapToLong(Long::longValue).toArray());
+        }
+        return released;
+    }
+
+    @Override
+    public List<Object[]> findBookedSeats(EntityManager em, String userName) {
+        return findSeats(em, "Reservation", userName);
+    }
+
+    @Override
+    public List<Object[]> findArchivedSeats(EntityManager em, String userName) {
+        return findSeats(em, "ArchivedReservation", userName);
+    }
+
+    private List<Object[]> findSeats(EntityManager em, String entityName, String userName) {
+        return em.createQuery("SELECT r._reservationId, r._concertId, c._title, r._date, " +
+                "r._seatType, s._row, s._number FROM " + entityName + " r JOIN r._seats s, Concert c " +
+                "WHERE c._id = r._concertId AND r._userName = :userName " +
+                "AND r._reservationStatus = :reservationStatus ORDER BY r._reservationId", Object[].class)
+                .setParameter("userName", userName)
+                .setParameter("reservationStatus", Reservation.ReservationStatus.CONFIRMED)
+                .getResultList();
+    }
+}
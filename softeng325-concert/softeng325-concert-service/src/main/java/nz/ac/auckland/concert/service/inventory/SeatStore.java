@@ -0,0 +1,88 @@
+package nz.ac.auckland.concert.service.inventory;
+
+import nz.ac.auckland.concert.service.domain.jpa.Reservation;
+import nz.ac.auckland.concert.service.util.ServiceConfiguration;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The way seat states are kept in the database, chosen with the concert.seats.format system property:
+ *
+ * - rows    a SEATS row per seat, each reservation joined to its seats through RESERVATION_SEATS
+ *           (SeatRowStore). This is the default.
+ *
+ * - bitmap  a SEAT_MAPS row per price band of a concert date, holding the band's free and confirmed seats
+ *           as bitmaps, with each reservation recording the positions of its seats (SeatMapStore).
+ *
+ * Seats are identified by a seat id within a SeatInventory; what the id means is up to the store. Every
+ * method works in the caller's transaction and leaves committing to the caller.
+ */
+public interface SeatStore {
+
+    /**
+     * Returns the store named by the concert.seats.format system property.
+     */
+    static SeatStore current() {
+        String format = ServiceConfiguration.getString(ServiceConfiguration.SEAT_FORMAT, "rows");
+        return format.equalsIgnoreCase("bitmap") ? SeatMapStore.instance() : SeatRowStore.instance();
+    }
+
+    /**
+     * Returns the (concertId, dateTime) of every concert date whose seats have been created.
+     */
+    List<Object[]> findSeatedDates(EntityManager em);
+
+    boolean hasSeats(EntityManager em, Long concertId, LocalDateTime dateTime);
+
+    /**
+     * Creates the seats of a concert date, every one of them available. Creating them twice violates a
+     * unique key.
+     */
+    void createSeats(EntityManager em, Long concertId, LocalDateTime dateTime);
+
+    /**
+     * Reads the current state of one price band of a concert date into a new inventory.
+     */
+    SeatInventory loadInventory(EntityManager em, SeatInventoryKey key);
+
+    /**
+     * Records the seats allocated to a new reservation, before it is persisted.
+     */
+    void assignSeats(EntityManager em, Reservation reservation, long[] seatIds);
+
+    /**
+     * Marks seats allocated from the inventories as reserved, once the reservations holding them have been
+     * written.
+     *
+     * @return false if any of the seats had already been taken, in which case the caller must roll back.
+     */
+    boolean reserveSeats(EntityManager em, Map<SeatInventoryKey, List<Long>> seatIds);
+
+    /**
+     * Marks the seats of a reservation that has just been confirmed as booked.
+     */
+    void confirmSeats(EntityManager em, Long reservationId);
+
+    /**
+     * Makes the seats of reservations that have just been expired available again.
+     *
+     * @return the ids of each reservation's seats, in the order of the reservations, for releasing them to
+     *         their inventories once the transaction has committed.
+     */
+    List<long[]> releaseSeats(EntityManager em, List<Reservation> expired);
+
+    /**
+     * Returns a row for every seat of the user's confirmed reservations, holding the reservation's id,
+     * concert id, concert title, date and price band and the seat's row and number, ordered by reservation.
+     */
+    List<Object[]> findBookedSeats(EntityManager em, String userName);
+
+    /**
+     * Returns the same rows as findBookedSeats, for the user's confirmed reservations that have been moved
+     * to the history table (see ReservationArchiver).
+     */
+    List<Object[]> findArchivedSeats(EntityManager em, String userName);
+}
@@ -0,0 +1,26 @@
+package nz.ac.auckland.concert.service.reservation;
+
+import java.sql.Connection;
+
+/**
+ * Singleton class that reserves the seats allocated for a claim without locking them first. Each seat's
+ * UPDATE ... WHERE seatStatus = 'AVAILABLE' waits for a transaction working on the seat only as long as the
+ * database's lock timeout, after which the seat counts as lost and is replaced by another, so a conflict only
+ * costs another batch of updates rather than the whole transaction.
+ */
+public class ConditionalClaimStrategy extends SeatRowClaimStrategy {
+
+    private static final ConditionalClaimStrategy _instance = new ConditionalClaimStrategy();
+
+    protected ConditionalClaimStrategy() {
+    }
+
+    public static ConditionalClaimStrategy instance() {
+        return _instance;
+    }
+
+    @Override
+    protected void lock(Connection connection, long[] seatIds) {
+        //the updates take the seats' row locks themselves
+    }
+}
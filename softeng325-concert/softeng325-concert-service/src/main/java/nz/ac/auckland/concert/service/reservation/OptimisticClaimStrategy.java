@@ -0,0 +1,59 @@
+package nz.ac.auckland.concert.service.reservation;
+
+import nz.ac.auckland.concert.service.inventory.SeatInventory;
+import nz.ac.auckland.concert.service.inventory.SeatInventoryKey;
+import nz.ac.auckland.concert.service.inventory.SeatInventoryManager;
+import nz.ac.auckland.concert.service.inventory.SeatStore;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Singleton class that allocates seats from the in-memory inventory, which places groups together without
+ * reading the database, and has the SeatStore mark them as reserved once the reservations are written. When
+ * the store finds a seat already taken, the inventories involved are discarded so that the retry allocates
+ * from the current state of the database.
+ */
+public class OptimisticClaimStrategy implements SeatClaimStrategy {
+
+    private static final OptimisticClaimStrategy _instance = new OptimisticClaimStrategy();
+
+    private final AtomicLong _conflicts = new AtomicLong();
+
+    protected OptimisticClaimStrategy() {
+    }
+
+    public static OptimisticClaimStrategy instance() {
+        return _instance;
+    }
+
+    @Override
+    public long[] claim(EntityManager em, SeatInventory inventory, int numberOfSeats) {
+        return inventory.allocate(numberOfSeats);
+    }
+
+    @Override
+    public boolean complete(EntityManager em, Map<SeatInventoryKey, List<Long>> seatIds) {
+        if (SeatStore.current().reserveSeats(em, seatIds)) {
+            return true;
+        }
+        _conflicts.incrementAndGet();
+
+        for (SeatInventoryKey key : seatIds.keySet()) {
+            SeatInventoryManager.instance().evict(key);
+        }
+        return false;
+    }
+
+    @Override
+    public void abandon(SeatInventory inventory, long[] seatIds) {
+        inventory.release(seatIds);
+    }
+
+    @Override
+    public long getConflictCount() {
+        return _conflicts.get();
+    }
+}
@@ -0,0 +1,58 @@
+package nz.ac.auckland.concert.service.reservation;
+
+import nz.ac.auckland.concert.service.util.ServiceConfiguration;
+import org.h2.api.ErrorCode;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+
+/**
+ * Singleton class that locks the seats allocated for a claim with SELECT ... FOR UPDATE before reserving
+ * them, so a claim for seats another transaction is working on waits for it to finish rather than losing
+ * them. The seats are locked in id order, so claims waiting on each other can't deadlock. A lock wait longer
+ * than the database's lock timeout is retried, until concert.seats.claim.timeout has passed.
+ *
+ * The lock says nothing about the seats' status, which the reserving UPDATE checks as with every
+ * SeatRowClaimStrategy: a seat that another transaction took while this claim waited is lost and replaced.
+ */
+public class PessimisticClaimStrategy extends SeatRowClaimStrategy {
+
+    private static final PessimisticClaimStrategy _instance = new PessimisticClaimStrategy();
+
+    private static final String LOCK_SEATS = "SELECT seatId FROM SEATS WHERE seatId IN (%s) ORDER BY seatId FOR UPDATE";
+
+    protected PessimisticClaimStrategy() {
+    }
+
+    public static PessimisticClaimStrategy instance() {
+        return _instance;
+    }
+
+    @Override
+    protected void lock(Connection connection, long[] seatIds) throws SQLException {
+        long giveUpAt = System.currentTimeMillis()
+                + ServiceConfiguration.getLong(ServiceConfiguration.SEAT_CLAIM_TIMEOUT, 5000);
+
+        try (PreparedStatement lock = connection.prepareStatement(String.format(LOCK_SEATS,
+                String.join(", ", Collections.nCopies(seatIds.length, "?"))))) {
+            for (int i = 0; i < seatIds.length; i++) {
+                lock.setLong(i + 1, seatIds[i]);
+            }
+
+            while (true) {
+                try (ResultSet rows = lock.executeQuery()) {
+                    return;
+                } catch (SQLException e) {
+                    //another transaction held the seats for longer than the lock timeout
+                    if (e.getErrorCode() != ErrorCode.LOCK_TIMEOUT_1 || System.currentTimeMillis() > giveUpAt) {
+                        throw e;
+                    }
+                    conflict();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package nz.ac.auckland.concert.service.reservation;
+
+import nz.ac.auckland.concert.service.domain.jpa.Reservation;
+import nz.ac.auckland.concert.service.services.PersistenceManager;
+import nz.ac.auckland.concert.service.util.ServiceConfiguration;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Singleton class that moves reservations which can no longer change out of the Reservation table and into
+ * RESERVATION_HISTORY (see ArchivedReservation), so that the live tables only grow with the reservations
+ * that are held or booked for concerts still to come. A background thread makes a pass every
+ * concert.reservation.archive.interval milliseconds, moving expired reservations and, when
+ * concert.reservation.archive.bookingsAfter is set, bookings for concert dates that passed that many days ago.
+ *
+ * Each batch of reservations is copied, together with its RESERVATION_SEATS rows, and deleted with four
+ * set-based statements in one transaction. Only EXPIRED and CONFIRMED reservations are archived, and
+ * neither status ever changes again, so the archiver never competes with reserving, confirming or expiring.
+ */
+public class ReservationArchiver implements Runnable {
+
+    private static final ReservationArchiver _instance = new ReservationArchiver();
+
+    private static final Logger _log = LoggerFactory.getLogger(ReservationArchiver.class);
+
+    private static final String SELECT_EXPIRED = "SELECT reservationId FROM Reservation " +
+            "WHERE reservationStatus = '" + Reservation.ReservationStatus.EXPIRED + "' LIMIT ?";
+
+    private static final String SELECT_EXPIRED_OR_PAST = "SELECT reservationId FROM Reservation " +
+            "WHERE reservationStatus = '" + Reservation.ReservationStatus.EXPIRED + "' " +
+            "OR (reservationStatus = '" + Reservation.ReservationStatus.CONFIRMED + "' AND concertDate < ?) LIMIT ?";
+
+    private static final String COLUMNS = "reservationId, userName, numberOfSeats, seatType, concertId, " +
+            "concertDate, reservationTime, seatPositions, reservationStatus";
+
+    private static final String COPY_RESERVATIONS = "INSERT INTO RESERVATION_HISTORY (" + COLUMNS + ") " +
+            "SELECT " + COLUMNS + " FROM Reservation WHERE reservationId IN (%s)";
+
+    private static final String COPY_SEATS = "INSERT INTO RESERVATION_HISTORY_SEATS (reservationId, seatId) " +
+            "SELECT reservationId, seatId FROM RESERVATION_SEATS WHERE reservationId IN (%s)";
+
+    private static final String DELETE_SEATS = "DELETE FROM RESERVATION_SEATS WHERE reservationId IN (%s)";
+
+    private static final String DELETE_RESERVATIONS = "DELETE FROM Reservation WHERE reservationId IN (%s)";
+
+    //how long (in milliseconds) the archiver waits between passes
+    private final long _interval = ServiceConfiguration.getLong(ServiceConfiguration.RESERVATION_ARCHIVE_INTERVAL, 60000);
+
+    private final int _batchSize = ServiceConfiguration.getInt(ServiceConfiguration.RESERVATION_ARCHIVE_BATCH_SIZE, 500);
+
+    //how long (in days) bookings stay live after their concert date, or -1 to keep them live. Bookings are
+    //read from the live tables, so they are only archived when a deployment asks for it
+    private final long _bookingsAfter = ServiceConfiguration.getLong(
+            ServiceConfiguration.RESERVATION_ARCHIVE_BOOKINGS_AFTER, -1);
+
+    private final AtomicLong _archived = new AtomicLong();
+
+    private Thread _archiver;
+
+    protected ReservationArchiver() {
+    }
+
+    public static ReservationArchiver instance() {
+        return _instance;
+    }
+
+    /**
+     * Returns the number of reservations this service has archived since it started.
+     */
+    public long getArchivedCount() {
+        return _archived.get();
+    }
+
+    /**
+     * Starts the archiver thread. Has no effect if the archiver is already running or archiving is turned off.
+     */
+    public synchronized void start() {
+        if (_archiver != null || _interval <= 0) {
+            return;
+        }
+
+        _archiver = new Thread(this, "reservation-archiver");
+        _archiver.setDaemon(true);
+        _archiver.start();
+
+        if (_bookingsAfter < 0) {
+            _log.info("Archiving expired reservations every {} ms; bookings stay live until {} is set",
+                    _interval, ServiceConfiguration.RESERVATION_ARCHIVE_BOOKINGS_AFTER);
+        } else {
+            _log.info("Archiving expired reservations, and bookings {} days after their concert, every {} ms",
+                    _bookingsAfter, _interval);
+        }
+    }
+
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                archive(_bookingsAfter < 0 ? null : LocalDateTime.now().minusDays(_bookingsAfter));
+            } catch (RuntimeException e) {
+                //whatever wasn't archived is picked up by the next pass
+                _log.warn("Archiving pass failed, retrying in {} ms", _interval, e);
+            }
+
+            try {
+                Thread.sleep(_interval);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Moves every expired reservation, and every booking for a concert date before the given time, to the
+     * history table, a batch per transaction.
+     *
+     * @param concertsBefore the time before which bookings are archived, or null to leave bookings alone.
+     *
+     * @return the number of reservations archived.
+     */
+    public int archive(LocalDateTime concertsBefore) {
+        int total = 0;
+        int archived;
+
+        do {
+            archived = archiveBatch(concertsBefore);
+            total += archived;
+        } while (archived == _batchSize);
+
+        _archived.addAndGet(total);
+        return total;
+    }
+
+    private int archiveBatch(LocalDateTime concertsBefore) {
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+
+        try {
+            em.getTransaction().begin();
+
+            int archived = em.unwrap(Session.class).doReturningWork(connection -> {
+                List<Long> reservationIds = new ArrayList<>();
+
+                try (PreparedStatement select = connection.prepareStatement(
+                        concertsBefore == null ? SELECT_EXPIRED : SELECT_EXPIRED_OR_PAST)) {
+                    int parameter = 1;
+                    if (concertsBefore != null) {
+                        select.setTimestamp(parameter++, Timestamp.valueOf(concertsBefore));
+                    }
+                    select.setInt(parameter, _batchSize);
+
+                    try (ResultSet rows = select.executeQuery()) {
+                        while (rows.next()) {
+                            reservationIds.add(rows.getLong(1));
+                        }
+                    }
+                }
+
+                if (reservationIds.isEmpty()) {
+                    return 0;
+                }
+
+                //copy the reservations and their seats before deleting them, children last in and first out
+                String placeholders = String.join(", ", Collections.nCopies(reservationIds.size(), "?"));
+
+                for (String sql : new String[]{COPY_RESERVATIONS, COPY_SEATS, DELETE_SEATS, DELETE_RESERVATIONS}) {
+                    try (PreparedStatement statement = connection.prepareStatement(String.format(sql, placeholders))) {
+                        for (int i = 0; i < reservationIds.size(); i++) {
+                            statement.setLong(i + 1, reservationIds.get(i));
+                        }
+                        statement.executeUpdate();
+                    }
+                }
+                return reservationIds.size();
+            });
+
+            em.getTransaction().commit();
+            return archived;
+
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.close();
+        }
+    }
+}
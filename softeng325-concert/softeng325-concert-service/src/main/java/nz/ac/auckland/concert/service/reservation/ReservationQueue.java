@@ -0,0 +1,68 @@
+package nz.ac.auckland.concert.service.reservation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Queue of reservation requests for one concert date. While requests are waiting, one writer from the
+ * manager's pool at a time takes whatever has built up (up to the batch size) and writes it in one
+ * transaction, so requests for the same performance are allocated in arrival order and never conflict with
+ * each other. An idle queue holds no thread.
+ */
+public class ReservationQueue {
+
+    private final Queue<ReservationTask> _tasks = new ConcurrentLinkedQueue<>();
+
+    // whether a writer has been given the queue and hasn't finished with it yet
+    private final AtomicBoolean _scheduled = new AtomicBoolean();
+
+    private final Executor _writers;
+
+    private final int _batchSize;
+
+    public ReservationQueue(Executor writers, int batchSize) {
+        _writers = writers;
+        _batchSize = batchSize;
+    }
+
+    public void submit(ReservationTask task) {
+        _tasks.add(task);
+        schedule();
+    }
+
+    //hands the queue to a writer, unless one already has it
+    private void schedule() {
+        if (!_tasks.isEmpty() && _scheduled.compareAndSet(false, true)) {
+            _writers.execute(this::drain);
+        }
+    }
+
+    /**
+     * Writes one batch, then hands the queue back to the pool if more requests have arrived, so that a busy
+     * concert date can't keep the writers from the other dates' queues.
+     */
+    private void drain() {
+        List<ReservationTask> batch = new ArrayList<>();
+        ReservationTask task;
+
+        while (batch.size() < _batchSize && (task = _tasks.poll()) != null) {
+            batch.add(task);
+        }
+
+        try {
+            ReservationWriter.write(batch);
+        } catch (RuntimeException e) {
+            //make sure no requester is left waiting on a batch that failed
+            for (ReservationTask failed : batch) {
+                failed.getResult().completeExceptionally(e);
+            }
+        } finally {
+            _scheduled.set(false);
+            schedule();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package nz.ac.auckland.concert.service.reservation;
+
+import nz.ac.auckland.concert.common.dto.ReservationRequestDTO;
+import nz.ac.auckland.concert.service.util.ServiceConfiguration;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Singleton class that routes reservation requests onto the ReservationQueue for their concert date,
+ * creating the queue the first time a date is reserved against. The queues share a fixed pool of writer
+ * threads, so the number of threads doesn't grow with the number of concert dates.
+ */
+public class ReservationQueueManager {
+
+    private static final ReservationQueueManager _instance = new ReservationQueueManager();
+
+    private final ConcurrentMap<String, ReservationQueue> _queues = new ConcurrentHashMap<>();
+
+    private final int _batchSize = ServiceConfiguration.getInt(ServiceConfiguration.RESERVATION_QUEUE_BATCH_SIZE, 32);
+
+    private final ExecutorService _writers;
+
+    protected ReservationQueueManager() {
+        AtomicInteger count = new AtomicInteger();
+
+        _writers = Executors.newFixedThreadPool(ServiceConfiguration.getInt(
+                ServiceConfiguration.RESERVATION_QUEUE_WRITERS, Runtime.getRuntime().availableProcessors()),
+                runnable -> {
+                    Thread writer = new Thread(runnable, "reservation-writer-" + count.incrementAndGet());
+                    writer.setDaemon(true);
+                    return writer;
+                });
+    }
+
+    public static ReservationQueueManager instance() {
+        return _instance;
+    }
+
+    public void submit(ReservationTask task) {
+        ReservationRequestDTO request = task.getRequest();
+        String name = request.getConcertId() + "@" + request.getDate();
+
+        _queues.computeIfAbsent(name, key -> new ReservationQueue(_writers, _batchSize)).submit(task);
+    }
+}
@@ -0,0 +1,229 @@
+package nz.ac.auckland.concert.service.reservation;
+
+import nz.ac.auckland.concert.service.domain.jpa.Reservation;
+import nz.ac.auckland.concert.service.inventory.SeatInventoryManager;
+import nz.ac.auckland.concert.service.inventory.SeatStore;
+import nz.ac.auckland.concert.service.services.PersistenceManager;
+import nz.ac.auckland.concert.service.util.ServiceConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Singleton class that expires reservations which haven't been confirmed in time. Every new reservation is
+ * scheduled on a DelayQueue keyed on its expiry time (reservation time plus the time to live), and a
+ * background thread expires whatever has come due in bulk, freeing the seats for other users. Nothing is
+ * expired on the request path.
+ *
+ * The queue only lives in memory, so when the reaper is started it schedules every reservation that is
+ * still RESERVED in the database.
+ */
+public class ReservationReaper implements Runnable {
+
+    private static final ReservationReaper _instance = new ReservationReaper();
+
+    private static final Logger _log = LoggerFactory.getLogger(ReservationReaper.class);
+
+    private final DelayQueue<ExpiringReservation> _reservations = new DelayQueue<>();
+
+    //how long a reservation is held before it expires
+    private final Duration _timeToLive = Duration.ofMillis(
+            ServiceConfiguration.getLong(ServiceConfiguration.RESERVATION_TIME_TO_LIVE, 5000));
+
+    private Thread _reaper;
+
+    protected ReservationReaper() {
+    }
+
+    public static ReservationReaper instance() {
+        return _instance;
+    }
+
+    public Duration getTimeToLive() {
+        return _timeToLive;
+    }
+
+    /**
+     * Starts the reaper thread, first scheduling the reservations that are still held in the database. Has
+     * no effect if the reaper is already running.
+     */
+    public synchronized void start() {
+        if (_reaper != null) {
+            return;
+        }
+
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+
+        try {
+            em.getTransaction().begin();
+
+            List<Object[]> held = em.createQuery("SELECT r._reservationId, r._reservationTime FROM Reservation r " +
+                    "WHERE r._reservationStatus = :reserved", Object[].class)
+                    .setParameter("reserved", Reservation.ReservationStatus.RESERVED)
+                    .getResultList();
+
+            em.getTransaction().commit();
+
+            for (Object[] reservation : held) {
+                enqueue((Long) reservation[0], (LocalDateTime) reservation[1]);
+            }
+        } finally {
+            em.close();
+        }
+
+        _reaper = new Thread(this, "reservation-reaper");
+        _reaper.setDaemon(true);
+        _reaper.start();
+    }
+
+    /**
+     * Schedules a newly made reservation to expire once its time to live has passed.
+     */
+    public void schedule(Long reservationId, LocalDateTime reservationTime) {
+        start();
+        enqueue(reservationId, reservationTime);
+    }
+
+    /**
+     * Expires a reservation straight away, if it is still held, e.g. because it was written after its
+     * requester stopped waiting for it.
+     */
+    public void expireNow(Long reservationId) {
+        start();
+        _reservations.add(new ExpiringReservation(reservationId, System.currentTimeMillis()));
+    }
+
+    private void enqueue(Long reservationId, LocalDateTime reservationTime) {
+        long expiresAt = reservationTime.plus(_timeToLive).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        _reservations.add(new ExpiringReservation(reservationId, expiresAt));
+    }
+
+    @Override
+    public void run() {
+        List<ExpiringReservation> due = new ArrayList<>();
+
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                due.add(_reservations.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            //only takes the reservations that have already expired
+            _reservations.drainTo(due);
+
+            List<Long> reservationIds = new ArrayList<>();
+            for (ExpiringReservation reservation : due) {
+                reservationIds.add(reservation._reservationId);
+            }
+
+            try {
+                expire(reservationIds);
+            } catch (RuntimeException e) {
+                //try again shortly rather than leave the seats held forever
+                _log.warn("Could not expire {} reservations, retrying in 1 s", reservationIds.size(), e);
+                long retryAt = System.currentTimeMillis() + 1000;
+                for (Long reservationId : reservationIds) {
+                    _reservations.add(new ExpiringReservation(reservationId, retryAt));
+                }
+            }
+            due.clear();
+        }
+    }
+
+    /**
+     * Expires those of the given reservations that are still held, and makes their seats available again,
+     * in one transaction. Reservations that have since been confirmed (or expired when a user tried to
+     * confirm them too late) are left alone.
+     */
+    private void expire(List<Long> reservationIds) {
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+        List<Reservation> expired;
+        List<long[]> released;
+
+        try {
+            em.getTransaction().begin();
+
+            //lock the reservations first, in the same table order as making and confirming reservations
+            expired = em.createQuery("SELECT r FROM Reservation r " +
+                    "WHERE r._reservationId IN :reservationIds AND r._reservationStatus = :reserved", Reservation.class)
+                    .setParameter("reservationIds", reservationIds)
+                    .setParameter("reserved", Reservation.ReservationStatus.RESERVED)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .getResultList();
+
+            if (expired.isEmpty()) {
+                em.getTransaction().commit();
+                return;
+            }
+
+            List<Long> expiredIds = new ArrayList<>();
+            for (Reservation reservation : expired) {
+                expiredIds.add(reservation.getReservationId());
+            }
+
+            //the rows are locked, but the update only expires reservations that are still held all the same
+            em.createQuery("UPDATE Reservation r SET r._reservationStatus = :expired " +
+                    "WHERE r._reservationId IN :reservationIds AND r._reservationStatus = :reserved")
+                    .setParameter("expired", Reservation.ReservationStatus.EXPIRED)
+                    .setParameter("reserved", Reservation.ReservationStatus.RESERVED)
+                    .setParameter("reservationIds", expiredIds)
+                    .executeUpdate();
+
+            released = SeatStore.current().releaseSeats(em, expired);
+
+            em.getTransaction().commit();
+
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.close();
+        }
+
+        //the freed seats can only be handed out again once the DB agrees they are available
+        for (int i = 0; i < expired.size(); i++) {
+            Reservation reservation = expired.get(i);
+
+            SeatInventoryManager.instance().release(reservation.getReservationId(),
+                    reservation.getConcertId(),
+                    reservation.getDate(),
+                    reservation.getSeatType(),
+                    released.get(i));
+        }
+    }
+
+    /**
+     * A reservation waiting on the delay queue until it is due to expire.
+     */
+    private static class ExpiringReservation implements Delayed {
+
+        private final Long _reservationId;
+
+        //expiry time in epoch milliseconds
+        private final long _expiresAt;
+
+        private ExpiringReservation(Long reservationId, long expiresAt) {
+            _reservationId = reservationId;
+            _expiresAt = expiresAt;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(_expiresAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package nz.ac.auckland.concert.service.reservation;
+
+import nz.ac.auckland.concert.common.dto.ReservationDTO;
+import nz.ac.auckland.concert.common.dto.ReservationRequestDTO;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A reservation request from an authenticated user that is waiting to be written. The outcome is delivered
+ * through the task's future: the new reservation, or null when there are not enough seats available.
+ */
+public class ReservationTask {
+
+    private final String _userName;
+
+    private final ReservationRequestDTO _request;
+
+    private final CompletableFuture<ReservationDTO> _result = new CompletableFuture<>();
+
+    public ReservationTask(String userName, ReservationRequestDTO request) {
+        _userName = userName;
+        _request = request;
+    }
+
+    public String getUserName() {
+        return _userName;
+    }
+
+    public ReservationRequestDTO getRequest() {
+        return _request;
+    }
+
+    public CompletableFuture<ReservationDTO> getResult() {
+        return _result;
+    }
+}
@@ -0,0 +1,208 @@
+package nz.ac.auckland.concert.service.reservation;
+
+import nz.ac.auckland.concert.common.dto.ReservationDTO;
+import nz.ac.auckland.concert.common.dto.ReservationRequestDTO;
+import nz.ac.auckland.concert.common.dto.SeatDTO;
+import nz.ac.auckland.concert.service.domain.jpa.Reservation;
+import nz.ac.auckland.concert.service.inventory.SeatInventory;
+import nz.ac.auckland.concert.service.inventory.SeatInventoryKey;
+import nz.ac.auckland.concert.service.inventory.SeatInventoryManager;
+import nz.ac.auckland.concert.service.inventory.SeatStore;
+import nz.ac.auckland.concert.service.services.PersistenceManager;
+
+import javax.persistence.EntityManager;
+import java.util.*;
+
+/**
+ * Utility class that turns reservation requests into reservations. Seats are claimed with the configured
+ * SeatClaimStrategy and the whole batch - the seat claims and the new reservations - is written in one
+ * transaction, through the SeatStore.
+ */
+public class ReservationWriter {
+
+    //number of times a batch is retried after the in-memory inventory is found to be stale
+    private static final int MAX_ALLOCATION_ATTEMPTS = 3;
+
+    // This is utility class, so hide the constructor to prevent instantiation.
+    private ReservationWriter() {
+    }
+
+    /**
+     * Writes the given reservation requests in a persistence context of their own.
+     */
+    public static void write(List<ReservationTask> tasks) {
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+
+        try {
+            write(em, tasks);
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Writes the given reservation requests and completes each task's future with the new reservation, or
+     * with null when there weren't enough seats left. Tasks whose futures are already done (e.g. because the
+     * requester has stopped waiting) are skipped, and a reservation whose requester stops waiting while it is
+     * being written is expired straight away, freeing its seats.
+     *
+     * If the entity manager already has an active transaction, the reservations are written in it, so a
+     * caller can check a request and write it in one transaction; either way the transaction has been
+     * committed or rolled back by the time this returns.
+     */
+    public static void write(EntityManager em, List<ReservationTask> tasks) {
+        List<ReservationTask> pending = new ArrayList<>();
+
+        for (ReservationTask task : tasks) {
+            if (!task.getResult().isDone()) {
+                pending.add(task);
+            }
+        }
+
+        for (int attempt = 0; attempt < MAX_ALLOCATION_ATTEMPTS; attempt++) {
+            if (pending.isEmpty() || tryWrite(em, pending)) {
+                return;
+            }
+        }
+
+        //the inventory kept disagreeing with the DB, so treat the seats as unavailable
+        for (ReservationTask task : pending) {
+            task.getResult().complete(null);
+        }
+    }
+
+    /**
+     * Makes one attempt at writing the batch. Returns false, having rolled back, if the claim strategy found
+     * that any of the claimed seats had been taken already in the DB.
+     */
+    private static boolean tryWrite(EntityManager em, List<ReservationTask> tasks) {
+        Map<ReservationTask, Allocation> allocations = new LinkedHashMap<>();
+        SeatClaimStrategy strategy = SeatClaimStrategy.current();
+        boolean committed = false;
+
+        try {
+            if (!em.getTransaction().isActive()) {
+                em.getTransaction().begin();
+            }
+
+            SeatStore store = SeatStore.current();
+            Map<SeatInventoryKey, List<Long>> seatIds = new HashMap<>();
+
+            //claim seats for each request in turn, so requests in the batch never compete for the same seat
+            for (ReservationTask task : tasks) {
+                ReservationRequestDTO request = task.getRequest();
+                SeatInventory inventory = SeatInventoryManager.instance().getInventory(em,
+                        request.getConcertId(), request.getDate(), request.getSeatType());
+
+                long[] allocated = strategy.claim(em, inventory, request.getNumberOfSeats());
+
+                if (allocated.length > 0) {
+                    allocations.put(task, new Allocation(inventory, allocated));
+
+                    List<Long> bandSeatIds = seatIds.computeIfAbsent(inventory.getKey(), key -> new ArrayList<>());
+                    for (long seatId : allocated) {
+                        bandSeatIds.add(seatId);
+                    }
+                }
+            }
+
+            Map<ReservationTask, Reservation> reservations = new HashMap<>();
+
+            //generate a new reservation for each request that was allocated seats
+            for (Map.Entry<ReservationTask, Allocation> entry : allocations.entrySet()) {
+                ReservationTask task = entry.getKey();
+                ReservationRequestDTO request = task.getRequest();
+
+                Reservation reservation = new Reservation(
+                        Collections.emptySet(),
+                        task.getUserName(),
+                        request.getNumberOfSeats(),
+                        request.getSeatType(),
+                        request.getConcertId(),
+                        request.getDate());
+
+                store.assignSeats(em, reservation, entry.getValue()._seatIds);
+                em.persist(reservation);
+                reservations.put(task, reservation);
+            }
+
+            if (!seatIds.isEmpty()) {
+                //write the reservations before the optimistic strategy updates the seats, in the same table order
+                //as confirming and expiring reservations, so that concurrent transactions can't deadlock
+                em.flush();
+
+                if (!strategy.complete(em, seatIds)) {
+                    em.getTransaction().rollback();
+                    return false;
+                }
+            }
+
+            em.getTransaction().commit();
+            committed = true;
+
+            for (Map.Entry<ReservationTask, Reservation> entry : reservations.entrySet()) {
+                Reservation reservation = entry.getValue();
+                Allocation allocation = allocations.get(entry.getKey());
+
+                SeatInventoryManager.instance().hold(reservation.getReservationId(),
+                        allocation._inventory.getKey(), allocation._seatIds);
+                ReservationReaper.instance().schedule(reservation.getReservationId(), reservation.getReservationTime());
+            }
+
+            for (ReservationTask task : tasks) {
+                Reservation reservation = reservations.get(task);
+
+                if (reservation == null) {
+                    task.getResult().complete(null);
+                } else if (!task.getResult().complete(toReservationDTO(
+                        reservation.getReservationId(), task.getRequest(), allocations.get(task)))) {
+                    //the requester gave up after the task was checked, so nobody can confirm the reservation
+                    ReservationReaper.instance().expireNow(reservation.getReservationId());
+                }
+            }
+            return true;
+
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            //the persistence context holds nothing the caller needs, and must not carry a failed attempt over
+            em.clear();
+
+            if (!committed) {
+                for (Allocation allocation : allocations.values()) {
+                    strategy.abandon(allocation._inventory, allocation._seatIds);
+                }
+            }
+        }
+    }
+
+    /**
+     * Describes a new reservation using the seat details held by the inventory, which saves reading the
+     * allocated seats back from the database.
+     */
+    private static ReservationDTO toReservationDTO(Long reservationId, ReservationRequestDTO request,
+                                                   Allocation allocation) {
+        Set<SeatDTO> seats = new HashSet<>();
+
+        for (long seatId : allocation._seatIds) {
+            seats.add(new SeatDTO(allocation._inventory.getRow(seatId), allocation._inventory.getNumber(seatId)));
+        }
+        return new ReservationDTO(reservationId, request, seats);
+    }
+
+    /**
+     * Seats taken from an inventory on behalf of one reservation request.
+     */
+    private static class Allocation {
+
+        private final SeatInventory _inventory;
+
+        private final long[] _seatIds;
+
+        private Allocation(SeatInventory inventory, long[] seatIds) {
+            _inventory = inventory;
+            _seatIds = seatIds;
+        }
+    }
+}
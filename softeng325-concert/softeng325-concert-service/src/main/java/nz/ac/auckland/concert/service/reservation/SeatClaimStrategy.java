@@ -0,0 +1,83 @@
+package nz.ac.auckland.concert.service.reservation;
+
+import nz.ac.auckland.concert.service.inventory.SeatInventory;
+import nz.ac.auckland.concert.service.inventory.SeatInventoryKey;
+import nz.ac.auckland.concert.service.inventory.SeatMapStore;
+import nz.ac.auckland.concert.service.inventory.SeatStore;
+import nz.ac.auckland.concert.service.util.ServiceConfiguration;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The way ReservationWriter claims seats for a reservation, chosen with the concert.seats.claim system
+ * property:
+ *
+ * - optimistic   seats are allocated from the in-memory SeatInventory and marked as reserved by one
+ *                conditional UPDATE once the batch's reservations are written. If the inventory turns out
+ *                to be stale, the whole transaction is rolled back and retried (OptimisticClaimStrategy).
+ *                This is the default.
+ *
+ * - pessimistic  seats are allocated from the inventory in the same way, locked with SELECT ... FOR UPDATE
+ *                and each reserved by an UPDATE ... WHERE seatStatus = 'AVAILABLE' as soon as they are
+ *                claimed, so concurrent claims for the same seats queue on the row locks rather than fail
+ *                (PessimisticClaimStrategy).
+ *
+ * - conditional  as pessimistic, but without the locks. A seat whose update is kept waiting longer than the
+ *                lock timeout is lost (ConditionalClaimStrategy).
+ *
+ * Under either of these, the update counts show which seats were won, and seats lost to a stale inventory
+ * are replaced from it until the claim has all its seats (SeatRowClaimStrategy).
+ *
+ * The pessimistic and conditional strategies work on SEATS rows, so with the bitmap seat format the
+ * optimistic strategy is always used. Whatever the strategy, the inventory still describes the claimed
+ * seats.
+ */
+public interface SeatClaimStrategy {
+
+    /**
+     * Returns the strategy named by the concert.seats.claim system property.
+     */
+    static SeatClaimStrategy current() {
+        if (SeatStore.current() == SeatMapStore.instance()) {
+            return OptimisticClaimStrategy.instance();
+        }
+
+        switch (ServiceConfiguration.getString(ServiceConfiguration.SEAT_CLAIM, "optimistic").toLowerCase()) {
+            case "pessimistic":
+                return PessimisticClaimStrategy.instance();
+            case "conditional":
+                return ConditionalClaimStrategy.instance();
+            default:
+                return OptimisticClaimStrategy.instance();
+        }
+    }
+
+    /**
+     * Claims seats in the inventory's price band for one reservation request, in the caller's transaction
+     * and before the reservation is written.
+     *
+     * @return the ids of the claimed seats, or an empty array when there are not enough seats available.
+     */
+    long[] claim(EntityManager em, SeatInventory inventory, int numberOfSeats);
+
+    /**
+     * Finishes the claims of a batch once its reservations have been written.
+     *
+     * @return false if the claims turned out to conflict with other transactions, in which case the caller
+     *         must roll back and try the batch again.
+     */
+    boolean complete(EntityManager em, Map<SeatInventoryKey, List<Long>> seatIds);
+
+    /**
+     * Gives back seats claimed by a transaction that was rolled back.
+     */
+    void abandon(SeatInventory inventory, long[] seatIds);
+
+    /**
+     * Returns the number of times a claim found its seats taken by another transaction and had to retry,
+     * which measures the contention for seats.
+     */
+    long getConflictCount();
+}
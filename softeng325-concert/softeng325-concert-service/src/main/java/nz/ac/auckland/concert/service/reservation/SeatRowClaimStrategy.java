@@ -0,0 +1,125 @@
+package nz.ac.auckland.concert.service.reservation;
+
+import nz.ac.auckland.concert.service.domain.jpa.Seat;
+import nz.ac.auckland.concert.service.inventory.SeatInventory;
+import nz.ac.auckland.concert.service.inventory.SeatInventoryKey;
+import nz.ac.auckland.concert.service.inventory.SeatInventoryManager;
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Base class of the claim strategies that settle each claim in the SEATS table while it is made. The seats
+ * are allocated from the band's inventory, so a group gets the best-fitting run of adjacent seats just as
+ * with OptimisticClaimStrategy, and the database only decides whether the claim wins them: each seat is
+ * reserved by an UPDATE ... WHERE seatStatus = 'AVAILABLE', and the update counts show which seats were
+ * won. Subclasses decide how the updates wait for transactions working on the same seats.
+ *
+ * A seat is only lost when the inventory was out of date. The lost seats are left out of the inventory and
+ * replaced by further seats from it until the claim has N, or the inventory runs out, when the seats already
+ * won are given back. Either way an inventory that lost seats is discarded, so the next claim for the band
+ * allocates from the current state of the database.
+ */
+abstract class SeatRowClaimStrategy implements SeatClaimStrategy {
+
+    private static final String RESERVE_SEAT = "UPDATE SEATS SET seatStatus = '" + Seat.SeatStatus.RESERVED + "', " +
+            "version = version + 1 WHERE seatId = ? AND seatStatus = '" + Seat.SeatStatus.AVAILABLE + "'";
+
+    private static final String RELEASE_SEAT = "UPDATE SEATS SET seatStatus = '" + Seat.SeatStatus.AVAILABLE + "', " +
+            "version = version + 1 WHERE seatId = ?";
+
+    private final AtomicLong _conflicts = new AtomicLong();
+
+    @Override
+    public long[] claim(EntityManager em, SeatInventory inventory, int numberOfSeats) {
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            List<Long> claimed = new ArrayList<>();
+            boolean stale = false;
+
+            try (PreparedStatement reserve = connection.prepareStatement(RESERVE_SEAT)) {
+                while (claimed.size() < numberOfSeats) {
+                    long[] picked = inventory.allocate(numberOfSeats - claimed.size());
+
+                    if (picked.length == 0) {
+                        //not enough seats left, so give back the ones already won
+                        try (PreparedStatement release = connection.prepareStatement(RELEASE_SEAT)) {
+                            for (Long seatId : claimed) {
+                                release.setLong(1, seatId);
+                                release.addBatch();
+                            }
+                            release.executeBatch();
+                        }
+                        inventory.release(claimed.stream().mapToLong(Long::longValue).toArray());
+                        claimed.clear();
+                        break;
+                    }
+
+                    lock(connection, picked);
+
+                    for (long seatId : picked) {
+                        reserve.setLong(1, seatId);
+                        reserve.addBatch();
+                    }
+
+                    int[] counts;
+                    try {
+                        counts = reserve.executeBatch();
+                    } catch (BatchUpdateException e) {
+                        //updates that timed out waiting for another transaction's lock count as lost
+                        counts = e.getUpdateCounts();
+                    }
+
+                    for (int i = 0; i < picked.length; i++) {
+                        if (i < counts.length && counts[i] == 1) {
+                            claimed.add(picked[i]);
+                        } else {
+                            _conflicts.incrementAndGet();
+                            stale = true;
+                        }
+                    }
+                }
+            }
+
+            if (stale) {
+                SeatInventoryManager.instance().evict(inventory.getKey());
+            }
+            return claimed.stream().mapToLong(Long::longValue).toArray();
+        });
+    }
+
+    /**
+     * Called with the seats picked for a claim before they are reserved, in the claim's transaction.
+     */
+    protected abstract void lock(Connection connection, long[] seatIds) throws SQLException;
+
+    /**
+     * Counts a claim that had to wait on another transaction for longer than the database's lock timeout.
+     */
+    protected void conflict() {
+        _conflicts.incrementAndGet();
+    }
+
+    @Override
+    public boolean complete(EntityManager em, Map<SeatInventoryKey, List<Long>> seatIds) {
+        return true;
+    }
+
+    @Override
+    public void abandon(SeatInventory inventory, long[] seatIds) {
+        //rolling back the transaction has freed the seats in the database
+        inventory.release(seatIds);
+    }
+
+    @Override
+    public long getConflictCount() {
+        return _conflicts.get();
+    }
+}
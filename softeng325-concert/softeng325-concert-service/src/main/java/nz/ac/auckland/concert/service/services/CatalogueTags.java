@@ -0,0 +1,34 @@
+package nz.ac.auckland.concert.service.services;
+
+import nz.ac.auckland.concert.common.jackson.CborProvider;
+import nz.ac.auckland.concert.service.catalogue.CatalogueCache;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Variant;
+import java.util.List;
+
+/**
+ * Strong entity tags for the concert and performer resources. A tag is made of the catalogue version and the
+ * media type of the response, since each encoding of the same catalogue is a different representation.
+ * Checking a request's If-None-Match against the current tag needs only the version, not the database.
+ */
+class CatalogueTags {
+
+    //the encodings the catalogue resources produce, in order of preference
+    static final List<Variant> VARIANTS = Variant.mediaTypes(MediaType.APPLICATION_XML_TYPE,
+            MediaType.APPLICATION_JSON_TYPE, MediaType.valueOf(CborProvider.APPLICATION_CBOR)).add().build();
+
+    /**
+     * This is utility class and should not be instantiated.
+     */
+    private CatalogueTags() {
+    }
+
+    /**
+     * Returns the tag of the current catalogue in the given variant.
+     */
+    static EntityTag current(Variant variant) {
+        return new EntityTag(CatalogueCache.instance().getVersion() + "-" + variant.getMediaType().getSubtype());
+    }
+}
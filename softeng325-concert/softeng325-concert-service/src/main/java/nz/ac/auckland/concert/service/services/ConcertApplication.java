@@ -1,5 +1,14 @@
 package nz.ac.auckland.concert.service.services;
 
+import nz.ac.auckland.concert.common.jackson.CborProvider;
+import nz.ac.auckland.concert.common.jackson.JsonProvider;
+import nz.ac.auckland.concert.common.jaxb.DtoContextResolver;
+import nz.ac.auckland.concert.service.inventory.SeatInitialiser;
+import nz.ac.auckland.concert.service.reservation.ReservationArchiver;
+import nz.ac.auckland.concert.service.reservation.ReservationReaper;
+import nz.ac.auckland.concert.service.util.ServiceConfiguration;
+import org.jboss.resteasy.plugins.providers.jaxb.JaxbCollection;
+
 import javax.ws.rs.ApplicationPath;
 import javax.ws.rs.core.Application;
 import java.util.HashSet;
@@ -18,6 +27,28 @@ public class ConcertApplication extends Application {
         _classes.add(PerformerResource.class);
         _classes.add(UserResource.class);
         _singletons.add(new NewsItemResource());
+
+        //one JAXBContext for the DTOs and RESTEasy's collection wrapper, with a marshaller reused per thread
+        _singletons.add(new DtoContextResolver(JaxbCollection.class));
+        _singletons.add(new DtoContextFinder());
+
+        //JSON and CBOR encodings of the DTOs, for clients that ask for them instead of XML
+        _classes.add(JsonProvider.class);
+        _classes.add(CborProvider.class);
+
+        //open the connection pool and build the EntityManagerFactory before any request needs them
+        PersistenceManager.instance();
+
+        //create the seats for every scheduled concert date up front, rather than on the first reservation
+        if (ServiceConfiguration.getBoolean(ServiceConfiguration.CATALOGUE_PREBUILD_SEATS, true)) {
+            SeatInitialiser.instance().initialiseAll();
+        }
+
+        //expire any reservations that were left held when the service last stopped
+        ReservationReaper.instance().start();
+
+        //move expired reservations (and, if configured, past bookings) out of the live tables in the background
+        ReservationArchiver.instance().start();
     }
 
     @Override
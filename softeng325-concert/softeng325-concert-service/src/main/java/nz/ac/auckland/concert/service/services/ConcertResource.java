@@ -1,28 +1,57 @@
 package nz.ac.auckland.concert.service.services;
 
 import nz.ac.auckland.concert.common.dto.ConcertDTO;
+import nz.ac.auckland.concert.common.dto.SeatAvailabilityDTO;
+import nz.ac.auckland.concert.common.jackson.CborProvider;
+import nz.ac.auckland.concert.common.types.PriceBand;
+import nz.ac.auckland.concert.service.catalogue.CatalogueCache;
+import nz.ac.auckland.concert.service.catalogue.ConcertSearch;
 import nz.ac.auckland.concert.service.domain.jpa.Concert;
+import nz.ac.auckland.concert.service.inventory.SeatInitialiser;
+import nz.ac.auckland.concert.service.inventory.SeatInventoryManager;
 import nz.ac.auckland.concert.service.mappers.*;
+import nz.ac.auckland.concert.service.util.ServiceConfiguration;
 
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 import javax.ws.rs.*;
-import javax.ws.rs.core.CacheControl;
-import javax.ws.rs.core.GenericEntity;
-import javax.ws.rs.core.MediaType;
-import javax.ws.rs.core.Response;
+import javax.ws.rs.core.*;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @Path("/concerts")
-@Consumes(MediaType.APPLICATION_XML)
-@Produces(MediaType.APPLICATION_XML)
+@Consumes({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON, CborProvider.APPLICATION_CBOR})
+@Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON, CborProvider.APPLICATION_CBOR})
 public class ConcertResource {
 
     private int cacheTime = 10;
 
+    //seat availability changes with every reservation, so it is only worth caching briefly
+    private int availabilityCacheTime = 1;
+
+    //searches return their concerts a page at a time
+    private final int _pageSize = ServiceConfiguration.getInt(ServiceConfiguration.CATALOGUE_PAGE_SIZE, 50);
+
     @GET
     @Path("{id}")
-    public Response getConcert(@PathParam("id") long id) {
+    public Response getConcert(@PathParam("id") long id, @Context Request request) {
+        Variant variant = request.selectVariant(CatalogueTags.VARIANTS);
+        if (variant == null) {
+            return Response.notAcceptable(CatalogueTags.VARIANTS).build();
+        }
+
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(cacheTime);
+
+        //a client whose copy still carries the current tag is told so without reading the database
+        EntityTag tag = CatalogueTags.current(variant);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            return notModified.cacheControl(cacheControl).build();
+        }
+
         // Acquire an EntityManager (creating a new persistence context).
         EntityManager em = PersistenceManager.instance().createEntityManager();
 
@@ -37,36 +66,142 @@ public class ConcertResource {
                 return Response.status(Response.Status.NOT_FOUND).build();
             } else { //convert DB concert to a transferrable object and return to client
                 ConcertDTO concertDTO = ConcertMapper.toDTO(concert);
-                return Response.ok(concertDTO).build();
+                return Response.ok(concertDTO, variant).tag(tag).variants(CatalogueTags.VARIANTS)
+                        .cacheControl(cacheControl).build();
             }
         } finally {
             em.close();
         }
     }
 
+    /**
+     * Returns the number of free, held and sold seats in each price band of the concert on the given date
+     * (an ISO date-time). The counts are kept by the seat inventories as seats are reserved, confirmed and
+     * released, so once a band's inventory is loaded they are given without reading the database.
+     */
     @GET
-    public Response getAllConcerts() {
+    @Path("{id}/availability")
+    public Response getAvailability(@PathParam("id") long id, @QueryParam("date") String date) {
+        LocalDateTime dateTime;
+        try {
+            dateTime = LocalDateTime.parse(date);
+        } catch (NullPointerException | DateTimeException e) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
 
-        // Acquire an EntityManager (creating a new persistence context).
         EntityManager em = PersistenceManager.instance().createEntityManager();
 
         try {
-            // Start a new transaction.
             em.getTransaction().begin();
 
-            //retrieve all the concerts in the DB and convert them to a transferrable form
-            TypedQuery<Concert> query = em.createQuery("SELECT c FROM Concert c", Concert.class);
-            List<ConcertDTO> concertDTOs = ConcertMapper.toDTOList(query.getResultList());
-            GenericEntity<List<ConcertDTO>> ge = new GenericEntity<List<ConcertDTO>>(concertDTOs) {};
+            //the concert normally comes from the second-level cache
+            Concert concert = em.find(Concert.class, id);
+            if (concert == null || !concert.getDates().contains(dateTime)) {
+                return Response.status(Response.Status.NOT_FOUND).build();
+            }
+
+            //an inventory not used yet is loaded once, after which it keeps its own counts
+            SeatInitialiser.instance().initialise(id, dateTime);
+            List<SeatAvailabilityDTO> availability = new ArrayList<>();
+            for (PriceBand priceBand : PriceBand.values()) {
+                availability.add(SeatInventoryManager.instance().getInventory(em, id, dateTime, priceBand)
+                        .getAvailability());
+            }
 
             em.getTransaction().commit();
 
             CacheControl cacheControl = new CacheControl();
-            cacheControl.setMaxAge(cacheTime);
+            cacheControl.setMaxAge(availabilityCacheTime);
 
-            //return all concerts retrieved from the DB to the client
+            GenericEntity<List<SeatAvailabilityDTO>> ge = new GenericEntity<List<SeatAvailabilityDTO>>(availability) {};
             return Response.ok(ge).cacheControl(cacheControl).build();
 
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.close();
+        }
+    }
+
+    /**
+     * Returns the whole catalogue, or with any of the query parameters described by ConcertSearchParams, a
+     * page of the concerts that match them. A page that may not be the last has a Link header with rel
+     * next, giving the URI of the page that follows it.
+     */
+    @GET
+    public Response getAllConcerts(@BeanParam ConcertSearchParams params, @Context UriInfo uriInfo,
+                                   @Context Request request) {
+        ConcertSearch search;
+        long after;
+        int limit;
+        try {
+            search = params.toSearch();
+            after = params.after();
+            limit = params.limit(_pageSize);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+
+        Variant variant = request.selectVariant(CatalogueTags.VARIANTS);
+        if (variant == null) {
+            return Response.notAcceptable(CatalogueTags.VARIANTS).build();
+        }
+
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(cacheTime);
+
+        //the tag is taken before the concerts are read, so a change made meanwhile leaves them out of date
+        EntityTag tag = CatalogueTags.current(variant);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            return notModified.cacheControl(cacheControl).build();
+        }
+
+        // Acquire an EntityManager (creating a new persistence context).
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+
+        try {
+            // Start a new transaction.
+            em.getTransaction().begin();
+
+            List<Concert> concerts;
+            Link next = null;
+            if (params.isSearch()) {
+                //one more than the page is asked for, to tell whether another page follows
+                List<Long> ids = search.findIds(em, after, limit + 1);
+                if (ids.size() > limit) {
+                    ids = ids.subList(0, limit);
+                    next = Link.fromUriBuilder(uriInfo.getRequestUriBuilder()
+                            .replaceQueryParam("after", ids.get(limit - 1))).rel("next").build();
+                }
+
+                //the concerts themselves normally come from the second-level cache
+                concerts = new ArrayList<>(ids.size());
+                for (Long id : ids) {
+                    concerts.add(em.find(Concert.class, id));
+                }
+            } else {
+                //retrieve all the concerts in the DB
+                TypedQuery<Concert> query = CatalogueCache.instance().cacheable(
+                        em.createQuery("SELECT c FROM Concert c", Concert.class));
+                concerts = query.getResultList();
+            }
+
+            //convert the concerts to a transferrable form
+            List<ConcertDTO> concertDTOs = ConcertMapper.toDTOList(concerts);
+            GenericEntity<List<ConcertDTO>> ge = new GenericEntity<List<ConcertDTO>>(concertDTOs) {};
+
+            em.getTransaction().commit();
+
+            //return the concerts retrieved from the DB to the client
+            Response.ResponseBuilder builder = Response.ok(ge, variant).tag(tag).variants(CatalogueTags.VARIANTS)
+                    .cacheControl(cacheControl);
+            if (next != null) {
+                builder.links(next);
+            }
+            return builder.build();
+
         } finally {
             em.close();
         }
@@ -0,0 +1,117 @@
+package nz.ac.auckland.concert.service.services;
+
+import nz.ac.auckland.concert.common.types.Genre;
+import nz.ac.auckland.concert.service.catalogue.ConcertSearch;
+
+import javax.ws.rs.QueryParam;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * The query parameters of a concert search (see ConcertResource.getAllConcerts):
+ * from      earliest concert date, as an ISO date-time or a date (meaning its start).
+ * to        concert date to search up to, as an ISO date-time (excluded) or a date (included).
+ * performer id of a performer playing at the concert.
+ * genre     genre of a performer playing at the concert.
+ * title     prefix of the concert's title.
+ * after     id of the last concert of the previous page.
+ * limit     largest number of concerts to return.
+ */
+public class ConcertSearchParams {
+
+    @QueryParam("from")
+    private String _from;
+
+    @QueryParam("to")
+    private String _to;
+
+    @QueryParam("performer")
+    private String _performer;
+
+    @QueryParam("genre")
+    private String _genre;
+
+    @QueryParam("title")
+    private String _title;
+
+    @QueryParam("after")
+    private String _after;
+
+    @QueryParam("limit")
+    private String _limit;
+
+    public ConcertSearchParams() {
+    }
+
+    ConcertSearchParams(String from, String to, String performer, String genre, String title, String after,
+                        String limit) {
+        _from = from;
+        _to = to;
+        _performer = performer;
+        _genre = genre;
+        _title = title;
+        _after = after;
+        _limit = limit;
+    }
+
+    /**
+     * Returns whether any parameter was given. Without any, the whole catalogue is asked for.
+     */
+    boolean isSearch() {
+        return _from != null || _to != null || _performer != null || _genre != null || _title != null
+                || _after != null || _limit != null;
+    }
+
+    /**
+     * Returns the search the parameters describe.
+     *
+     * @throws IllegalArgumentException if a parameter can't be parsed.
+     */
+    ConcertSearch toSearch() {
+        Long performerId = _performer == null ? null : Long.valueOf(_performer);
+        Genre genre = _genre == null ? null : Genre.valueOf(_genre);
+        return new ConcertSearch(date(_from, false), date(_to, true), performerId, genre, _title);
+    }
+
+    /**
+     * Returns the id after which the page starts.
+     *
+     * @throws IllegalArgumentException if the parameter can't be parsed.
+     */
+    long after() {
+        return _after == null ? 0 : Long.parseLong(_after);
+    }
+
+    /**
+     * Returns the number of concerts asked for, which is at most max.
+     *
+     * @throws IllegalArgumentException if the parameter can't be parsed or isn't positive.
+     */
+    int limit(int max) {
+        if (_limit == null) {
+            return max;
+        }
+        int limit = Integer.parseInt(_limit);
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive: " + limit);
+        }
+        return Math.min(limit, max);
+    }
+
+    //a date alone stands for its start, or for the start of the next day when it ends a range
+    private static LocalDateTime date(String value, boolean end) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            if (value.indexOf('T') < 0) {
+                LocalDate date = LocalDate.parse(value);
+                return (end ? date.plusDays(1) : date).atStartOfDay();
+            }
+            return LocalDateTime.parse(value);
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("not an ISO date or date-time: " + value, e);
+        }
+    }
+}
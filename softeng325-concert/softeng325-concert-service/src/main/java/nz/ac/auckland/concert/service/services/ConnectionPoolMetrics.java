@@ -0,0 +1,95 @@
+package nz.ac.auckland.concert.service.services;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of the database connection pool, for sizing the pool to the number of requests the service
+ * handles at once. The pool reports to this class as it runs: the connection counts are the pool's own,
+ * sampled at most once a second, and the wait times are how long each request for a connection took to be
+ * served, accumulated since the service started.
+ */
+public class ConnectionPoolMetrics implements MetricsTrackerFactory {
+
+    private volatile PoolStats _poolStats;
+
+    private final LongAdder _acquired = new LongAdder();
+
+    private final LongAdder _waitNanos = new LongAdder();
+
+    private final LongAccumulator _maxWaitNanos = new LongAccumulator(Long::max, 0);
+
+    private final LongAdder _timeouts = new LongAdder();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        _poolStats = poolStats;
+
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                _acquired.increment();
+                _waitNanos.add(elapsedAcquiredNanos);
+                _maxWaitNanos.accumulate(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                _timeouts.increment();
+            }
+        };
+    }
+
+    /**
+     * Returns the number of connections currently in use.
+     */
+    public int getActiveConnections() {
+        return _poolStats == null ? 0 : _poolStats.getActiveConnections();
+    }
+
+    /**
+     * Returns the number of open connections that aren't in use.
+     */
+    public int getIdleConnections() {
+        return _poolStats == null ? 0 : _poolStats.getIdleConnections();
+    }
+
+    /**
+     * Returns the number of threads waiting for a connection.
+     */
+    public int getPendingThreads() {
+        return _poolStats == null ? 0 : _poolStats.getPendingThreads();
+    }
+
+    public long getConnectionsAcquired() {
+        return _acquired.sum();
+    }
+
+    /**
+     * Returns the number of requests for a connection that gave up because none became free in time.
+     */
+    public long getConnectionTimeouts() {
+        return _timeouts.sum();
+    }
+
+    public double getAverageWaitMillis() {
+        long acquired = _acquired.sum();
+        return acquired == 0 ? 0 : _waitNanos.sum() / (acquired * 1e6);
+    }
+
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(_maxWaitNanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("active=%d idle=%d pending=%d acquired=%d timeouts=%d averageWait=%.3fms maxWait=%dms",
+                getActiveConnections(), getIdleConnections(), getPendingThreads(), getConnectionsAcquired(),
+                getConnectionTimeouts(), getAverageWaitMillis(), getMaxWaitMillis());
+    }
+}
@@ -0,0 +1,92 @@
+package nz.ac.auckland.concert.service.services;
+
+import nz.ac.auckland.concert.service.util.ServiceConfiguration;
+import org.h2.tools.Server;
+
+import java.sql.SQLException;
+
+/**
+ * The ways the service can run its H2 database, chosen with the concert.database.profile system property
+ * (file, memory or server; file by default). All of them use H2's MVStore engine, which locks rows rather
+ * than whole tables.
+ *
+ * - FILE    an embedded database in a file, at concert.database.path (./target/concert by default). Writes
+ *           are committed to disk in the background within the write delay.
+ *
+ * - MEMORY  an embedded database that lives only as long as the JVM, for load tests that shouldn't measure
+ *           the disk. It has no page cache or disk writes to tune.
+ *
+ * - SERVER  a file database served over TCP at concert.database.server (localhost:9092 by default), so that
+ *           several service JVMs can share it. With concert.database.startServer=true the service starts the
+ *           server itself if no other JVM has; the other JVMs should set concert.database.schemaAction=none
+ *           so that they don't recreate the tables.
+ *
+ * The cache size (in KB) and write delay (in milliseconds) of the file and server profiles can be overridden
+ * with concert.database.cacheSize and concert.database.writeDelay.
+ */
+public enum DatabaseProfile {
+
+    FILE {
+        @Override
+        public String getUrl() {
+            return "jdbc:h2:" + path() + tuning(65536, 200);
+        }
+    },
+
+    MEMORY {
+        @Override
+        public String getUrl() {
+            //keep the database open when the pool has no connections
+            return "jdbc:h2:mem:concert;DB_CLOSE_DELAY=-1";
+        }
+    },
+
+    SERVER {
+        @Override
+        public String getUrl() {
+            return "jdbc:h2:tcp://" + server() + "/" + path() + tuning(131072, 200);
+        }
+
+        @Override
+        public void start() {
+            if (!ServiceConfiguration.getBoolean(ServiceConfiguration.DATABASE_START_SERVER, false)) {
+                return;
+            }
+            String port = server().substring(server().indexOf(':') + 1);
+
+            try {
+                Server.createTcpServer("-tcpPort", port, "-tcpDaemon").start();
+            } catch (SQLException e) {
+                //another JVM on this host is already serving the database
+            }
+        }
+    };
+
+    /**
+     * Returns the profile named by the concert.database.profile system property.
+     */
+    public static DatabaseProfile current() {
+        return valueOf(ServiceConfiguration.getString(ServiceConfiguration.DATABASE_PROFILE, "file").toUpperCase());
+    }
+
+    public abstract String getUrl();
+
+    /**
+     * Does whatever is needed before the database can be connected to.
+     */
+    public void start() {
+    }
+
+    private static String path() {
+        return ServiceConfiguration.getString(ServiceConfiguration.DATABASE_PATH, "./target/concert");
+    }
+
+    private static String server() {
+        return ServiceConfiguration.getString(ServiceConfiguration.DATABASE_SERVER, "localhost:9092");
+    }
+
+    private static String tuning(int cacheSize, int writeDelay) {
+        return ";CACHE_SIZE=" + ServiceConfiguration.getInt(ServiceConfiguration.DATABASE_CACHE_SIZE, cacheSize)
+                + ";WRITE_DELAY=" + ServiceConfiguration.getInt(ServiceConfiguration.DATABASE_WRITE_DELAY, writeDelay);
+    }
+}
@@ -0,0 +1,37 @@
+package nz.ac.auckland.concert.service.services;
+
+import org.jboss.resteasy.plugins.providers.jaxb.XmlJAXBContextFinder;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.ext.Provider;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import java.lang.annotation.Annotation;
+
+/**
+ * RESTEasy context finder that lets the JAXB collection provider use the DtoContextResolver's context. The
+ * provider asks for a context covering its collection wrapper and the element type, which RESTEasy's own
+ * finder builds and caches without consulting any ContextResolver, leaving the lists of DTOs the resources
+ * return with a marshaller created for every response. When a single resolved context covers all the
+ * classes asked for, that context is used instead.
+ */
+@Provider
+@Produces({MediaType.APPLICATION_XML, MediaType.TEXT_XML, "application/*+xml", "text/*+xml"})
+public class DtoContextFinder extends XmlJAXBContextFinder {
+
+    @Override
+    public JAXBContext findCacheContext(MediaType mediaType, Annotation[] annotations, Class... classes)
+            throws JAXBException {
+        JAXBContext context = null;
+
+        for (Class<?> type : classes) {
+            JAXBContext provided = findProvidedJAXBContext(type, mediaType);
+            if (provided == null || (context != null && provided != context)) {
+                return super.findCacheContext(mediaType, annotations, classes);
+            }
+            context = provided;
+        }
+        return context != null ? context : super.findCacheContext(mediaType, annotations, classes);
+    }
+}
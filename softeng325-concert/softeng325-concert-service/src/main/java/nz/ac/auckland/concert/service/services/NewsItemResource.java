@@ -2,12 +2,12 @@ package nz.ac.auckland.concert.service.services;
 
 import nz.ac.auckland.concert.common.dto.NewsItemDTO;
 import nz.ac.auckland.concert.common.dto.UserDTO;
+import nz.ac.auckland.concert.service.auth.AuthenticatedUser;
+import nz.ac.auckland.concert.service.auth.Authenticator;
 import nz.ac.auckland.concert.service.domain.jpa.NewsItem;
-import nz.ac.auckland.concert.service.domain.jpa.User;
 import nz.ac.auckland.concert.service.mappers.NewsItemMapper;
 
 import javax.persistence.EntityManager;
-import javax.persistence.TypedQuery;
 import javax.ws.rs.*;
 import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.Suspended;
@@ -34,10 +34,7 @@ public class NewsItemResource {
             em.getTransaction().begin();
 
             //check that the supplied token maps to a user in the DB
-            TypedQuery<User> query = em.createQuery("SELECT u FROM User u WHERE u._token = :tokenValue", User.class)
-                    .setParameter("tokenValue", token.getValue());
-
-            User user = query.getSingleResult();
+            AuthenticatedUser user = Authenticator.instance().authenticate(em, token);
 
             if (user == null) { //no user in the DB has the supplied token
                 return Response.status(Response.Status.UNAUTHORIZED).build();
@@ -60,10 +57,7 @@ public class NewsItemResource {
             em.getTransaction().begin();
 
             //check that the supplied token maps to a user in the DB
-            TypedQuery<User> query = em.createQuery("SELECT u FROM User u WHERE u._token = :tokenValue", User.class)
-                    .setParameter("tokenValue", token.getValue());
-
-            User user = query.getSingleResult();
+            AuthenticatedUser user = Authenticator.instance().authenticate(em, token);
 
             if (user == null) { //no user in the DB has the supplied token
                 return Response.status(Response.Status.UNAUTHORIZED).build();
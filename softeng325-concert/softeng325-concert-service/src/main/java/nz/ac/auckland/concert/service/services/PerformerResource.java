@@ -1,21 +1,20 @@
 package nz.ac.auckland.concert.service.services;
 
 import nz.ac.auckland.concert.common.dto.PerformerDTO;
+import nz.ac.auckland.concert.common.jackson.CborProvider;
+import nz.ac.auckland.concert.service.catalogue.CatalogueCache;
 import nz.ac.auckland.concert.service.domain.jpa.Performer;
 import nz.ac.auckland.concert.service.mappers.*;
 
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 import javax.ws.rs.*;
-import javax.ws.rs.core.CacheControl;
-import javax.ws.rs.core.GenericEntity;
-import javax.ws.rs.core.MediaType;
-import javax.ws.rs.core.Response;
+import javax.ws.rs.core.*;
 import java.util.List;
 
 @Path("/performers")
-@Consumes(MediaType.APPLICATION_XML)
-@Produces(MediaType.APPLICATION_XML)
+@Consumes({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON, CborProvider.APPLICATION_CBOR})
+@Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON, CborProvider.APPLICATION_CBOR})
 public class PerformerResource {
 
     //caches should only be stored for 10 second intervals
@@ -23,7 +22,22 @@ public class PerformerResource {
 
     @GET
     @Path("{id}")
-    public Response getPerformer(@PathParam("id") long id) {
+    public Response getPerformer(@PathParam("id") long id, @Context Request request) {
+        Variant variant = request.selectVariant(CatalogueTags.VARIANTS);
+        if (variant == null) {
+            return Response.notAcceptable(CatalogueTags.VARIANTS).build();
+        }
+
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(cacheTime);
+
+        //a client whose copy still carries the current tag is told so without reading the database
+        EntityTag tag = CatalogueTags.current(variant);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            return notModified.cacheControl(cacheControl).build();
+        }
+
         // Acquire an EntityManager (creating a new persistence context).
         EntityManager em = PersistenceManager.instance().createEntityManager();
 
@@ -38,7 +52,8 @@ public class PerformerResource {
             if (performerDTO == null) { //there is no performer in the DB with the supplied ID
                 return Response.status(Response.Status.NOT_FOUND).build();
             } else { // return the transferrable performer object to the client
-                return Response.ok(performerDTO).build();
+                return Response.ok(performerDTO, variant).tag(tag).variants(CatalogueTags.VARIANTS)
+                        .cacheControl(cacheControl).build();
             }
         } finally {
             em.close();
@@ -46,7 +61,22 @@ public class PerformerResource {
     }
 
     @GET
-    public Response getAllPerformers() {
+    public Response getAllPerformers(@Context Request request) {
+        Variant variant = request.selectVariant(CatalogueTags.VARIANTS);
+        if (variant == null) {
+            return Response.notAcceptable(CatalogueTags.VARIANTS).build();
+        }
+
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(cacheTime);
+
+        //the tag is taken before the performers are read, so a change made meanwhile leaves them out of date
+        EntityTag tag = CatalogueTags.current(variant);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            return notModified.cacheControl(cacheControl).build();
+        }
+
         // Acquire an EntityManager (creating a new persistence context).
         EntityManager em = PersistenceManager.instance().createEntityManager();
 
@@ -55,18 +85,17 @@ public class PerformerResource {
             em.getTransaction().begin();
 
             //find all performers in the DB and convert them to their transferrable DTO form
-            TypedQuery<Performer> query = em.createQuery("SELECT p FROM Performer p", Performer.class);
+            TypedQuery<Performer> query = CatalogueCache.instance().cacheable(
+                    em.createQuery("SELECT p FROM Performer p", Performer.class));
             List<PerformerDTO> performerDTOS = PerformerMapper.toDTOList(query.getResultList());
             GenericEntity<List<PerformerDTO>> ge = new GenericEntity<List<PerformerDTO>>(performerDTOS) {
             };
 
             em.getTransaction().commit();
 
-            CacheControl cacheControl = new CacheControl();
-            cacheControl.setMaxAge(cacheTime);
-
             //return the DTO performer objects to the client
-            return Response.ok(ge).cacheControl(cacheControl).build();
+            return Response.ok(ge, variant).tag(tag).variants(CatalogueTags.VARIANTS).cacheControl(cacheControl)
+                    .build();
 
         } finally {
             em.close();
@@ -1,37 +1,106 @@
 package nz.ac.auckland.concert.service.services;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import nz.ac.auckland.concert.service.catalogue.CatalogueLoader;
+import nz.ac.auckland.concert.service.util.ServiceConfiguration;
+
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Singleton class that manages an EntityManagerFactory. When a
  * PersistenceManager is instantiated, it creates an EntityManagerFactory. An
  * EntityManagerFactory is required to create an EntityManager, which represents
- * a persistence context (session with a database). 
- * 
- * When a Web service application component (e.g. a resource object) requires a 
- * persistence context, it should call the PersistentManager's 
+ * a persistence context (session with a database).
+ *
+ * When a Web service application component (e.g. a resource object) requires a
+ * persistence context, it should call the PersistentManager's
  * createEntityManager() method to acquire one.
- * 
+ *
+ * The single instance is created when the class is loaded, which the JVM
+ * guarantees happens once, so concurrent first requests can't build two
+ * factories. ConcertApplication loads it when the service starts.
+ *
+ * The factory's connections come from a HikariCP pool rather than Hibernate's
+ * built-in pool, which fails requests as soon as its connections run out. The
+ * pool is sized by the concert.pool.* system properties (see
+ * ServiceConfiguration) and reports its statistics to getPoolMetrics().
+ *
+ * The database is run as the DatabaseProfile named by the
+ * concert.database.profile system property. When JPA creates the tables, the
+ * CatalogueLoader fills the catalogue from its snapshot, unless the tables
+ * already existed with a catalogue in them.
  */
 public class PersistenceManager {
-	private static PersistenceManager _instance = null;
-	
+	private static final PersistenceManager _instance = new PersistenceManager();
+
 	private EntityManagerFactory _entityManagerFactory;
-	
+
+	private HikariDataSource _dataSource;
+
+	private ConnectionPoolMetrics _poolMetrics = new ConnectionPoolMetrics();
+
 	protected PersistenceManager() {
-		_entityManagerFactory = Persistence.createEntityManagerFactory("nz.ac.auckland.concert");
+		DatabaseProfile profile = DatabaseProfile.current();
+		profile.start();
+
+		HikariConfig config = new HikariConfig();
+		config.setPoolName("concert");
+		config.setDriverClassName("org.h2.Driver");
+		//H2 keeps the statements each connection prepares in a cache of this size
+		config.setJdbcUrl(profile.getUrl() + ";QUERY_CACHE_SIZE="
+				+ ServiceConfiguration.getInt(ServiceConfiguration.POOL_STATEMENT_CACHE_SIZE, 64));
+		config.setUsername("sa");
+		config.setPassword("sa");
+		config.setMaximumPoolSize(ServiceConfiguration.getInt(ServiceConfiguration.POOL_MAXIMUM_SIZE, 32));
+		config.setMinimumIdle(ServiceConfiguration.getInt(ServiceConfiguration.POOL_MINIMUM_IDLE, 8));
+		config.setConnectionTimeout(ServiceConfiguration.getLong(ServiceConfiguration.POOL_CONNECTION_TIMEOUT, 10000));
+		config.setIdleTimeout(ServiceConfiguration.getLong(ServiceConfiguration.POOL_IDLE_TIMEOUT, 600000));
+		config.setMetricsTrackerFactory(_poolMetrics);
+		config.setRegisterMbeans(true);
+		_dataSource = new HikariDataSource(config);
+
+		Map<String, Object> properties = new HashMap<>();
+		properties.put("javax.persistence.nonJtaDataSource", _dataSource);
+		//persistence.xml drops and re-creates the tables unless told otherwise
+		String schemaAction = ServiceConfiguration.getString(ServiceConfiguration.DATABASE_SCHEMA_ACTION, null);
+		if (schemaAction != null) {
+			properties.put("javax.persistence.schema-generation.database.action", schemaAction);
+		}
+		//tests and benchmarks that count statements turn the statistics on through the SessionFactory instead
+		properties.put("hibernate.generate_statistics",
+				String.valueOf(ServiceConfiguration.getBoolean(ServiceConfiguration.STATISTICS, false)));
+		_entityManagerFactory = Persistence.createEntityManagerFactory("nz.ac.auckland.concert", properties);
+
+		//fill the catalogue tables when they have just been created. "create" keeps tables that already exist,
+		//so a kept database's catalogue is left as it is. Nothing has been cached from them yet
+		if (schemaAction == null || schemaAction.contains("create")) {
+			CatalogueLoader.instance().loadIfEmpty(_dataSource);
+		}
 	}
-	
+
 	public EntityManager createEntityManager() {
 		return _entityManagerFactory.createEntityManager();
 	}
-	
+
+	public EntityManagerFactory getEntityManagerFactory() {
+		return _entityManagerFactory;
+	}
+
+	public DataSource getDataSource() {
+		return _dataSource;
+	}
+
+	public ConnectionPoolMetrics getPoolMetrics() {
+		return _poolMetrics;
+	}
+
 	public static PersistenceManager instance() {
-		if(_instance == null) {
-			_instance = new PersistenceManager();
-		}
 		return _instance;
 	}
 
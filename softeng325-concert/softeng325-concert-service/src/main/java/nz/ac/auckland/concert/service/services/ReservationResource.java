@@ -3,39 +3,42 @@ package nz.ac.auckland.concert.service.services;
 import nz.ac.auckland.concert.common.dto.BookingDTO;
 import nz.ac.auckland.concert.common.dto.ReservationDTO;
 import nz.ac.auckland.concert.common.dto.ReservationRequestDTO;
+import nz.ac.auckland.concert.common.dto.SeatDTO;
 import nz.ac.auckland.concert.common.types.PriceBand;
 import nz.ac.auckland.concert.common.types.SeatNumber;
 import nz.ac.auckland.concert.common.types.SeatRow;
+import nz.ac.auckland.concert.common.jackson.CborProvider;
+import nz.ac.auckland.concert.service.auth.AuthenticatedUser;
+import nz.ac.auckland.concert.service.auth.Authenticator;
 import nz.ac.auckland.concert.service.domain.jpa.Concert;
 import nz.ac.auckland.concert.service.domain.jpa.Reservation;
-import nz.ac.auckland.concert.service.domain.jpa.Seat;
-import nz.ac.auckland.concert.service.domain.jpa.User;
-import nz.ac.auckland.concert.service.mappers.ReservationMapper;
-import nz.ac.auckland.concert.service.util.TheatreUtility;
-import nz.ac.auckland.concert.utility.TheatreLayout;
-import org.hibernate.dialect.lock.OptimisticEntityLockException;
+import nz.ac.auckland.concert.service.inventory.SeatInitialiser;
+import nz.ac.auckland.concert.service.inventory.SeatInventoryManager;
+import nz.ac.auckland.concert.service.inventory.SeatStore;
+import nz.ac.auckland.concert.service.reservation.ReservationQueueManager;
+import nz.ac.auckland.concert.service.reservation.ReservationReaper;
+import nz.ac.auckland.concert.service.reservation.ReservationTask;
+import nz.ac.auckland.concert.service.reservation.ReservationWriter;
+import nz.ac.auckland.concert.service.util.ServiceConfiguration;
 
 import javax.persistence.Entity;
 import javax.persistence.EntityManager;
-import javax.persistence.LockModeType;
-import javax.persistence.TypedQuery;
 import javax.ws.rs.*;
 import javax.ws.rs.core.*;
-import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.temporal.TemporalAmount;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Path("/reservations")
-@Consumes(MediaType.APPLICATION_XML)
-@Produces(MediaType.APPLICATION_XML)
+@Consumes({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON, CborProvider.APPLICATION_CBOR})
+@Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON, CborProvider.APPLICATION_CBOR})
 public class ReservationResource {
 
-    //creates a timeout period of 5 seconds after which a reservation is not valid
-    private final TemporalAmount _time = Duration.ofSeconds(5);
+    //timeout period after which a reservation is not valid
+    private final TemporalAmount _time = ReservationReaper.instance().getTimeToLive();
 
     @POST
     @Path("/reserve")
@@ -43,28 +46,20 @@ public class ReservationResource {
         EntityManager em = PersistenceManager.instance().createEntityManager();
 
         try {
+            //the checks and the reservation itself are made in one transaction
             em.getTransaction().begin();
 
             Long concertId = reservationRequestDTO.getConcertId();
             LocalDateTime concertDateTime = reservationRequestDTO.getDate();
 
-            //at the start of generating each new reservation, free the seats associated to any expired reservations
-            //for the given concert on the given date
-            checkForExpiredReservations(concertId, concertDateTime);
-
             //check that the current user is authenticated
-            TypedQuery<User> query = em.createQuery("SELECT u FROM User u WHERE u._token = :tokenValue", User.class)
-                    .setParameter("tokenValue", token.getValue());
-
-            //user associated to the supplied token
-            User user = query.getSingleResult();
+            AuthenticatedUser user = Authenticator.instance().authenticate(em, token);
 
             if (user == null) { //no user in the DB maps to the provided token
                 return Response.status(Response.Status.UNAUTHORIZED).build();
             }
-            em.getTransaction().commit();
 
-            em.getTransaction().begin();
+            //the concert and its dates normally come from the second-level cache
             Concert concert = em.find(Concert.class, concertId);
 
             if (concert == null) { // no concert in the DB matches the supplied concert ID
@@ -76,49 +71,30 @@ public class ReservationResource {
                 return Response.status(Response.Status.EXPECTATION_FAILED).build();
             }
 
-            em.getTransaction().commit();
-
             // initialise seats if they are not yet in DB
-            initialiseSeats(concertId, reservationRequestDTO.getDate());
+            SeatInitialiser.instance().initialise(concertId, concertDateTime);
 
-            boolean seatsReserved = false;
-            Set<Seat> seatsToReserve = new HashSet<>();
+            //allocate seats and generate the new reservation for the user
+            ReservationDTO reservationDTO = writeReservation(em,
+                    new ReservationTask(user.getUserName(), reservationRequestDTO));
 
-            //try to book seats until there are no concurrency issues
-            while (!seatsReserved) {
-                try {
-                    seatsToReserve = reserveSeats(reservationRequestDTO);
-                    seatsReserved = true;
-                } catch (OptimisticEntityLockException e) {
-                }
-            }
-
-            if (seatsToReserve.isEmpty()) { // there aren't enough seats left for this reservation
+            if (reservationDTO == null) { // there aren't enough seats left for this reservation
                 return Response.status(Response.Status.NOT_ACCEPTABLE).build();
             }
 
-            em.getTransaction().begin();
-
-            //generates a new reservation for the user
-            Reservation reservation = new Reservation(
-                    seatsToReserve,
-                    user.getUserName(),
-                    reservationRequestDTO.getNumberOfSeats(),
-                    reservationRequestDTO.getSeatType(),
-                    reservationRequestDTO.getConcertId(),
-                    reservationRequestDTO.getDate());
-
-            em.persist(reservation);
-            em.getTransaction().commit();
-
             //returns the new reservation and the authentication token back to the client
-            return Response.ok(ReservationMapper.toReservationDTO(reservation))
+            return Response.ok(reservationDTO)
                     .cookie(new NewCookie("token", token.getValue()))
                     .build();
 
+        } catch (TimeoutException e) { //the reservation writer didn't get to this request in time
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
             em.close();
         }
 
@@ -135,46 +111,53 @@ public class ReservationResource {
             em.getTransaction().begin();
 
             //use the supplied token to check if the user is authenticated
-            TypedQuery<User> query = em.createQuery("SELECT u FROM User u WHERE u._token = :tokenValue", User.class)
-                    .setParameter("tokenValue", token.getValue());
-
-            //user that maps to the supplied token
-            User user = query.getSingleResult();
+            AuthenticatedUser user = Authenticator.instance().authenticate(em, token);
 
             if (user == null) { //no user in the DB maps to the provided token
                 return Response.status(Response.Status.UNAUTHORIZED).build();
             }
 
-            if (user.getCreditCard() == null) { //the user does not have a credit card registered
+            if (!user.hasCreditCard()) { //the user does not have a credit card registered
                 return Response.status(Response.Status.NOT_FOUND).build();
             }
-            em.getTransaction().commit();
 
-            em.getTransaction().begin();
-
-            //find the reservation to be confirmed
-            Reservation reservation = em.find(Reservation.class, reservationDTO.getId());
-
-            //if the current reservation has expired, set it to expired
-            if (reservation.getReservationTime().plus(_time).isBefore(LocalDateTime.now())) {
-                if (!reservation.getReservationStatus().equals(Reservation.ReservationStatus.EXPIRED)) {
-                    reservation.setReservationStatus(Reservation.ReservationStatus.EXPIRED);
-                    reservation.setSeats(setSeatState(reservation.getSeats(), Seat.SeatStatus.AVAILABLE));
-                    em.merge(reservation);
-                    em.getTransaction().commit();
+            //confirm the reservation, provided it is still held and hasn't run out of time. Expired reservations
+            //are left to the ReservationReaper
+            int confirmed = em.createQuery("UPDATE Reservation r SET r._reservationStatus = :confirmed " +
+                    "WHERE r._reservationId = :reservationId AND r._reservationStatus = :reserved " +
+                    "AND r._reservationTime >= :heldSince")
+                    .setParameter("confirmed", Reservation.ReservationStatus.CONFIRMED)
+                    .setParameter("reserved", Reservation.ReservationStatus.RESERVED)
+                    .setParameter("reservationId", reservationDTO.getId())
+                    .setParameter("heldSince", LocalDateTime.now().minus(_time))
+                    .executeUpdate();
+
+            if (confirmed == 0) {
+                List<Reservation.ReservationStatus> status = em.createQuery("SELECT r._reservationStatus " +
+                        "FROM Reservation r WHERE r._reservationId = :reservationId", Reservation.ReservationStatus.class)
+                        .setParameter("reservationId", reservationDTO.getId())
+                        .getResultList();
+
+                //confirming a reservation twice is harmless
+                if (status.contains(Reservation.ReservationStatus.CONFIRMED)) {
+                    return Response.status(Response.Status.CREATED).build();
                 }
                 return Response.status(Response.Status.GATEWAY_TIMEOUT).build();
             }
 
-            reservation.setReservationStatus(Reservation.ReservationStatus.CONFIRMED);
-            reservation.setSeats(setSeatState(reservation.getSeats(), Seat.SeatStatus.CONFIRMED));
+            SeatStore.current().confirmSeats(em, reservationDTO.getId());
 
-            em.merge(reservation);
             em.getTransaction().commit();
 
+            //the seats' inventory, if it is loaded, counts them as sold only once the booking is committed
+            SeatInventoryManager.instance().sell(em, reservationDTO.getId());
+
             return Response.status(Response.Status.CREATED).build();
 
         } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
             em.close();
         }
 
@@ -182,45 +165,57 @@ public class ReservationResource {
 
     @GET
     public Response getBookings(@CookieParam("token") Cookie token) {
+        return readBookings(token, false);
+    }
+
+    /**
+     * Returns the user's bookings that the ReservationArchiver has moved out of the live tables because
+     * their concert dates have passed.
+     */
+    @GET
+    @Path("/history")
+    public Response getBookingHistory(@CookieParam("token") Cookie token) {
+        return readBookings(token, true);
+    }
+
+    private Response readBookings(Cookie token, boolean archived) {
         EntityManager em = PersistenceManager.instance().createEntityManager();
 
         try {
             em.getTransaction().begin();
 
             //use supplied token to authenticate user
-            TypedQuery<User> query = em.createQuery("SELECT u FROM User u WHERE u._token = :tokenValue", User.class)
-                    .setParameter("tokenValue", token.getValue());
-
-            User user = query.getSingleResult();
+            AuthenticatedUser user = Authenticator.instance().authenticate(em, token);
 
             if (user == null) { //no user in the DB maps to the provided token
                 return Response.status(Response.Status.UNAUTHORIZED).build();
             }
 
-            em.getTransaction().commit();
-
-            em.getTransaction().begin();
-            String userName = user.getUserName();
-
-            //return all the confirmed reservations (bookings) from the given user
-            List<Reservation> reservations = em.createQuery("SELECT r FROM Reservation r WHERE " +
-                    "r._userName = :userName AND r._reservationStatus = :reservationStatus", Reservation.class)
-                    .setParameter("userName", userName)
-                    .setParameter("reservationStatus", Reservation.ReservationStatus.CONFIRMED)
-                    .getResultList();
+            //read every seat of the user's confirmed reservations (bookings), along with the concert title, in
+            //one query rather than one query per booking for its concert and another for its seats
+            SeatStore store = SeatStore.current();
+            List<Object[]> rows = archived ? store.findArchivedSeats(em, user.getUserName())
+                    : store.findBookedSeats(em, user.getUserName());
 
             em.getTransaction().commit();
 
-            em.getTransaction().begin();
+            //gather each booking's seats, keeping the first row of each booking for its other details
+            Map<Long, Object[]> bookings = new LinkedHashMap<>();
+            Map<Long, Set<SeatDTO>> seats = new HashMap<>();
+
+            for (Object[] row : rows) {
+                bookings.putIfAbsent((Long) row[0], row);
+                seats.computeIfAbsent((Long) row[0], id -> new HashSet<>())
+                        .add(new SeatDTO((SeatRow) row[5], (SeatNumber) row[6]));
+            }
 
+            //convert the bookings to a transferrable DTO form
             List<BookingDTO> bookingDTOs = new ArrayList<>();
 
-            //convert the given reservations to a transferrable DTO form
-            for (Reservation reservation : reservations) {
-                Concert concert = em.find(Concert.class, reservation.getConcertId());
-                bookingDTOs.add(ReservationMapper.toBookingDTO(reservation, concert.getTitle()));
+            for (Object[] booking : bookings.values()) {
+                bookingDTOs.add(new BookingDTO((Long) booking[1], (String) booking[2], (LocalDateTime) booking[3],
+                        seats.get(booking[0]), (PriceBand) booking[4]));
             }
-            em.getTransaction().commit();
 
             GenericEntity<List<BookingDTO>> ge = new GenericEntity<List<BookingDTO>>(bookingDTOs) {
             };
@@ -235,133 +230,31 @@ public class ReservationResource {
     }
 
     /**
-     * Helper method to initialise all the seats for a concert on a given date. All seats are initially set to
-     * available so they are free to be reserved by any user. No action is taken if the seats are already in the DB.
+     * Writes a reservation request, either directly in the request's own transaction or, when the reservation
+     * queue is enabled, through the single writer for the requested concert date.
+     *
+     * @return the new reservation, or null if there are not enough seats available.
      */
-    private void initialiseSeats(Long concertId, LocalDateTime dateTime) {
-        EntityManager em = PersistenceManager.instance().createEntityManager();
+    private ReservationDTO writeReservation(EntityManager em, ReservationTask task)
+            throws InterruptedException, ExecutionException, TimeoutException {
 
-        try {
-            em.getTransaction().begin();
-
-            // find all the seats current associated to the concert on the given date
-            List<Seat> seats = em.createQuery("SELECT s FROM Seat s WHERE s._concertId = :concertId" +
-                    " AND s._concertDateTime = :concertDateTime", Seat.class)
-                    .setParameter("concertId", concertId)
-                    .setParameter("concertDateTime", dateTime)
-                    .getResultList();
-
-            if (seats.isEmpty()) {
-
-                //initialise all the seats for the given concert and persist them to the DB
-                for (PriceBand priceBand : PriceBand.values()) {
-                    for (SeatRow seatRow : TheatreLayout.getRowsForPriceBand(priceBand)) {
-                        int numSeats = TheatreLayout.getNumberOfSeatsForRow(seatRow);
-                        for (int num = 1; num <= numSeats; num++) {
-                            Seat seat = new Seat(seatRow,
-                                    new SeatNumber(num),
-                                    concertId,
-                                    dateTime);
-                            seat.setSeatType(priceBand);
-                            em.persist(seat);
-                        }
-                    }
-                }
-            }
-            em.getTransaction().commit();
-
-        } finally {
-            em.close();
+        if (!ServiceConfiguration.getBoolean(ServiceConfiguration.RESERVATION_QUEUE, false)) {
+            ReservationWriter.write(em, Collections.singletonList(task));
+            return task.getResult().get();
         }
-    }
 
-    /**
-     * Helper method that goes through all the reservations associated to a particular concert and marks any
-     * reservation that is expired. This will free up the seats in the reservation so that other users are able
-     * to book them.
-     */
-    private void checkForExpiredReservations(Long concertId, LocalDateTime dateTime) {
-        EntityManager em = PersistenceManager.instance().createEntityManager();
+        //the writer uses its own transaction, so finish the request's checks first
+        em.getTransaction().commit();
+        ReservationQueueManager.instance().submit(task);
 
         try {
-            em.getTransaction().begin();
-
-            //find all the reservations associated to the supplied concert on supplied date
-            List<Reservation> reservations = em.createQuery("SELECT r FROM Reservation r WHERE " +
-                    "r._concertId = :concertId AND r._date = :dateTime", Reservation.class)
-                    .setParameter("concertId", concertId)
-                    .setParameter("dateTime", dateTime)
-                    .getResultList();
-
-            //mark any reservation that are expired if it has passed its expiration time.
-            for (Reservation reservation : reservations) {
-                if (reservation.getReservationTime().plus(_time).isBefore(LocalDateTime.now())) {
-                    reservation.setReservationStatus(Reservation.ReservationStatus.EXPIRED);
-                    reservation.setSeats(setSeatState(reservation.getSeats(), Seat.SeatStatus.AVAILABLE));
-                    em.merge(reservation);
-                }
-            }
-
-            em.getTransaction().commit();
-
-        } finally {
-            em.close();
+            return task.getResult().get(
+                    ServiceConfiguration.getLong(ServiceConfiguration.RESERVATION_QUEUE_TIMEOUT, 5000),
+                    TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            //stop the writer from making a reservation that nobody is waiting for
+            task.getResult().cancel(false);
+            throw e;
         }
-
-    }
-
-    /**
-     * Will optimistically lock all seats currently available to be booked until they have been set to reserved and
-     * persisted to the DB. If concurrent access is detected, an exception will be thrown which will be detected by
-     * the calling method. Method can be re-run until an exception is not thrown.
-     */
-    private Set<Seat> reserveSeats(ReservationRequestDTO reservationRequestDTO) throws OptimisticEntityLockException {
-        EntityManager em = PersistenceManager.instance().createEntityManager();
-
-        try {
-            em.getTransaction().begin();
-
-            // find all the available seats for the required concert instance and price band
-            List<Seat> allAvailableSeats = em.createQuery("SELECT s FROM Seat s WHERE "
-                    + "s._concertId = :concertId AND s._seatType = :seatType AND "
-                    + "s._concertDateTime = :dateTime AND s._seatStatus = :seatStatus", Seat.class)
-                    .setParameter("concertId", reservationRequestDTO.getConcertId())
-                    .setParameter("seatStatus", Seat.SeatStatus.AVAILABLE)
-                    .setParameter("seatType", reservationRequestDTO.getSeatType())
-                    .setParameter("dateTime", reservationRequestDTO.getDate())
-                    .setLockMode(LockModeType.OPTIMISTIC)
-                    .getResultList();
-
-            //find a set of seats that the user is able to reserve
-            Set<Seat> seatsToReserve = TheatreUtility.findAvailableSeats(reservationRequestDTO.getNumberOfSeats(),
-                    new HashSet<>(allAvailableSeats));
-
-            if (seatsToReserve.isEmpty()) { //there are no seats available to book, reservation cannot go through
-                return seatsToReserve;
-            }
-
-            //ensure all the seats in the reservation are marked as reserved
-            for (Seat seat : seatsToReserve) {
-                seat.setSeatStatus(Seat.SeatStatus.RESERVED);
-                em.persist(seat);
-            }
-
-            em.getTransaction().commit();
-
-            return seatsToReserve;
-
-        } finally {
-            em.close();
-        }
-    }
-
-    private Set<Seat> setSeatState(Set<Seat> seats, Seat.SeatStatus seatStatus) {
-
-        for (Seat seat : seats) {
-            seat.setSeatStatus(seatStatus);
-        }
-        return seats;
-
     }
 }
-
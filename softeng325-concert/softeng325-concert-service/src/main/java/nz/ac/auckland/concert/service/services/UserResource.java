@@ -2,12 +2,14 @@ package nz.ac.auckland.concert.service.services;
 
 import nz.ac.auckland.concert.common.dto.CreditCardDTO;
 import nz.ac.auckland.concert.common.dto.UserDTO;
+import nz.ac.auckland.concert.common.jackson.CborProvider;
+import nz.ac.auckland.concert.service.auth.AuthenticatedUser;
+import nz.ac.auckland.concert.service.auth.Authenticator;
 import nz.ac.auckland.concert.service.domain.jpa.User;
 import nz.ac.auckland.concert.service.mappers.CreditCardMapper;
 import nz.ac.auckland.concert.service.mappers.UserMapper;
 
 import javax.persistence.EntityManager;
-import javax.persistence.TypedQuery;
 import javax.ws.rs.*;
 import javax.ws.rs.core.*;
 import java.net.URI;
@@ -15,8 +17,8 @@ import java.net.URISyntaxException;
 import java.util.UUID;
 
 @Path("/users")
-@Consumes(MediaType.APPLICATION_XML)
-@Produces(MediaType.APPLICATION_XML)
+@Consumes({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON, CborProvider.APPLICATION_CBOR})
+@Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON, CborProvider.APPLICATION_CBOR})
 public class UserResource {
 
     @POST
@@ -101,21 +103,22 @@ public class UserResource {
             em.getTransaction().begin();
 
             //check that the supplied token maps to a user in the DB
-            TypedQuery<User> query = em.createQuery("SELECT u FROM User u WHERE u._token = :tokenValue", User.class)
-                    .setParameter("tokenValue", token.getValue());
+            AuthenticatedUser authenticatedUser = Authenticator.instance().authenticate(em, token);
 
-            User user  = query.getSingleResult();
-
-            if (user == null) { //no user in the DB has the supplied token
+            if (authenticatedUser == null) { //no user in the DB has the supplied token
                 return Response.status(Response.Status.UNAUTHORIZED).build();
             }
             //update the credit card field of the supplied user
+            User user = em.find(User.class, authenticatedUser.getUserName());
             user.setCreditCard(CreditCardMapper.toDomain(creditCardDTO));
 
             //merge and commit changes to the DB
             em.merge(user);
             em.getTransaction().commit();
 
+            //cached authentication details record whether the user has a credit card
+            Authenticator.instance().update(user);
+
             return Response.ok().build();
         } finally {
             em.close();
@@ -0,0 +1,249 @@
+package nz.ac.auckland.concert.service.util;
+
+import nz.ac.auckland.concert.common.types.PriceBand;
+import nz.ac.auckland.concert.common.types.SeatRow;
+import nz.ac.auckland.concert.utility.TheatreLayout;
+
+import java.util.*;
+
+/**
+ * Allocates seats within one price band so that groups sit together.
+ *
+ * Seats are identified by their position in the band: rows are taken in theatre order (A before B) and
+ * seats in number order within a row, using the row sizes from TheatreLayout. The allocator indexes the
+ * runs of adjacent free seats in each row, ordered by length, so a request is served from the smallest
+ * run that can seat the whole group (best fit). When no run is long enough the group is split over the
+ * fewest runs possible. Allocating and releasing seats take O(log n) per run involved.
+ *
+ * SeatAllocator is not thread-safe; callers that share an instance must synchronise access to it.
+ */
+public class SeatAllocator {
+
+    private final SeatRow[] _rows;
+
+    // position of the first seat in each row
+    private final int[] _rowOffsets;
+
+    private final int _capacity;
+
+    // free runs ordered by length, so that the best fit for a group is a ceiling lookup
+    private final TreeSet<Run> _runsBySize = new TreeSet<>();
+
+    // free runs in each row keyed by their first position, used to merge runs when seats are released
+    private final List<TreeMap<Integer, Run>> _runsByRow = new ArrayList<>();
+
+    private int _freeCount;
+
+    /**
+     * Creates an allocator for the given price band in which every seat is free.
+     */
+    public SeatAllocator(PriceBand priceBand) {
+        this(priceBand, null);
+    }
+
+    /**
+     * Creates an allocator for the given price band. A set bit in free marks the seat at that position as
+     * free; a null bitmap means every seat is free.
+     */
+    public SeatAllocator(PriceBand priceBand, BitSet free) {
+        Set<SeatRow> rows = new TreeSet<>(TheatreLayout.getRowsForPriceBand(priceBand));
+        _rows = rows.toArray(new SeatRow[rows.size()]);
+        _rowOffsets = new int[_rows.length + 1];
+
+        for (int i = 0; i < _rows.length; i++) {
+            _rowOffsets[i + 1] = _rowOffsets[i] + TheatreLayout.getNumberOfSeatsForRow(_rows[i]);
+            _runsByRow.add(new TreeMap<>());
+        }
+        _capacity = _rowOffsets[_rows.length];
+
+        //index the runs of free seats in each row
+        for (int row = 0; row < _rows.length; row++) {
+            int position = _rowOffsets[row];
+
+            while (position < _rowOffsets[row + 1]) {
+                if (free != null && !free.get(position)) {
+                    position++;
+                    continue;
+                }
+                int start = position;
+                while (position < _rowOffsets[row + 1] && (free == null || free.get(position))) {
+                    position++;
+                }
+                addRun(new Run(row, start, position - start));
+            }
+        }
+    }
+
+    /**
+     * Takes the requested number of seats, preferring a single block of adjacent seats.
+     *
+     * @return the positions of the allocated seats, or an empty array when there are not enough free seats.
+     */
+    public int[] allocate(int numberOfSeats) {
+        if (numberOfSeats <= 0 || numberOfSeats > _freeCount) {
+            return new int[0];
+        }
+
+        int[] allocated = new int[numberOfSeats];
+        int count = 0;
+
+        while (count < numberOfSeats) {
+            int remaining = numberOfSeats - count;
+
+            //best fit for the rest of the group, otherwise the largest run left
+            Run run = _runsBySize.ceiling(new Run(-1, -1, remaining));
+            if (run == null) {
+                run = _runsBySize.last();
+            }
+            removeRun(run);
+
+            int taken = Math.min(remaining, run._length);
+            for (int i = 0; i < taken; i++) {
+                allocated[count++] = run._start + i;
+            }
+
+            if (taken < run._length) {
+                addRun(new Run(run._row, run._start + taken, run._length - taken));
+            }
+        }
+        return allocated;
+    }
+
+    /**
+     * Returns seats to the allocator, merging them with any adjacent free seats in the same row. Positions
+     * that are out of range or already free are ignored.
+     */
+    public void release(int[] positions) {
+        for (int position : positions) {
+            if (position < 0 || position >= _capacity || isFree(position)) {
+                continue;
+            }
+
+            int row = rowIndex(position);
+            TreeMap<Integer, Run> runs = _runsByRow.get(row);
+            int start = position;
+            int length = 1;
+
+            Map.Entry<Integer, Run> before = runs.lowerEntry(position);
+            if (before != null && before.getValue()._start + before.getValue()._length == position) {
+                removeRun(before.getValue());
+                start = before.getValue()._start;
+                length += before.getValue()._length;
+            }
+
+            Run after = runs.get(position + 1);
+            if (after != null) {
+                removeRun(after);
+                length += after._length;
+            }
+
+            addRun(new Run(row, start, length));
+        }
+    }
+
+    /**
+     * Takes particular seats, splitting the runs they are in, for seats that were chosen by something other
+     * than this allocator. Positions that are out of range or not free are ignored.
+     */
+    public void take(int[] positions) {
+        for (int position : positions) {
+            if (!isFree(position)) {
+                continue;
+            }
+
+            Run run = _runsByRow.get(rowIndex(position)).floorEntry(position).getValue();
+            removeRun(run);
+
+            if (position > run._start) {
+                addRun(new Run(run._row, run._start, position - run._start));
+            }
+            int end = run._start + run._length;
+            if (position + 1 < end) {
+                addRun(new Run(run._row, position + 1, end - position - 1));
+            }
+        }
+    }
+
+    public boolean isFree(int position) {
+        if (position < 0 || position >= _capacity) {
+            return false;
+        }
+        Map.Entry<Integer, Run> run = _runsByRow.get(rowIndex(position)).floorEntry(position);
+        return run != null && position < run.getValue()._start + run.getValue()._length;
+    }
+
+    public int getFreeCount() {
+        return _freeCount;
+    }
+
+    public int getCapacity() {
+        return _capacity;
+    }
+
+    /**
+     * Returns the position of a seat in this allocator's price band, or -1 if the seat isn't in the band.
+     */
+    public int positionOf(SeatRow row, int number) {
+        int index = Arrays.binarySearch(_rows, row);
+
+        if (index < 0 || number < 1 || number > _rowOffsets[index + 1] - _rowOffsets[index]) {
+            return -1;
+        }
+        return _rowOffsets[index] + number - 1;
+    }
+
+    public SeatRow rowAt(int position) {
+        return _rows[rowIndex(position)];
+    }
+
+    public int numberAt(int position) {
+        return position - _rowOffsets[rowIndex(position)] + 1;
+    }
+
+    private int rowIndex(int position) {
+        int index = Arrays.binarySearch(_rowOffsets, position);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private void addRun(Run run) {
+        _runsBySize.add(run);
+        _runsByRow.get(run._row).put(run._start, run);
+        _freeCount += run._length;
+    }
+
+    private void removeRun(Run run) {
+        _runsBySize.remove(run);
+        _runsByRow.get(run._row).remove(run._start);
+        _freeCount -= run._length;
+    }
+
+    /**
+     * A run of adjacent free seats within one row. Runs order by length, then by row and position, so that
+     * among equally good fits the one nearest the front of the theatre is used first.
+     */
+    private static class Run implements Comparable<Run> {
+
+        private final int _row;
+
+        private final int _start;
+
+        private final int _length;
+
+        private Run(int row, int start, int length) {
+            _row = row;
+            _start = start;
+            _length = length;
+        }
+
+        @Override
+        public int compareTo(Run other) {
+            if (_length != other._length) {
+                return Integer.compare(_length, other._length);
+            }
+            if (_row != other._row) {
+                return Integer.compare(_row, other._row);
+            }
+            return Integer.compare(_start, other._start);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package nz.ac.auckland.concert.service.util;
+
+/**
+ * Utility class that reads the Web service's tunable settings. Each setting is a system property, so it can
+ * be given on the command line (e.g. -Dconcert.reservation.queue=true) and falls back to a default otherwise.
+ */
+public class ServiceConfiguration {
+
+    // Route reservation requests through a single writer per concert date instead of handling them on the
+    // request thread.
+    public static final String RESERVATION_QUEUE = "concert.reservation.queue";
+
+    // Maximum number of queued reservation requests written in one transaction.
+    public static final String RESERVATION_QUEUE_BATCH_SIZE = "concert.reservation.queue.batchSize";
+
+    // Number of writer threads shared by the reservation queues of every concert date.
+    public static final String RESERVATION_QUEUE_WRITERS = "concert.reservation.queue.writers";
+
+    // How long (in milliseconds) a request thread waits for the writer before giving up.
+    public static final String RESERVATION_QUEUE_TIMEOUT = "concert.reservation.queue.timeout";
+
+    // How long (in milliseconds) a reservation holds its seats before it expires unless it is confirmed.
+    public static final String RESERVATION_TIME_TO_LIVE = "concert.reservation.timeToLive";
+
+    // How long (in milliseconds) the ReservationArchiver waits between passes. 0 turns archiving off.
+    public static final String RESERVATION_ARCHIVE_INTERVAL = "concert.reservation.archive.interval";
+
+    // Maximum number of reservations moved to the history table in one transaction.
+    public static final String RESERVATION_ARCHIVE_BATCH_SIZE = "concert.reservation.archive.batchSize";
+
+    // How long (in days) after its concert date a booking is moved to the history table. Bookings are only
+    // archived when this is set: GET /reservations returns live bookings only, and every concert in the
+    // catalogue snapshot is already past, so archiving by default would hide each booking a minute after it
+    // was made.
+    public static final String RESERVATION_ARCHIVE_BOOKINGS_AFTER = "concert.reservation.archive.bookingsAfter";
+
+    // Maximum number of authentication tokens whose users are cached.
+    public static final String AUTHENTICATION_CACHE_SIZE = "concert.authentication.cacheSize";
+
+    // Largest number of database connections the pool opens. Requests wait for a connection beyond that.
+    public static final String POOL_MAXIMUM_SIZE = "concert.pool.maximumSize";
+
+    // Number of idle connections the pool keeps open ready for a burst of requests.
+    public static final String POOL_MINIMUM_IDLE = "concert.pool.minimumIdle";
+
+    // How long (in milliseconds) a request waits for a free connection before failing.
+    public static final String POOL_CONNECTION_TIMEOUT = "concert.pool.connectionTimeout";
+
+    // How long (in milliseconds) a connection above the minimum may sit idle before it is closed.
+    public static final String POOL_IDLE_TIMEOUT = "concert.pool.idleTimeout";
+
+    // Number of prepared statements the database caches for each connection.
+    public static final String POOL_STATEMENT_CACHE_SIZE = "concert.pool.statementCacheSize";
+
+    // How the H2 database is run: file, memory or server (see DatabaseProfile).
+    public static final String DATABASE_PROFILE = "concert.database.profile";
+
+    // Path of the database file for the file and server profiles.
+    public static final String DATABASE_PATH = "concert.database.path";
+
+    // host:port of the H2 TCP server for the server profile.
+    public static final String DATABASE_SERVER = "concert.database.server";
+
+    // Start the H2 TCP server in this JVM, unless another JVM already has, for the server profile.
+    public static final String DATABASE_START_SERVER = "concert.database.startServer";
+
+    // What JPA does to the tables at start-up: drop-and-create, create or none.
+    public static final String DATABASE_SCHEMA_ACTION = "concert.database.schemaAction";
+
+    // Size (in KB) of the database's page cache, overriding the profile's.
+    public static final String DATABASE_CACHE_SIZE = "concert.database.cacheSize";
+
+    // Longest time (in milliseconds) committed changes wait to be written to disk, overriding the profile's.
+    public static final String DATABASE_WRITE_DELAY = "concert.database.writeDelay";
+
+    // Have Hibernate gather statistics: statement, transaction and cache counts, including CatalogueCache's hit
+    // and miss counts. Off by default, since every session pays for the counting.
+    public static final String STATISTICS = "concert.statistics";
+
+    // Number of ids each entity's sequence hands out per call (see PooledSequenceGenerator). It must not
+    // change while the database is kept.
+    public static final String ID_ALLOCATION_SIZE = "concert.ids.allocationSize";
+
+    // Directory of the CSV snapshot the catalogue is loaded from when the tables are created, which may be a
+    // classpath: location (see CatalogueLoader).
+    public static final String CATALOGUE_PATH = "concert.catalogue.path";
+
+    // Create the seats of every scheduled concert date when the service starts, rather than on the first
+    // reservation for each date.
+    public static final String CATALOGUE_PREBUILD_SEATS = "concert.catalogue.prebuildSeats";
+
+    // Largest number of concerts a catalogue search returns in one page. A search may ask for fewer.
+    public static final String CATALOGUE_PAGE_SIZE = "concert.catalogue.pageSize";
+
+    // How seat states are stored: rows (a SEATS row per seat) or bitmap (a SEAT_MAPS row per price band of
+    // a concert date). See SeatStore.
+    public static final String SEAT_FORMAT = "concert.seats.format";
+
+    // How the reservation writer claims seats in the SEATS table: optimistic, pessimistic or conditional
+    // (see SeatClaimStrategy).
+    public static final String SEAT_CLAIM = "concert.seats.claim";
+
+    // How long (in milliseconds) a seat claim keeps retrying while other transactions hold the seats it wants.
+    public static final String SEAT_CLAIM_TIMEOUT = "concert.seats.claim.timeout";
+
+    // This is utility class, so hide the constructor to prevent instantiation.
+    private ServiceConfiguration() {
+    }
+
+    public static boolean getBoolean(String name, boolean defaultValue) {
+        String value = System.getProperty(name);
+        return value == null ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+    public static int getInt(String name, int defaultValue) {
+        String value = System.getProperty(name);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    public static long getLong(String name, long defaultValue) {
+        String value = System.getProperty(name);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    public static String getString(String name, String defaultValue) {
+        String value = System.getProperty(name);
+        return value == null ? defaultValue : value.trim();
+    }
+}
@@ -39,6 +39,50 @@ public class TheatreUtility {
 				new ArrayList<>(availableSeats));
 	}
 
+	/**
+	 * Attempts to find a specified number of seats, within a given priceband,
+	 * that sit next to each other. The seats are chosen by a SeatAllocator,
+	 * which picks the smallest block of adjacent free seats in a row that can
+	 * seat the whole group, and otherwise splits the group over as few blocks
+	 * as possible.
+	 *
+	 * @param numberOfSeats
+	 *            the number of seats required.
+	 * @param availableSeats
+	 *            the set of seats that are currently available. All seats are
+	 *            expected to be within the same priceband.
+	 *
+	 * @return a set of seats that are available to book, or the empty set when
+	 *         there are not enough seats available.
+	 *
+	 */
+	public static Set<Seat> findAdjacentSeats(int numberOfSeats,
+			Set<Seat> availableSeats) {
+
+		if (availableSeats.isEmpty() || availableSeats.size() < numberOfSeats) {
+			return new HashSet<Seat>();
+		}
+
+		//start with every seat taken, then free the seats that are available
+		SeatAllocator allocator = new SeatAllocator(
+				availableSeats.iterator().next().getSeatType(), new BitSet());
+		Map<Integer, Seat> seatsByPosition = new HashMap<Integer, Seat>();
+
+		for (Seat seat : availableSeats) {
+			int position = allocator.positionOf(seat.getRow(),
+					seat.getNumber().intValue());
+			if (position >= 0) {
+				seatsByPosition.put(position, seat);
+				allocator.release(new int[] { position });
+			}
+		}
+
+		Set<Seat> seats = new HashSet<Seat>();
+		for (int position : allocator.allocate(numberOfSeats)) {
+			seats.add(seatsByPosition.get(position));
+		}
+		return seats;
+	}
 
 	protected static Set<Seat> getSpecificAvailableSeats(int startIndex,
 														 int numberOfSeats, List<Seat> openSeats) {
@@ -1,271 +0,0 @@
-// Performer data:
-// column #1: ID
-// column #2: Genre, Java type Genre stored as a String representation of Genre value
-// column #3: Image name
-// column #4: Name of performer
-INSERT INTO PERFORMERS VALUES(1,'Pop','PanicAtTheDisco.jpg','Panic! at the Disco');
-INSERT INTO PERFORMERS VALUES(2,'Pop','EdSheeran.jpg','Ed Sheeran');
-INSERT INTO PERFORMERS VALUES(3,'HipHop','KendrickLamar.jpg','Kendrick Lamar');
-INSERT INTO PERFORMERS VALUES(4,'RhythmAndBlues','BrunoMars.jpg','Bruno Mars');
-INSERT INTO PERFORMERS VALUES(5,'HipHop','TwentyOnePilots.jpg','Twenty One Pilots');
-INSERT INTO PERFORMERS VALUES(6,'Pop','Lorde.jpg','Lorde');
-INSERT INTO PERFORMERS VALUES(7,'RhythmAndBlues','Adele.jpg','Adele');
-INSERT INTO PERFORMERS VALUES(8,'Pop','LukasGraham.jpg','Lukas Graham');
-INSERT INTO PERFORMERS VALUES(9,'RhythmAndBlues','StanWalker.jpg','Stan Walker');
-INSERT INTO PERFORMERS VALUES(10,'Acappella','Pentatonix.jpg','Pentatonix');
-INSERT INTO PERFORMERS VALUES(11,'Pop','ArianaGrande.jpg','Ariana Grande');
-INSERT INTO PERFORMERS VALUES(12,'Metal','BabyMetal.jpg','BabyMetal');
-INSERT INTO PERFORMERS VALUES(13,'Rock','Train.jpg','Train');
-INSERT INTO PERFORMERS VALUES(14,'Rock','LinkiPark.jpg','Linkin Park');
-INSERT INTO PERFORMERS VALUES(15,'HipHop','DjKhaled.jpg','DJ Khaled');
-INSERT INTO PERFORMERS VALUES(16,'Pop','KatyPerry.jpg','Katy Perry');
-INSERT INTO PERFORMERS VALUES(17,'Metal','Metallica.jpg','Metallica');
-INSERT INTO PERFORMERS VALUES(18,'Rock','ImagineDragons.jpg','Imagine Dragons');
-INSERT INTO PERFORMERS VALUES(19,'RhythmAndBlues','JohnLegend.jpg','John Legend');
-INSERT INTO PERFORMERS VALUES(20,'RhythmAndBlues','ZaynMalik.jpg','Zayn Malik');
-
-// Concert data:
-// column #1: ID
-// column #2: Title
-INSERT INTO CONCERTS VALUES(1,'Death of a Bachelor Tour');
-INSERT INTO CONCERTS VALUES(2,'Divide Tour');
-INSERT INTO CONCERTS VALUES(3,'The Damn Tour');
-INSERT INTO CONCERTS VALUES(4,'24K Magic World Tour');
-INSERT INTO CONCERTS VALUES(5,'Emotional Roadshow World Tour');
-INSERT INTO CONCERTS VALUES(6,'Melodrama World Tour');
-INSERT INTO CONCERTS VALUES(7,'Adele Live 2017');
-INSERT INTO CONCERTS VALUES(8,'Lukas Graham');
-INSERT INTO CONCERTS VALUES(9,'Stan Walker');
-INSERT INTO CONCERTS VALUES(10,'Pentatonix World Tour 2017');
-INSERT INTO CONCERTS VALUES(11,'Dangerous Woman');
-INSERT INTO CONCERTS VALUES(12,'Legend - Metal Resistance');
-INSERT INTO CONCERTS VALUES(13,'Play That Song Tour');
-INSERT INTO CONCERTS VALUES(14,'One More Light Tour');
-INSERT INTO CONCERTS VALUES(15,'DJ Khaled');
-INSERT INTO CONCERTS VALUES(16,'Witness: The Tour');
-INSERT INTO CONCERTS VALUES(17,'WorldWired Tour');
-INSERT INTO CONCERTS VALUES(18,'Evolve!');
-INSERT INTO CONCERTS VALUES(19,'Darkness and Light World Tour');
-INSERT INTO CONCERTS VALUES(20,'One Love Manchester');
-INSERT INTO CONCERTS VALUES(21,'The Five Fox Festival');
-INSERT INTO CONCERTS VALUES(22,'Mind of Mine');
-INSERT INTO CONCERTS VALUES(23,'Fall Tour');
-INSERT INTO CONCERTS VALUES(24,'MTV VMAs');
-INSERT INTO CONCERTS VALUES(25,'Billboard Music');
-
-// Concert dates data
-// column #1: ID (foreign key to CONCERTS)
-// column #2: Date, H2 type Timestamp
-INSERT INTO CONCERT_DATES VALUES(1,'2017-02-24 17:00:00');
-INSERT INTO CONCERT_DATES VALUES(1,'2017-03-02 17:00:00');
-INSERT INTO CONCERT_DATES VALUES(1,'2017-03-12 18:00:00');
-INSERT INTO CONCERT_DATES VALUES(1,'2017-03-21 18:00:00');
-INSERT INTO CONCERT_DATES VALUES(1,'2017-04-15 18:30:00');
-INSERT INTO CONCERT_DATES VALUES(2,'2017-08-08 19:30:00');
-INSERT INTO CONCERT_DATES VALUES(2,'2017-08-31 19:30:00');
-INSERT INTO CONCERT_DATES VALUES(2,'2017-09-21 16:15:00');
-INSERT INTO CONCERT_DATES VALUES(2,'2017-10-29 19:00:00');
-INSERT INTO CONCERT_DATES VALUES(2,'2017-11-09 17:00:00');
-INSERT INTO CONCERT_DATES VALUES(2,'2017-11-23 17:00:00');
-INSERT INTO CONCERT_DATES VALUES(3,'2017-07-28 16:45:00');
-INSERT INTO CONCERT_DATES VALUES(3,'2017-08-05 16:45:00');
-INSERT INTO CONCERT_DATES VALUES(3,'2017-08-09 16:45:00');
-INSERT INTO CONCERT_DATES VALUES(3,'2017-08-19 18:00:00');
-INSERT INTO CONCERT_DATES VALUES(3,'2017-08-20 18:00:00');
-INSERT INTO CONCERT_DATES VALUES(3,'2017-09-01 18:00:00');
-INSERT INTO CONCERT_DATES VALUES(4,'2017-09-03 19:30:00');
-INSERT INTO CONCERT_DATES VALUES(4,'2017-09-14 20:15:00');
-INSERT INTO CONCERT_DATES VALUES(4,'2017-09-16 20:15:00');
-INSERT INTO CONCERT_DATES VALUES(4,'2017-10-18 19:30:00');
-INSERT INTO CONCERT_DATES VALUES(4,'2017-10-19 18:00:00');
-INSERT INTO CONCERT_DATES VALUES(4,'2017-11-10 12:00:00');
-INSERT INTO CONCERT_DATES VALUES(5,'2017-04-01 13:15:00');
-INSERT INTO CONCERT_DATES VALUES(5,'2017-04-08 13:15:00');
-INSERT INTO CONCERT_DATES VALUES(5,'2017-05-19 14:30:00');
-INSERT INTO CONCERT_DATES VALUES(5,'2017-05-27 14:30:00');
-INSERT INTO CONCERT_DATES VALUES(5,'2017-06-16 10:30:00');
-INSERT INTO CONCERT_DATES VALUES(5,'2017-06-17 10:30:00');
-INSERT INTO CONCERT_DATES VALUES(6,'2017-09-26 18:30:00');
-INSERT INTO CONCERT_DATES VALUES(6,'2017-09-27 18:30:00');
-INSERT INTO CONCERT_DATES VALUES(6,'2017-10-01 18:30:00');
-INSERT INTO CONCERT_DATES VALUES(6,'2017-10-04 18:30:00');
-INSERT INTO CONCERT_DATES VALUES(6,'2017-11-12 18:30:00');
-INSERT INTO CONCERT_DATES VALUES(6,'2017-11-14 18:30:00');
-INSERT INTO CONCERT_DATES VALUES(6,'2017-11-15 18:30:00');
-INSERT INTO CONCERT_DATES VALUES(7,'2017-03-23 19:30:00');
-INSERT INTO CONCERT_DATES VALUES(7,'2017-03-25 19:30:00');
-INSERT INTO CONCERT_DATES VALUES(7,'2017-03-26 19:30:00');
-INSERT INTO CONCERT_DATES VALUES(7,'2017-06-28 19:30:00');
-INSERT INTO CONCERT_DATES VALUES(7,'2017-06-29 19:45:00');
-INSERT INTO CONCERT_DATES VALUES(8,'2017-07-30 14:30:00');
-INSERT INTO CONCERT_DATES VALUES(9,'2017-08-18 19:45:00');
-INSERT INTO CONCERT_DATES VALUES(10,'2017-08-12 20:15:00');
-INSERT INTO CONCERT_DATES VALUES(10,'2017-08-13 20:15:00');
-INSERT INTO CONCERT_DATES VALUES(10,'2017-08-27 20:15:00');
-INSERT INTO CONCERT_DATES VALUES(10,'2017-08-28 20:15:00');
-INSERT INTO CONCERT_DATES VALUES(10,'2017-09-02 16:00:00');
-INSERT INTO CONCERT_DATES VALUES(11,'2017-08-10 18:30:00');
-INSERT INTO CONCERT_DATES VALUES(11,'2017-08-11 18:30:00');
-INSERT INTO CONCERT_DATES VALUES(11,'2017-09-04 18:30:00');
-INSERT INTO CONCERT_DATES VALUES(12,'2017-09-19 18:15:00');
-INSERT INTO CONCERT_DATES VALUES(13,'2017-05-30 17:30:00');
-INSERT INTO CONCERT_DATES VALUES(13,'2017-06-24 18:30:00');
-INSERT INTO CONCERT_DATES VALUES(13,'2017-07-15 19:30:00');
-INSERT INTO CONCERT_DATES VALUES(14,'2017-11-02 19:15:00');
-INSERT INTO CONCERT_DATES VALUES(14,'2017-11-04 19:15:00');
-INSERT INTO CONCERT_DATES VALUES(14,'2017-11-05 19:15:00');
-INSERT INTO CONCERT_DATES VALUES(15,'2017-07-29 21:30:00');
-INSERT INTO CONCERT_DATES VALUES(15,'2017-08-15 21:30:00');
-INSERT INTO CONCERT_DATES VALUES(15,'2017-08-17 21:30:00');
-INSERT INTO CONCERT_DATES VALUES(16,'2017-09-07 18:30:00');
-INSERT INTO CONCERT_DATES VALUES(16,'2017-09-09 18:30:00');
-INSERT INTO CONCERT_DATES VALUES(16,'2017-10-02 18:30:00');
-INSERT INTO CONCERT_DATES VALUES(16,'2017-10-06 18:30:00');
-INSERT INTO CONCERT_DATES VALUES(16,'2017-11-07 18:30:00');
-INSERT INTO CONCERT_DATES VALUES(16,'2017-11-08 18:30:00');
-INSERT INTO CONCERT_DATES VALUES(16,'2017-12-02 18:30:00');
-INSERT INTO CONCERT_DATES VALUES(16,'2017-12-04 18:30:00');
-INSERT INTO CONCERT_DATES VALUES(17,'2017-08-14 19:45:00');
-INSERT INTO CONCERT_DATES VALUES(17,'2017-08-16 19:45:00');
-INSERT INTO CONCERT_DATES VALUES(17,'2017-10-22 20:00:00');
-INSERT INTO CONCERT_DATES VALUES(17,'2017-10-24 20:00:00');
-INSERT INTO CONCERT_DATES VALUES(17,'2017-11-01 20:00:00');
-INSERT INTO CONCERT_DATES VALUES(17,'2017-11-03 20:00:00');
-INSERT INTO CONCERT_DATES VALUES(18,'2017-06-30 18:45:00');
-INSERT INTO CONCERT_DATES VALUES(18,'2017-09-28 18:45:00');
-INSERT INTO CONCERT_DATES VALUES(18,'2017-10-23 19:00:00');
-INSERT INTO CONCERT_DATES VALUES(18,'2017-10-26 19:00:00');
-INSERT INTO CONCERT_DATES VALUES(18,'2017-11-13 19:15:00');
-INSERT INTO CONCERT_DATES VALUES(18,'2017-11-16 19:15:00');
-INSERT INTO CONCERT_DATES VALUES(19,'2017-06-26 17:45:00');
-INSERT INTO CONCERT_DATES VALUES(19,'2017-06-27 17:45:00');
-INSERT INTO CONCERT_DATES VALUES(19,'2017-07-24 17:30:00');
-INSERT INTO CONCERT_DATES VALUES(19,'2017-07-27 17:30:00');
-INSERT INTO CONCERT_DATES VALUES(20,'2017-06-04 13:00:00');
-INSERT INTO CONCERT_DATES VALUES(21,'2017-08-29 20:30:00');
-INSERT INTO CONCERT_DATES VALUES(21,'2017-08-30 20:30:00');
-INSERT INTO CONCERT_DATES VALUES(22,'2017-03-24 21:00:00');
-INSERT INTO CONCERT_DATES VALUES(23,'2017-09-18 20:00:00');
-INSERT INTO CONCERT_DATES VALUES(23,'2017-09-20 20:00:00');
-INSERT INTO CONCERT_DATES VALUES(23,'2017-09-22 20:00:00');
-INSERT INTO CONCERT_DATES VALUES(24,'2017-08-26 20:00:00');
-INSERT INTO CONCERT_DATES VALUES(24,'2017-12-08 19:30:00');
-
-// Concert/Performer pairings
-// column #1: ID of Concert (foreign key to CONCERTS)
-// column #2: ID of Performer (foreign key to PERFORMERS)
-INSERT INTO CONCERT_PERFORMER VALUES(1,1);
-INSERT INTO CONCERT_PERFORMER VALUES(2,2);
-INSERT INTO CONCERT_PERFORMER VALUES(3,3);
-INSERT INTO CONCERT_PERFORMER VALUES(4,4);
-INSERT INTO CONCERT_PERFORMER VALUES(5,5);
-INSERT INTO CONCERT_PERFORMER VALUES(6,6);
-INSERT INTO CONCERT_PERFORMER VALUES(7,7);
-INSERT INTO CONCERT_PERFORMER VALUES(8,8);
-INSERT INTO CONCERT_PERFORMER VALUES(9,9);
-INSERT INTO CONCERT_PERFORMER VALUES(10,10);
-INSERT INTO CONCERT_PERFORMER VALUES(11,11);
-INSERT INTO CONCERT_PERFORMER VALUES(12,12);
-INSERT INTO CONCERT_PERFORMER VALUES(13,13);
-INSERT INTO CONCERT_PERFORMER VALUES(14,14);
-INSERT INTO CONCERT_PERFORMER VALUES(15,15);
-INSERT INTO CONCERT_PERFORMER VALUES(16,16);
-INSERT INTO CONCERT_PERFORMER VALUES(17,17);
-INSERT INTO CONCERT_PERFORMER VALUES(18,18);
-INSERT INTO CONCERT_PERFORMER VALUES(19,19);
-INSERT INTO CONCERT_PERFORMER VALUES(20,11);
-INSERT INTO CONCERT_PERFORMER VALUES(20,16);
-INSERT INTO CONCERT_PERFORMER VALUES(21,12);
-INSERT INTO CONCERT_PERFORMER VALUES(21,17);
-INSERT INTO CONCERT_PERFORMER VALUES(22,20);
-INSERT INTO CONCERT_PERFORMER VALUES(23,1);
-INSERT INTO CONCERT_PERFORMER VALUES(23,5);
-INSERT INTO CONCERT_PERFORMER VALUES(24,2);
-INSERT INTO CONCERT_PERFORMER VALUES(24,4);
-INSERT INTO CONCERT_PERFORMER VALUES(24,16);
-INSERT INTO CONCERT_PERFORMER VALUES(24,3);
-INSERT INTO CONCERT_PERFORMER VALUES(24,6);
-INSERT INTO CONCERT_PERFORMER VALUES(25,4);
-INSERT INTO CONCERT_PERFORMER VALUES(25,11);
-INSERT INTO CONCERT_PERFORMER VALUES(25,18);
-INSERT INTO CONCERT_PERFORMER VALUES(25,19);
-
-// Concert ticket pricing
-// column #1: ID of Concert (foreign key to CONCERTS)
-// column #2: Cost per ticket, Java type BigDecimal
-// column #3: Price band, Java type PriceBand stored as a String representation of PriceBand value
-INSERT INTO CONCERT_TARIFS VALUES(1,75.00,'PriceBandA')
-INSERT INTO CONCERT_TARIFS VALUES(1,65.00,'PriceBandB')
-INSERT INTO CONCERT_TARIFS VALUES(1,55.00,'PriceBandC')
-INSERT INTO CONCERT_TARIFS VALUES(2,115.00,'PriceBandA')
-INSERT INTO CONCERT_TARIFS VALUES(2,90.00,'PriceBandB')
-INSERT INTO CONCERT_TARIFS VALUES(2,68.00,'PriceBandC')
-INSERT INTO CONCERT_TARIFS VALUES(3,75.00,'PriceBandA')
-INSERT INTO CONCERT_TARIFS VALUES(3,65.00,'PriceBandB')
-INSERT INTO CONCERT_TARIFS VALUES(3,55.00,'PriceBandC')
-INSERT INTO CONCERT_TARIFS VALUES(4,165.00,'PriceBandA')
-INSERT INTO CONCERT_TARIFS VALUES(4,125.00,'PriceBandB')
-INSERT INTO CONCERT_TARIFS VALUES(4,100.00,'PriceBandC')
-INSERT INTO CONCERT_TARIFS VALUES(5,80.00,'PriceBandA')
-INSERT INTO CONCERT_TARIFS VALUES(5,70.00,'PriceBandB')
-INSERT INTO CONCERT_TARIFS VALUES(5,60.00,'PriceBandC')
-INSERT INTO CONCERT_TARIFS VALUES(6,135.00,'PriceBandA')
-INSERT INTO CONCERT_TARIFS VALUES(6,115.00,'PriceBandB')
-INSERT INTO CONCERT_TARIFS VALUES(6,90.00,'PriceBandC')
-INSERT INTO CONCERT_TARIFS VALUES(7,75.00,'PriceBandA')
-INSERT INTO CONCERT_TARIFS VALUES(7,65.00,'PriceBandB')
-INSERT INTO CONCERT_TARIFS VALUES(7,55.00,'PriceBandC')
-INSERT INTO CONCERT_TARIFS VALUES(8,90.00,'PriceBandA')
-INSERT INTO CONCERT_TARIFS VALUES(8,85.00,'PriceBandB')
-INSERT INTO CONCERT_TARIFS VALUES(8,70.00,'PriceBandC')
-INSERT INTO CONCERT_TARIFS VALUES(9,110.00,'PriceBandA')
-INSERT INTO CONCERT_TARIFS VALUES(9,90.00,'PriceBandB')
-INSERT INTO CONCERT_TARIFS VALUES(9,67.50,'PriceBandC')
-INSERT INTO CONCERT_TARIFS VALUES(10,80.00,'PriceBandA')
-INSERT INTO CONCERT_TARIFS VALUES(10,70.00,'PriceBandB')
-INSERT INTO CONCERT_TARIFS VALUES(10,60.00,'PriceBandC')
-INSERT INTO CONCERT_TARIFS VALUES(11,50.00,'PriceBandA')
-INSERT INTO CONCERT_TARIFS VALUES(11,40.00,'PriceBandB')
-INSERT INTO CONCERT_TARIFS VALUES(11,25.00,'PriceBandC')
-INSERT INTO CONCERT_TARIFS VALUES(12,49.50,'PriceBandA')
-INSERT INTO CONCERT_TARIFS VALUES(12,40.00,'PriceBandB')
-INSERT INTO CONCERT_TARIFS VALUES(12,25.00,'PriceBandC')
-INSERT INTO CONCERT_TARIFS VALUES(13,75.00,'PriceBandA')
-INSERT INTO CONCERT_TARIFS VALUES(13,65.00,'PriceBandB')
-INSERT INTO CONCERT_TARIFS VALUES(13,55.00,'PriceBandC')
-INSERT INTO CONCERT_TARIFS VALUES(14,75.00,'PriceBandA')
-INSERT INTO CONCERT_TARIFS VALUES(14,65.00,'PriceBandB')
-INSERT INTO CONCERT_TARIFS VALUES(14,55.00,'PriceBandC')
-INSERT INTO CONCERT_TARIFS VALUES(15,110.00,'PriceBandA')
-INSERT INTO CONCERT_TARIFS VALUES(15,90.00,'PriceBandB')
-INSERT INTO CONCERT_TARIFS VALUES(15,67.50,'PriceBandC')
-INSERT INTO CONCERT_TARIFS VALUES(16,80.00,'PriceBandA')
-INSERT INTO CONCERT_TARIFS VALUES(16,70.00,'PriceBandB')
-INSERT INTO CONCERT_TARIFS VALUES(16,60.00,'PriceBandC')
-INSERT INTO CONCERT_TARIFS VALUES(17,90.00,'PriceBandA')
-INSERT INTO CONCERT_TARIFS VALUES(17,85.00,'PriceBandB')
-INSERT INTO CONCERT_TARIFS VALUES(17,70.00,'PriceBandC')
-INSERT INTO CONCERT_TARIFS VALUES(18,135.00,'PriceBandA')
-INSERT INTO CONCERT_TARIFS VALUES(18,115.00,'PriceBandB')
-INSERT INTO CONCERT_TARIFS VALUES(18,90.00,'PriceBandC')
-INSERT INTO CONCERT_TARIFS VALUES(19,75.00,'PriceBandA')
-INSERT INTO CONCERT_TARIFS VALUES(19,65.00,'PriceBandB')
-INSERT INTO CONCERT_TARIFS VALUES(19,55.00,'PriceBandC')
-INSERT INTO CONCERT_TARIFS VALUES(20,80.00,'PriceBandA')
-INSERT INTO CONCERT_TARIFS VALUES(20,70.00,'PriceBandB')
-INSERT INTO CONCERT_TARIFS VALUES(20,60.00,'PriceBandC')
-INSERT INTO CONCERT_TARIFS VALUES(21,80.00,'PriceBandA')
-INSERT INTO CONCERT_TARIFS VALUES(21,70.00,'PriceBandB')
-INSERT INTO CONCERT_TARIFS VALUES(21,60.00,'PriceBandC')
-INSERT INTO CONCERT_TARIFS VALUES(22,300.00,'PriceBandA')
-INSERT INTO CONCERT_TARIFS VALUES(22,240.00,'PriceBandB')
-INSERT INTO CONCERT_TARIFS VALUES(22,170.00,'PriceBandC')
-INSERT INTO CONCERT_TARIFS VALUES(23,35.00,'PriceBandA')
-INSERT INTO CONCERT_TARIFS VALUES(23,25.00,'PriceBandB')
-INSERT INTO CONCERT_TARIFS VALUES(23,20.00,'PriceBandC')
-INSERT INTO CONCERT_TARIFS VALUES(24,75.00,'PriceBandA')
-INSERT INTO CONCERT_TARIFS VALUES(24,65.00,'PriceBandB')
-INSERT INTO CONCERT_TARIFS VALUES(24,55.00,'PriceBandC')
-INSERT INTO CONCERT_TARIFS VALUES(25,69.50,'PriceBandA')
-INSERT INTO CONCERT_TARIFS VALUES(25,45.00,'PriceBandB')
-INSERT INTO CONCERT_TARIFS VALUES(25,39.50,'PriceBandC')
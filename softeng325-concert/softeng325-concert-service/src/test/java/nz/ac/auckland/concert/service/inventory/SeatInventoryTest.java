@@ -0,0 +1,100 @@
+package nz.ac.auckland.concert.service.inventory;
+
+import nz.ac.auckland.concert.common.dto.SeatAvailabilityDTO;
+import nz.ac.auckland.concert.common.types.PriceBand;
+import nz.ac.auckland.concert.common.types.SeatNumber;
+import nz.ac.auckland.concert.common.types.SeatRow;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.BitSet;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that an inventory moves seats between free, held and sold as they are allocated, released and
+ * sold, and ignores seats that aren't its own or aren't in the state an operation expects.
+ *
+ * The inventories cover price band B, whose 81 seats are given ids 1000 upwards in position order.
+ */
+public class SeatInventoryTest {
+
+    private static final int CAPACITY = 81;
+
+    private static final SeatInventoryKey KEY = new SeatInventoryKey(1L, LocalDateTime.of(2017, 2, 24, 17, 0),
+            PriceBand.PriceBandB);
+
+    @Test
+    public void testLoadedSeatsAreCounted() {
+        BitSet free = new BitSet();
+        free.set(3, CAPACITY);
+        BitSet sold = new BitSet();
+        sold.set(0);
+
+        assertEquals(availability(CAPACITY - 3, 2, 1), inventory(free, sold).getAvailability());
+    }
+
+    @Test
+    public void testAllocatedSeatsAreHeldUntilReleased() {
+        SeatInventory inventory = inventory();
+
+        long[] seatIds = inventory.allocate(3);
+        assertEquals(availability(CAPACITY - 3, 3, 0), inventory.getAvailability());
+
+        inventory.release(seatIds);
+        inventory.release(seatIds);
+        assertEquals(availability(CAPACITY, 0, 0), inventory.getAvailability());
+    }
+
+    @Test
+    public void testSoldSeatsAreNotReleased() {
+        SeatInventory inventory = inventory();
+
+        long[] seatIds = inventory.allocate(3);
+        inventory.sell(seatIds);
+        inventory.sell(seatIds);
+        inventory.release(seatIds);
+
+        assertEquals(availability(CAPACITY - 3, 0, 3), inventory.getAvailability());
+    }
+
+    @Test
+    public void testSellingAFreeSeatTakesItOut() {
+        SeatInventory inventory = inventory();
+
+        inventory.sell(new long[]{1005});
+
+        assertEquals(availability(CAPACITY - 1, 0, 1), inventory.getAvailability());
+        assertEquals(0, inventory.allocate(CAPACITY).length);
+    }
+
+    @Test
+    public void testSeatsAreDescribedByPosition() {
+        SeatInventory inventory = inventory();
+
+        assertEquals(SeatRow.A, inventory.getRow(1000));
+        assertEquals(new SeatNumber(1), inventory.getNumber(1000));
+        assertEquals(SeatRow.B, inventory.getRow(1019));
+        assertEquals(new SeatNumber(21), inventory.getNumber(1080));
+        assertEquals(CAPACITY, inventory.getCapacity());
+    }
+
+    private static SeatInventory inventory() {
+        BitSet free = new BitSet();
+        free.set(0, CAPACITY);
+        return inventory(free, new BitSet());
+    }
+
+    private static SeatInventory inventory(BitSet free, BitSet sold) {
+        long[] seatIds = new long[CAPACITY];
+
+        for (int position = 0; position < CAPACITY; position++) {
+            seatIds[position] = 1000 + position;
+        }
+        return new SeatInventory(KEY, seatIds, free, sold);
+    }
+
+    private static SeatAvailabilityDTO availability(int free, int held, int sold) {
+        return new SeatAvailabilityDTO(PriceBand.PriceBandB, free, held, sold);
+    }
+}
@@ -0,0 +1,225 @@
+package nz.ac.auckland.concert.service.services;
+
+import nz.ac.auckland.concert.common.dto.ConcertDTO;
+import nz.ac.auckland.concert.service.catalogue.CatalogueCache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.jboss.resteasy.specimpl.RequestImpl;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the concert catalogue is served from the second-level and query caches once it has been read,
+ * and read from the database again after it is evicted. A request carrying the catalogue's current tag is
+ * answered without the database at all. Searches return the matching concerts a page at a time.
+ */
+public class ConcertResourceTest {
+
+    private static Statistics _statistics;
+
+    private ConcertResource _resource;
+
+    @BeforeClass
+    public static void enableStatistics() {
+        _statistics = PersistenceManager.instance().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        _statistics.setStatisticsEnabled(true);
+    }
+
+    @Before
+    public void warmUp() throws URISyntaxException {
+        _resource = new ConcertResource();
+        getAllConcerts(null);
+    }
+
+    @Test
+    public void testCachedConcertsUseNoStatements() throws URISyntaxException {
+        _statistics.clear();
+        long queryHits = CatalogueCache.instance().getQueryHitCount();
+
+        Response response = getAllConcerts(null);
+
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals(0, _statistics.getPrepareStatementCount());
+        assertEquals(queryHits + 1, CatalogueCache.instance().getQueryHitCount());
+    }
+
+    @Test
+    public void testEvictedConcertsAreReloaded() throws URISyntaxException {
+        CatalogueCache.instance().evictAll();
+        _statistics.clear();
+
+        Response response = getAllConcerts(null);
+
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertTrue(_statistics.getPrepareStatementCount() > 0);
+    }
+
+    @Test
+    public void testCurrentTagIsNotModified() throws URISyntaxException {
+        EntityTag tag = getAllConcerts(null).getEntityTag();
+        _statistics.clear();
+
+        Response response = getAllConcerts(tag);
+
+        assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(), response.getStatus());
+        assertEquals(tag, response.getEntityTag());
+        assertEquals(0, _statistics.getPrepareStatementCount());
+        assertEquals(0, _statistics.getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    public void testConcertAndListSendTheSameCacheControl() throws URISyntaxException {
+        Response list = getAllConcerts(null);
+        Response concert = getConcert(1L, null);
+        assertTrue(list.getHeaderString(HttpHeaders.CACHE_CONTROL).contains("max-age=10"));
+
+        for (Response response : Arrays.asList(list, concert, getAllConcerts(list.getEntityTag()),
+                getConcert(1L, concert.getEntityTag()))) {
+            assertEquals(list.getHeaderString(HttpHeaders.CACHE_CONTROL),
+                    response.getHeaderString(HttpHeaders.CACHE_CONTROL));
+        }
+        assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(), getConcert(1L, concert.getEntityTag()).getStatus());
+    }
+
+    @Test
+    public void testEvictedTagIsReplaced() throws URISyntaxException {
+        EntityTag tag = getAllConcerts(null).getEntityTag();
+        CatalogueCache.instance().evictAll();
+
+        Response response = getAllConcerts(tag);
+
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertNotEquals(tag, response.getEntityTag());
+    }
+
+    @Test
+    public void testTagDependsOnMediaType() throws URISyntaxException {
+        EntityTag xml = getAllConcerts(null).getEntityTag();
+
+        MockHttpRequest json = MockHttpRequest.get("/concerts").accept(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_NONE_MATCH, xml.toString());
+        Response response = _resource.getAllConcerts(new ConcertSearchParams(), json.getUri(),
+                new RequestImpl(json, new MockHttpResponse()));
+
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals(MediaType.APPLICATION_JSON_TYPE, response.getMediaType());
+    }
+
+    @Test
+    public void testSearchByPerformer() throws URISyntaxException {
+        Response response = search("?performer=4", new ConcertSearchParams(null, null, "4", null, null, null, null));
+
+        assertEquals(Arrays.asList(4L, 24L, 25L), ids(response));
+        assertNull(response.getLink("next"));
+    }
+
+    @Test
+    public void testSearchByGenreAndPerformer() throws URISyntaxException {
+        Response response = search("?performer=4&genre=Pop",
+                new ConcertSearchParams(null, null, "4", "Pop", null, null, null));
+
+        assertEquals(Arrays.asList(24L, 25L), ids(response));
+    }
+
+    @Test
+    public void testSearchByDates() throws URISyntaxException {
+        Response response = search("?from=2017-03-23&to=2017-03-25",
+                new ConcertSearchParams("2017-03-23", "2017-03-25", null, null, null, null, null));
+
+        assertEquals(Arrays.asList(7L, 22L), ids(response));
+    }
+
+    @Test
+    public void testSearchPagesFollowOneAnother() throws URISyntaxException {
+        Response first = search("?title=D&limit=2", new ConcertSearchParams(null, null, null, null, "D", null, "2"));
+
+        assertEquals(Arrays.asList(1L, 2L), ids(first));
+        assertEquals("/concerts?title=D&limit=2&after=2", first.getLink("next").getUri().toString());
+
+        Response second = search("?title=D&limit=2&after=2",
+                new ConcertSearchParams(null, null, null, null, "D", "2", "2"));
+        Response last = search("?title=D&limit=2&after=15",
+                new ConcertSearchParams(null, null, null, null, "D", "15", "2"));
+
+        assertEquals(Arrays.asList(11L, 15L), ids(second));
+        assertEquals(Arrays.asList(19L), ids(last));
+        assertNull(last.getLink("next"));
+    }
+
+    @Test
+    public void testBadSearchIsRejected() throws URISyntaxException {
+        Response badLimit = search("?limit=0", new ConcertSearchParams(null, null, null, null, null, null, "0"));
+        Response badGenre = search("?genre=Polka", new ConcertSearchParams(null, null, null, "Polka", null, null, null));
+
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), badLimit.getStatus());
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), badGenre.getStatus());
+    }
+
+    @Test
+    public void testSearchTablesAreIndexed() {
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+        try {
+            List<?> indexes = em.createNativeQuery("SELECT DISTINCT INDEX_NAME FROM INFORMATION_SCHEMA.INDEXES " +
+                    "WHERE INDEX_NAME IN ('IDX_CONCERT_DATES_DATE', 'IDX_CONCERT_PERFORMER_PERFORMER')")
+                    .getResultList();
+
+            assertEquals(2, indexes.size());
+        } finally {
+            em.close();
+        }
+    }
+
+    //a GET for the whole catalogue in XML, conditional on the given tag if there is one
+    private Response getAllConcerts(EntityTag ifNoneMatch) throws URISyntaxException {
+        MockHttpRequest request = MockHttpRequest.get("/concerts").accept(MediaType.APPLICATION_XML);
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch.toString());
+        }
+        return _resource.getAllConcerts(new ConcertSearchParams(), request.getUri(),
+                new RequestImpl(request, new MockHttpResponse()));
+    }
+
+    private Response getConcert(long id, EntityTag ifNoneMatch) throws URISyntaxException {
+        MockHttpRequest request = MockHttpRequest.get("/concerts/" + id).accept(MediaType.APPLICATION_XML);
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch.toString());
+        }
+        return _resource.getConcert(id, new RequestImpl(request, new MockHttpResponse()));
+    }
+
+    //a search in XML, given both its query string and the parameters parsed from it
+    private Response search(String query, ConcertSearchParams params) throws URISyntaxException {
+        MockHttpRequest request = MockHttpRequest.get("/concerts" + query).accept(MediaType.APPLICATION_XML);
+        return _resource.getAllConcerts(params, request.getUri(), new RequestImpl(request, new MockHttpResponse()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Long> ids(Response response) {
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+
+        List<Long> ids = new ArrayList<>();
+        for (ConcertDTO concert : (List<ConcertDTO>) response.getEntity()) {
+            ids.add(concert.getId());
+        }
+        return ids;
+    }
+}
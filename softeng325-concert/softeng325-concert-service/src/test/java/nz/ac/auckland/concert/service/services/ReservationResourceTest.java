@@ -0,0 +1,356 @@
+package nz.ac.auckland.concert.service.services;
+
+import nz.ac.auckland.concert.common.dto.BookingDTO;
+import nz.ac.auckland.concert.common.dto.CreditCardDTO;
+import nz.ac.auckland.concert.common.dto.ReservationDTO;
+import nz.ac.auckland.concert.common.dto.ReservationRequestDTO;
+import nz.ac.auckland.concert.common.dto.SeatAvailabilityDTO;
+import nz.ac.auckland.concert.common.dto.SeatDTO;
+import nz.ac.auckland.concert.common.dto.UserDTO;
+import nz.ac.auckland.concert.common.types.PriceBand;
+import nz.ac.auckland.concert.service.domain.jpa.Reservation;
+import nz.ac.auckland.concert.service.inventory.SeatInventory;
+import nz.ac.auckland.concert.service.inventory.SeatInventoryKey;
+import nz.ac.auckland.concert.service.inventory.SeatInventoryManager;
+import nz.ac.auckland.concert.service.inventory.SeatMapStore;
+import nz.ac.auckland.concert.service.inventory.SeatStore;
+import nz.ac.auckland.concert.service.reservation.ReservationArchiver;
+import nz.ac.auckland.concert.service.util.ServiceConfiguration;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import javax.ws.rs.core.Cookie;
+import javax.ws.rs.core.NewCookie;
+import javax.ws.rs.core.Response;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that making and confirming a reservation each take one transaction and a fixed number of SQL
+ * statements, however many seats or reservations there are, that a user's bookings are read in one
+ * query, and that archived bookings are read from the history. Seat availability follows reservations as
+ * they are made and confirmed, without reading the database, and every seat claim strategy keeps the seat
+ * inventories in step with the database. The strategies that claim seats in the SEATS table never give a seat
+ * to two reservations, however many are made at once and however out of date the inventory is.
+ */
+public class ReservationResourceTest {
+
+    // insert reservation, insert reservation seats (one batch), update seats. The reservation's id comes from
+    // the block of ids the warm-up reservation allocated, the user is authenticated from the cache, and the
+    // concert's dates come from the second-level cache
+    private static final int RESERVE_STATEMENTS = 3;
+
+    // update reservation, update seats
+    private static final int CONFIRM_STATEMENTS = 2;
+
+    // select the seats and concert titles of every booking
+    private static final int BOOKINGS_STATEMENTS = 1;
+
+    private static final LocalDateTime CONCERT_DATE = LocalDateTime.of(2017, 2, 24, 17, 0);
+
+    private static final String[] CLAIM_STRATEGIES = {"optimistic", "pessimistic", "conditional"};
+
+    // reservations made at once by the concurrent claim test, each of CONCURRENT_SEATS seats
+    private static final int CONCURRENT_CLIENTS = 6;
+
+    private static final int CONCURRENT_RESERVATIONS = 4;
+
+    private static final int CONCURRENT_SEATS = 2;
+
+    private static Cookie _token;
+
+    private static Statistics _statistics;
+
+    private ReservationResource _resource;
+
+    @BeforeClass
+    public static void createUser() {
+        UserResource userResource = new UserResource();
+
+        Response response = userResource.createUser(new UserDTO("Counter", "123", "Babbage", "Charles"));
+        _token = new Cookie("token", ((NewCookie) response.getCookies().get("token")).getValue());
+
+        userResource.addCreditCard(new CreditCardDTO(
+                CreditCardDTO.Type.Visa, "Charles Babbage", "4929-1500-0000-0000", LocalDate.of(2030, 1, 1)), _token);
+
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+        _statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        _statistics.setStatisticsEnabled(true);
+        em.close();
+    }
+
+    @Before
+    public void warmUp() {
+        _resource = new ReservationResource();
+
+        //the first reservation for a price band loads its seat inventory, which isn't part of the request cost
+        _resource.makeReservation(_token, new ReservationRequestDTO(1, PriceBand.PriceBandB, 1L, CONCERT_DATE));
+    }
+
+    @Test
+    public void testReserveUsesOneTransactionAndFixedStatements() {
+        for (int numberOfSeats = 1; numberOfSeats <= 8; numberOfSeats *= 2) {
+            _statistics.clear();
+
+            Response response = _resource.makeReservation(_token,
+                    new ReservationRequestDTO(numberOfSeats, PriceBand.PriceBandB, 1L, CONCERT_DATE));
+
+            assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+            assertEquals(RESERVE_STATEMENTS, _statistics.getPrepareStatementCount());
+            assertEquals(1, _statistics.getSuccessfulTransactionCount());
+        }
+    }
+
+    @Test
+    public void testConfirmUsesOneTransactionAndFixedStatements() {
+        ReservationDTO reservation = (ReservationDTO) _resource.makeReservation(_token,
+                new ReservationRequestDTO(4, PriceBand.PriceBandB, 1L, CONCERT_DATE)).getEntity();
+
+        _statistics.clear();
+
+        Response response = _resource.confirmReservation(_token, reservation);
+
+        assertEquals(Response.Status.CREATED.getStatusCode(), response.getStatus());
+        assertEquals(CONFIRM_STATEMENTS, _statistics.getPrepareStatementCount());
+        assertEquals(1, _statistics.getSuccessfulTransactionCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGetBookingsUsesOneQuery() {
+        for (int i = 0; i < 3; i++) {
+            ReservationDTO reservation = (ReservationDTO) _resource.makeReservation(_token,
+                    new ReservationRequestDTO(2, PriceBand.PriceBandB, 1L, CONCERT_DATE)).getEntity();
+            _resource.confirmReservation(_token, reservation);
+        }
+
+        _statistics.clear();
+
+        Response response = _resource.getBookings(_token);
+        //the Response unwraps the GenericEntity that the bookings are returned in
+        List<BookingDTO> bookings = (List<BookingDTO>) response.getEntity();
+
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertTrue(bookings.size() >= 3);
+        assertEquals(BOOKINGS_STATEMENTS, _statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testArchivedBookingsAreReadFromHistory() {
+        ReservationDTO reservation = (ReservationDTO) _resource.makeReservation(_token,
+                new ReservationRequestDTO(2, PriceBand.PriceBandB, 1L, CONCERT_DATE)).getEntity();
+        _resource.confirmReservation(_token, reservation);
+
+        //the concert date has passed, so every booking is archived
+        assertTrue(ReservationArchiver.instance().archive(LocalDateTime.now()) > 0);
+
+        List<BookingDTO> bookings = (List<BookingDTO>) _resource.getBookings(_token).getEntity();
+        List<BookingDTO> history = (List<BookingDTO>) _resource.getBookingHistory(_token).getEntity();
+
+        assertTrue(bookings.isEmpty());
+        assertTrue(history.stream().anyMatch(booking -> booking.getSeats().equals(reservation.getSeats())));
+    }
+
+    @Test
+    public void testAvailabilityFollowsReservations() {
+        for (String strategy : CLAIM_STRATEGIES) {
+            withClaimStrategy(strategy, () -> {
+                ConcertResource concerts = new ConcertResource();
+                SeatAvailabilityDTO before = availability(concerts, PriceBand.PriceBandA);
+
+                ReservationDTO reservation = (ReservationDTO) _resource.makeReservation(_token,
+                        new ReservationRequestDTO(3, PriceBand.PriceBandA, 1L, CONCERT_DATE)).getEntity();
+                SeatAvailabilityDTO held = availability(concerts, PriceBand.PriceBandA);
+
+                _resource.confirmReservation(_token, reservation);
+                _statistics.clear();
+                SeatAvailabilityDTO sold = availability(concerts, PriceBand.PriceBandA);
+
+                assertEquals(strategy, new SeatAvailabilityDTO(PriceBand.PriceBandA, before.getFree() - 3,
+                        before.getHeld() + 3, before.getSold()), held);
+                assertEquals(strategy, new SeatAvailabilityDTO(PriceBand.PriceBandA, before.getFree() - 3,
+                        before.getHeld(), before.getSold() + 3), sold);
+                assertEquals(strategy, 0, _statistics.getPrepareStatementCount());
+                assertInventoryMatchesDatabase(strategy, PriceBand.PriceBandA);
+            });
+        }
+    }
+
+    @Test
+    public void testAvailabilityNeedsAScheduledDate() {
+        ConcertResource concerts = new ConcertResource();
+
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), concerts.getAvailability(1L, null).getStatus());
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(),
+                concerts.getAvailability(1L, "tomorrow").getStatus());
+        assertEquals(Response.Status.NOT_FOUND.getStatusCode(),
+                concerts.getAvailability(1L, CONCERT_DATE.plusHours(1).toString()).getStatus());
+    }
+
+    @Test
+    public void testClaimStrategiesKeepTheInventoryInStep() {
+        for (String strategy : CLAIM_STRATEGIES) {
+            withClaimStrategy(strategy, () -> {
+                int free = inventory(PriceBand.PriceBandC).getFreeCount();
+
+                ReservationDTO reservation = (ReservationDTO) _resource.makeReservation(_token,
+                        new ReservationRequestDTO(3, PriceBand.PriceBandC, 1L, CONCERT_DATE)).getEntity();
+                assertEquals(strategy, free - 3, inventory(PriceBand.PriceBandC).getFreeCount());
+
+                _resource.confirmReservation(_token, reservation);
+                assertInventoryMatchesDatabase(strategy, PriceBand.PriceBandC);
+            });
+        }
+    }
+
+    @Test
+    public void testConcurrentClaimsNeverShareASeat() {
+        Assume.assumeTrue("Seats are only claimed in the SEATS table with the rows seat format",
+                SeatStore.current() != SeatMapStore.instance());
+
+        for (String strategy : new String[]{"pessimistic", "conditional"}) {
+            withClaimStrategy(strategy, () -> {
+                List<ReservationDTO> reservations = reserveConcurrently(PriceBand.PriceBandA);
+                Set<SeatDTO> seats = new HashSet<>();
+
+                for (ReservationDTO reservation : reservations) {
+                    seats.addAll(reservation.getSeats());
+                    _resource.confirmReservation(_token, reservation);
+                }
+
+                assertEquals(strategy, CONCURRENT_CLIENTS * CONCURRENT_RESERVATIONS, reservations.size());
+                assertEquals(strategy, reservations.size() * CONCURRENT_SEATS, seats.size());
+                assertNoSeatIsShared(strategy);
+            });
+        }
+    }
+
+    //runs a test with the reservation writer claiming seats the given way
+    private static void withClaimStrategy(String strategy, Runnable test) {
+        String previous = System.getProperty(ServiceConfiguration.SEAT_CLAIM);
+        System.setProperty(ServiceConfiguration.SEAT_CLAIM, strategy);
+
+        try {
+            test.run();
+        } finally {
+            if (previous == null) {
+                System.clearProperty(ServiceConfiguration.SEAT_CLAIM);
+            } else {
+                System.setProperty(ServiceConfiguration.SEAT_CLAIM, previous);
+            }
+        }
+    }
+
+    //makes CONCURRENT_RESERVATIONS reservations from each of CONCURRENT_CLIENTS threads at once, while the
+    //band's inventory keeps being discarded so that claims are made from inventories that are out of date
+    private List<ReservationDTO> reserveConcurrently(PriceBand priceBand) {
+        ExecutorService clients = Executors.newFixedThreadPool(CONCURRENT_CLIENTS);
+        AtomicBoolean reserving = new AtomicBoolean(true);
+        Thread evictor = new Thread(() -> {
+            while (reserving.get()) {
+                SeatInventoryManager.instance().evict(new SeatInventoryKey(1L, CONCERT_DATE, priceBand));
+                Thread.yield();
+            }
+        });
+        evictor.start();
+        Callable<List<ReservationDTO>> client = () -> {
+            List<ReservationDTO> reservations = new ArrayList<>();
+
+            for (int i = 0; i < CONCURRENT_RESERVATIONS; i++) {
+                Response response = _resource.makeReservation(_token,
+                        new ReservationRequestDTO(CONCURRENT_SEATS, priceBand, 1L, CONCERT_DATE));
+                if (response.getStatus() == Response.Status.OK.getStatusCode()) {
+                    reservations.add((ReservationDTO) response.getEntity());
+                }
+            }
+            return reservations;
+        };
+
+        try {
+            List<ReservationDTO> reservations = new ArrayList<>();
+
+            for (Future<List<ReservationDTO>> made
+                    : clients.invokeAll(Collections.nCopies(CONCURRENT_CLIENTS, client))) {
+                reservations.addAll(made.get());
+            }
+            return reservations;
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        } finally {
+            reserving.set(false);
+            clients.shutdown();
+        }
+    }
+
+    //no seat may belong to more than one reservation that is still held or has been confirmed
+    private static void assertNoSeatIsShared(String strategy) {
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+
+        try {
+            Object[] counts = em.createQuery("SELECT COUNT(s._seatId), COUNT(DISTINCT s._seatId) " +
+                    "FROM Reservation r JOIN r._seats s WHERE r._reservationStatus IN :live", Object[].class)
+                    .setParameter("live", Arrays.asList(Reservation.ReservationStatus.RESERVED,
+                            Reservation.ReservationStatus.CONFIRMED))
+                    .getSingleResult();
+            assertEquals(strategy, counts[0], counts[1]);
+        } finally {
+            em.close();
+        }
+    }
+
+    private static SeatInventory inventory(PriceBand priceBand) {
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+
+        try {
+            return SeatInventoryManager.instance().getInventory(em, 1L, CONCERT_DATE, priceBand);
+        } finally {
+            em.close();
+        }
+    }
+
+    //the inventory kept in memory must count the seats the same way as one read afresh from the database
+    private static void assertInventoryMatchesDatabase(String strategy, PriceBand priceBand) {
+        EntityManager em = PersistenceManager.instance().createEntityManager();
+
+        try {
+            SeatInventory loaded = SeatStore.current().loadInventory(em,
+                    new SeatInventoryKey(1L, CONCERT_DATE, priceBand));
+            assertEquals(strategy, loaded.getAvailability(), inventory(priceBand).getAvailability());
+        } finally {
+            em.close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SeatAvailabilityDTO availability(ConcertResource concerts, PriceBand priceBand) {
+        Response response = concerts.getAvailability(1L, CONCERT_DATE.toString());
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+
+        for (SeatAvailabilityDTO band : (List<SeatAvailabilityDTO>) response.getEntity()) {
+            if (band.getPriceBand() == priceBand) {
+                return band;
+            }
+        }
+        throw new AssertionError("no availability for " + priceBand);
+    }
+}
@@ -0,0 +1,117 @@
+package nz.ac.auckland.concert.service.util;
+
+import nz.ac.auckland.concert.common.types.PriceBand;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Checks that groups are seated in the smallest run of free seats that fits them, are split over the
+ * fewest runs when none does, and that released seats merge back into the runs beside them.
+ *
+ * Price band B has rows A (positions 0-18), B (19-38), C (39-59) and D (60-80).
+ */
+public class SeatAllocatorTest {
+
+    private static final int CAPACITY = 81;
+
+    @Test
+    public void testGroupTakesTheSmallestRunThatFits() {
+        //runs of 3 in row A and 5 in row B, and rows C and D entirely free
+        SeatAllocator allocator = new SeatAllocator(PriceBand.PriceBandB, free(5, 8, 19, 24, 39, CAPACITY));
+
+        assertArrayEquals(new int[]{5, 6, 7}, allocator.allocate(3));
+        assertArrayEquals(new int[]{19, 20, 21, 22}, allocator.allocate(4));
+    }
+
+    @Test
+    public void testGroupIsSplitWhenNoRunIsLongEnough() {
+        //runs of 2 in rows A and B and of 3 in row C
+        SeatAllocator allocator = new SeatAllocator(PriceBand.PriceBandB, free(0, 2, 19, 21, 39, 42));
+
+        //the longest run first, then the best fit for the rest
+        assertArrayEquals(new int[]{39, 40, 41, 0, 1}, allocator.allocate(5));
+        assertEquals(2, allocator.getFreeCount());
+    }
+
+    @Test
+    public void testGroupLargerThanTheFreeSeatsGetsNothing() {
+        SeatAllocator allocator = new SeatAllocator(PriceBand.PriceBandB, free(0, 4));
+
+        assertEquals(0, allocator.allocate(5).length);
+        assertEquals(0, allocator.allocate(0).length);
+        assertEquals(4, allocator.getFreeCount());
+    }
+
+    @Test
+    public void testReleasedSeatsMergeWithTheirNeighbours() {
+        SeatAllocator allocator = new SeatAllocator(PriceBand.PriceBandB);
+        allocator.allocate(19);
+
+        allocator.release(new int[]{5});
+        allocator.release(new int[]{7});
+        allocator.release(new int[]{6});
+
+        //a run of 3 is only found if the three released seats were merged
+        assertArrayEquals(new int[]{5, 6, 7}, allocator.allocate(3));
+    }
+
+    @Test
+    public void testReleasingAFreeSeatIsIgnored() {
+        SeatAllocator allocator = new SeatAllocator(PriceBand.PriceBandB);
+
+        allocator.release(new int[]{0, 0, -1, CAPACITY});
+
+        assertEquals(CAPACITY, allocator.getFreeCount());
+        assertEquals(CAPACITY, distinct(allocator.allocate(CAPACITY)));
+    }
+
+    @Test
+    public void testTakeSplitsTheRunHoldingTheSeat() {
+        SeatAllocator allocator = new SeatAllocator(PriceBand.PriceBandB);
+
+        allocator.take(new int[]{10, 10});
+
+        assertFalse(allocator.isFree(10));
+        assertEquals(CAPACITY - 1, allocator.getFreeCount());
+        //row A is left as runs of 10 and 8
+        assertArrayEquals(new int[]{11, 12, 13, 14, 15, 16, 17, 18}, allocator.allocate(8));
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, allocator.allocate(10));
+    }
+
+    @Test
+    public void testPositionsMapToRowsAndNumbers() {
+        SeatAllocator allocator = new SeatAllocator(PriceBand.PriceBandB);
+
+        assertEquals(CAPACITY, allocator.getCapacity());
+        assertEquals(19, allocator.positionOf(allocator.rowAt(19), 1));
+        assertEquals(1, allocator.numberAt(19));
+        assertEquals(21, allocator.numberAt(80));
+        assertEquals(-1, allocator.positionOf(allocator.rowAt(0), 20));
+    }
+
+    //a bitmap with the positions in each [from, to) range set
+    private static BitSet free(int... ranges) {
+        BitSet free = new BitSet();
+
+        for (int i = 0; i < ranges.length; i += 2) {
+            free.set(ranges[i], ranges[i + 1]);
+        }
+        return free;
+    }
+
+    private static int distinct(int[] positions) {
+        Set<Integer> distinct = new HashSet<>();
+
+        for (int position : positions) {
+            distinct.add(position);
+        }
+        return distinct.size();
+    }
+}